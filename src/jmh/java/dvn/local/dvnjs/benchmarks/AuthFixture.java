@@ -0,0 +1,107 @@
+package dvn.local.dvnjs.benchmarks;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+
+import dvn.local.dvnjs.config.JwtConfig;
+import dvn.local.dvnjs.helpers.JwtAuthFilter;
+import dvn.local.dvnjs.modules.users.entities.User;
+import dvn.local.dvnjs.modules.users.repositories.BlacklistedTokenRepository;
+import dvn.local.dvnjs.modules.users.repositories.UserRepository;
+import dvn.local.dvnjs.modules.users.security.UserAuthorities;
+import dvn.local.dvnjs.modules.users.services.impl.BlacklistWriteBehindQueue;
+import dvn.local.dvnjs.modules.users.services.impl.CustomUserDetailsService;
+import dvn.local.dvnjs.modules.users.services.impl.RevokedTokenFilter;
+import dvn.local.dvnjs.modules.users.services.impl.TokenEpochService;
+import dvn.local.dvnjs.services.AuthMetrics;
+import dvn.local.dvnjs.services.JwtKeyRing;
+import dvn.local.dvnjs.services.JwtService;
+import dvn.local.dvnjs.services.JwtVerifier;
+import dvn.local.dvnjs.services.VerifiedTokenCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * ベンチマーク用に、Spring を起動せずに認証まわりの部品を組み立てるクラス。
+ *
+ * DB はモックに置き換える。ブルームフィルターは空の状態で構築するため、
+ * ブラックリスト確認は DB を参照せずに「未登録」と判定される（本番の定常状態と同じ経路）。
+ * ユーザー情報は最初の1回だけモックから読み込まれ、以降はキャッシュから返される。
+ */
+final class AuthFixture {
+
+    static final String SECRET = "benchmark-secret-key-for-dvnjs-auth-hot-path-0123456789";
+
+    static final String ISSUER = "dvnjs-benchmark";
+
+    final JwtConfig jwtConfig;
+
+    final JwtService jwtService;
+
+    final JwtAuthFilter jwtAuthFilter;
+
+    final User user;
+
+    final String token;
+
+    AuthFixture(boolean verifiedTokenCacheEnabled) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        jwtConfig = new JwtConfig();
+        ReflectionTestUtils.setField(jwtConfig, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtConfig, "expirationTime", 3_600_000L);
+        ReflectionTestUtils.setField(jwtConfig, "issuer", ISSUER);
+
+        user = new User();
+        user.setId(1L);
+        user.setEmail("admin@example.com");
+        user.setName("Admin");
+        user.setPhone("0900000000");
+        user.setUserCatalogueId(1L);
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        BlacklistedTokenRepository blacklistedTokenRepository = mock(BlacklistedTokenRepository.class);
+        when(blacklistedTokenRepository.streamActiveTokenHashes(any())).thenAnswer(invocation -> Stream.empty());
+
+        RevokedTokenFilter revokedTokenFilter = new RevokedTokenFilter(
+                blacklistedTokenRepository, mock(PlatformTransactionManager.class), meterRegistry, 1_000_000L, 0.001);
+        revokedTokenFilter.rebuild();
+
+        BlacklistWriteBehindQueue writeBehindQueue = new BlacklistWriteBehindQueue(
+                null, mock(PlatformTransactionManager.class), null, revokedTokenFilter, meterRegistry,
+                false, 1, 1, Duration.ofMillis(50), Duration.ofSeconds(1), "target/blacklist-write-behind.spool", false);
+
+        jwtService = new JwtService(jwtConfig, new JwtVerifier(jwtConfig, new JwtKeyRing(jwtConfig, "default", "", true)));
+        ReflectionTestUtils.setField(jwtService, "blacklistedTokenRepository", blacklistedTokenRepository);
+        ReflectionTestUtils.setField(jwtService, "revokedTokenFilter", revokedTokenFilter);
+        ReflectionTestUtils.setField(jwtService, "blacklistWriteBehindQueue", writeBehindQueue);
+        AuthMetrics authMetrics = new AuthMetrics(meterRegistry, true);
+        ReflectionTestUtils.setField(jwtService, "authMetrics", authMetrics);
+
+        TokenEpochService tokenEpochService = new TokenEpochService(userRepository);
+        tokenEpochService.load();
+
+        VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache(
+                verifiedTokenCacheEnabled, 10_000L, Duration.ofMinutes(5), meterRegistry);
+
+        CustomUserDetailsService customUserDetailsService = new CustomUserDetailsService(
+                userRepository, new UserAuthorities(Set.of()), meterRegistry, 10_000L, Duration.ofMinutes(1));
+
+        jwtAuthFilter = new JwtAuthFilter(
+                jwtService, verifiedTokenCache, tokenEpochService, jwtConfig, customUserDetailsService, authMetrics);
+
+        token = jwtService.generateToken(user.getId(), user.getEmail());
+    }
+}
@@ -0,0 +1,87 @@
+package dvn.local.dvnjs.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import dvn.local.dvnjs.helpers.JwtAuthFilter;
+
+import jakarta.servlet.FilterChain;
+
+/**
+ * JwtAuthFilter が1リクエストごとに行う処理全体（ヘッダー確認 → 形式確認 → 検証 → ブラックリスト確認
+ * → 一括失効確認 → ユーザー読み込み → 認証情報の設定）のベンチマーク。
+ *
+ * verifiedTokenCache が true の場合は検証済みトークンのキャッシュにヒットする経路、
+ * false の場合は毎回署名を検証する経路を測る。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+@State(Scope.Thread)
+public class JwtAuthFilterBenchmarks {
+
+    @Param({ "true", "false" })
+    public boolean verifiedTokenCache;
+
+    private JwtAuthFilter jwtAuthFilter;
+
+    private MockHttpServletRequest request;
+
+    private MockHttpServletResponse response;
+
+    private MockHttpServletRequest malformedRequest;
+
+    // 次のフィルターは何もしない
+    private final FilterChain filterChain = (req, res) -> { };
+
+    @Setup
+    public void setUp() {
+        AuthFixture fixture = new AuthFixture(verifiedTokenCache);
+        jwtAuthFilter = fixture.jwtAuthFilter;
+
+        request = new MockHttpServletRequest("GET", "/api/v1/me");
+        request.addHeader("Authorization", "Bearer " + fixture.token);
+
+        malformedRequest = new MockHttpServletRequest("GET", "/api/v1/me");
+        malformedRequest.addHeader("Authorization", "Bearer not-a-jwt");
+
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse authenticatedRequest() throws Exception {
+        reset();
+        jwtAuthFilter.doFilterInternal(request, response, filterChain);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse malformedTokenRejected() throws Exception {
+        reset();
+        jwtAuthFilter.doFilterInternal(malformedRequest, response, filterChain);
+        return response;
+    }
+
+    // 毎回認証処理を最後まで通すため、前回の認証情報とレスポンスを消す
+    // （Level.Invocation の TearDown は短いベンチマークでは計測誤差が大きいため使わない）
+    private void reset() {
+        SecurityContextHolder.clearContext();
+        response.reset();
+    }
+}
@@ -0,0 +1,95 @@
+package dvn.local.dvnjs.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dvn.local.dvnjs.helpers.TokenDigest;
+import dvn.local.dvnjs.services.JwtService;
+import dvn.local.dvnjs.services.VerifiedToken;
+
+/**
+ * JwtService の生成・検証メソッドごとのベンチマーク。
+ * 旧来の個別検証メソッド（それぞれがトークンをパースし直す）と verify（1回のパース）を比較できる。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+@State(Scope.Benchmark)
+public class JwtBenchmarks {
+
+    private JwtService jwtService;
+
+    private String token;
+
+    private TokenDigest digest;
+
+    @Setup
+    public void setUp() {
+        AuthFixture fixture = new AuthFixture(true);
+        jwtService = fixture.jwtService;
+        token = fixture.token;
+        digest = TokenDigest.of(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(1L, "admin@example.com");
+    }
+
+    @Benchmark
+    public VerifiedToken verify() {
+        return jwtService.verify(token);
+    }
+
+    @Benchmark
+    public boolean isTokenFormatValid() {
+        return jwtService.isTokenFormatValid(token);
+    }
+
+    @Benchmark
+    public boolean isSignatureValid() {
+        return jwtService.isSignatureValid(token);
+    }
+
+    @Benchmark
+    public boolean isTokenExpired() {
+        return jwtService.isTokenExpired(token);
+    }
+
+    @Benchmark
+    public boolean isIssuerToken() {
+        return jwtService.isIssuerToken(token);
+    }
+
+    @Benchmark
+    public String getUserIdFromJwt() {
+        return jwtService.getUserIdFromJwt(token);
+    }
+
+    @Benchmark
+    public String getEmailFromJwt() {
+        return jwtService.getEmailFromJwt(token);
+    }
+
+    @Benchmark
+    public TokenDigest tokenDigest() {
+        return TokenDigest.of(token);
+    }
+
+    @Benchmark
+    public boolean isBlackListedToken() {
+        return jwtService.isBlackListedToken(digest);
+    }
+}
@@ -0,0 +1,64 @@
+package dvn.local.dvnjs.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dvn.local.dvnjs.modules.users.resources.LoginResource;
+import dvn.local.dvnjs.modules.users.resources.UserResource;
+import dvn.local.dvnjs.resources.SuccessResource;
+
+/**
+ * レスポンスの JSON 変換（ログイン応答と /api/v1/me の応答）のベンチマーク。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+@State(Scope.Benchmark)
+public class SerializationBenchmarks {
+
+    private ObjectMapper objectMapper;
+
+    private LoginResource loginResource;
+
+    private SuccessResource<UserResource> meResource;
+
+    @Setup
+    public void setUp() {
+        AuthFixture fixture = new AuthFixture(true);
+        objectMapper = new ObjectMapper();
+
+        UserResource userResource = UserResource.builder()
+                .id(fixture.user.getId())
+                .email(fixture.user.getEmail())
+                .name(fixture.user.getName())
+                .phone(fixture.user.getPhone())
+                .build();
+        loginResource = new LoginResource(fixture.token, "dGhpcy1pcy1hLXJlZnJlc2gtdG9rZW4tZm9yLWJlbmNobWFya3M", userResource);
+        meResource = new SuccessResource<>("SUCCESS", userResource);
+    }
+
+    @Benchmark
+    public byte[] loginResource() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(loginResource);
+    }
+
+    @Benchmark
+    public byte[] successUserResource() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(meResource);
+    }
+}
@@ -2,8 +2,12 @@ package dvn.local.dvnjs;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// R2DBC はリアクティブ版の認証エッジ（reactive-edge プロファイル）専用のため、
+// 同じクラスパスでも JDBC の DataSource が使われるよう自動設定から除外する
+@SpringBootApplication(excludeName = "org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration")
+@EnableScheduling
 public class DvnjsApplication {
 
 	public static void main(String[] args) {
@@ -18,6 +18,11 @@ public class JwtConfig {
     @Value("${jwt.issuer}")
     private String issuer;
 
+    // application.properties の "jwt.stateless" を読み込む
+    // true の場合、トークンにユーザー情報を埋め込み、認証時に DB を参照しない
+    @Value("${jwt.stateless:false}")
+    private boolean stateless;
+
     // 秘密鍵を取得するメソッド
     public String getSecretKey() {
         return secretKey;
@@ -32,4 +37,9 @@ public class JwtConfig {
     public String getIssuer() {
         return issuer;
     }
+
+    // ステートレス認証モードかどうかを取得するメソッド
+    public boolean isStateless() {
+        return stateless;
+    }
 }
@@ -1,32 +1,68 @@
 package dvn.local.dvnjs.config;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 
 import lombok.RequiredArgsConstructor;
 
+import dvn.local.dvnjs.helpers.CalibratedBCryptPasswordEncoder;
+import dvn.local.dvnjs.helpers.ConcurrencyLimitFilter;
 import dvn.local.dvnjs.helpers.JwtAuthFilter;
+import dvn.local.dvnjs.helpers.RateLimitFilter;
+import dvn.local.dvnjs.modules.users.security.UserAuthorities;
+import dvn.local.dvnjs.services.ConcurrencyLimiter;
+import dvn.local.dvnjs.services.RateLimiter;
 
 @RequiredArgsConstructor
 @Configuration
 public class SecurityConfig {
     
+    /**
+     * パスワードの暗号化・照合を行う PasswordEncoder。
+     * password.bcrypt.calibrate が true の場合は、起動時にハッシュ時間を計測し、
+     * latency-budget に収まる最大のコストを選ぶ（min-strength 〜 max-strength の範囲）。
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+        @Value("${password.bcrypt.strength:10}") int strength,
+        @Value("${password.bcrypt.calibrate:false}") boolean calibrate,
+        @Value("${password.bcrypt.latency-budget:250ms}") Duration latencyBudget,
+        @Value("${password.bcrypt.min-strength:10}") int minStrength,
+        @Value("${password.bcrypt.max-strength:14}") int maxStrength
+    ) {
+        int cost = calibrate
+                ? CalibratedBCryptPasswordEncoder.calibrate(latencyBudget, minStrength, maxStrength)
+                : strength;
+        return new CalibratedBCryptPasswordEncoder(cost);
     }
 
     private final JwtAuthFilter jwtAuthFilter;
 
+    private final RateLimiter rateLimiter;
+
+    private final ConcurrencyLimiter concurrencyLimiter;
+
     // セキュリティ設定を定義するメソッド
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(
+        HttpSecurity http,
+        @Value("${server.port:8080}") int serverPort,
+        @Value("${management.server.port:-1}") int managementPort
+    ) throws Exception {
+
+        // Actuator を別ポート（management.server.port）に分けている場合、そのポートへのリクエストかどうか
+        boolean separateManagementPort = managementPort > 0 && managementPort != serverPort;
+        RequestMatcher managementPortRequest = request ->
+                separateManagementPort && request.getLocalPort() == managementPort;
 
         http
             // CSRF保護を無効化（API通信のため）
@@ -37,7 +73,8 @@ public class SecurityConfig {
 
                 // 特定のURLパスを認証なしでアクセス許可
                 .requestMatchers(
-                    "/api/v1/auth/login"            // ログイン用API
+                    "/api/v1/auth/login",           // ログイン用API
+                    "/api/v1/auth/refresh"          // トークン再発行用API（リフレッシュトークンで認証）
                         ).permitAll() // 上記のAPIは全てのユーザーにアクセスを許可
                 
                 // ② 公開ルート（認証不要のAPI）設定
@@ -45,6 +82,20 @@ public class SecurityConfig {
                     "/api/v1/products"   // 商品情報取得用API（誰でもアクセス可能）
                 ).permitAll()
 
+                // ヘルスチェックは認証なしで許可する
+                .requestMatchers("/actuator/health").permitAll()
+
+                // メトリクスの収集（/actuator/prometheus）は、アプリケーションのポートでは認証が必要
+                // management.server.port で別ポートに分けた場合のみ、そのポートでは認証なしで許可する
+                // （別ポートは内部ネットワークからのみ到達できるようにすること）
+                .requestMatchers(managementPortRequest).permitAll()
+
+                // アプリケーションのポートでは、ヘルスチェック以外の Actuator は運用者（OPS 権限）のみ許可する
+                .requestMatchers("/actuator/**").hasAuthority(UserAuthorities.OPS)
+
+                // トークンの一括失効（ユーザー単位の強制ログアウトを含む）は運用者（OPS 権限）のみ許可する
+                .requestMatchers("/api/v1/auth/blacklisted_tokens/bulk").hasAuthority(UserAuthorities.OPS)
+
                 // ③ その他の全てのリクエストは認証が必要
                 .anyRequest().authenticated()
             )
@@ -56,7 +107,13 @@ public class SecurityConfig {
             )    
 
             // ⑤ JWTフィルターをSpring Securityの認証フィルターの前に追加
-            .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+
+            // ⑥ 認証 API の送信元ごとのレート制限を JWT フィルターより前に追加
+            .addFilterBefore(new RateLimitFilter(rateLimiter), JwtAuthFilter.class)
+
+            // ⑦ 同時実行数の制限（上で追加したレート制限の後、JWTフィルターの前に実行される）
+            .addFilterBefore(new ConcurrencyLimitFilter(concurrencyLimiter), JwtAuthFilter.class);
 
         return http.build();
 
@@ -0,0 +1,87 @@
+package dvn.local.dvnjs.helpers;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 【クラス概要】
+ * TokenDigest を要素とするスレッドセーフなブルームフィルター。
+ *
+ * 「含まれていない」と判定された場合は確実に含まれていない（偽陰性なし）。
+ * 「含まれている可能性がある」と判定された場合のみ、呼び出し側で正確な確認（DB参照など）を行う。
+ *
+ * ダイジェスト自体が一様なハッシュ値であるため、先頭16バイトを2つの64bit値として
+ * ダブルハッシュ法でビット位置を求める（追加のハッシュ計算は不要）。
+ */
+public final class BloomFilter {
+
+    // ビット配列（64bit単位、CASで更新）
+    private final AtomicLongArray bits;
+
+    // ビット数
+    private final long bitSize;
+
+    // ハッシュ関数の数
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions 想定する要素数
+     * @param falsePositiveRate 許容する偽陽性率（例：0.001）
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) >>> 6));
+        this.bits = new AtomicLongArray(words);
+        this.bitSize = (long) words << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / n * Math.log(2)));
+    }
+
+    /**
+     * 要素を追加する。
+     * @param digest 追加するダイジェスト
+     */
+    public void put(TokenDigest digest) {
+        byte[] b = digest.bytes();
+        long h1 = readLong(b, 0);
+        long h2 = readLong(b, 8);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitSize);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    /**
+     * 要素が含まれている可能性があるかを判定する。
+     * @param digest 判定するダイジェスト
+     * @return 含まれている可能性がある場合 true、確実に含まれていない場合 false
+     */
+    public boolean mightContain(TokenDigest digest) {
+        byte[] b = digest.bytes();
+        long h1 = readLong(b, 0);
+        long h2 = readLong(b, 8);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitSize);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // バイト配列の指定位置から64bit値を読み出す（ビッグエンディアン）
+    private static long readLong(byte[] b, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (b[offset + i] & 0xff);
+        }
+        return value;
+    }
+}
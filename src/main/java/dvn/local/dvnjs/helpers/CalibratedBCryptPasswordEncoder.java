@@ -0,0 +1,112 @@
+package dvn.local.dvnjs.helpers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * 【概要】
+ * 起動時に計測したハッシュ時間から BCrypt のコスト（strength）を決める PasswordEncoder。
+ *
+ * 主な役割：
+ *  - calibrate で、1回のハッシュが指定の時間内に収まる最大のコストを選ぶ（下限・上限の範囲内）
+ *  - upgradeEncoding は、保存済みハッシュのコストが現在のコストと異なる場合に true を返す
+ *    （BCryptPasswordEncoder の標準動作は低い場合のみ）。ログイン時に再ハッシュさせるために使う
+ */
+public class CalibratedBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CalibratedBCryptPasswordEncoder.class);
+
+    // "$2a$10$..." 形式のハッシュからコストを取り出す
+    private static final Pattern COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
+    // 計測1回あたりのサンプル数（中央値を使う）
+    private static final int SAMPLES = 5;
+
+    // 現在のコスト
+    private final int strength;
+
+    public CalibratedBCryptPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    /**
+     * 1回のハッシュ時間が budget に収まる最大のコストを計測して返す。
+     * コストが1上がるごとにハッシュ時間はほぼ2倍になるため、基準コストの計測値から見積もり、
+     * 最後に選んだコストを実測して超えていれば1つ下げる。
+     *
+     * @param budget 1回のログインで許容するハッシュ時間
+     * @param minStrength コストの下限（これより小さいコストは選ばない）
+     * @param maxStrength コストの上限
+     * @return 選んだコスト
+     */
+    public static int calibrate(Duration budget, int minStrength, int maxStrength) {
+        long budgetNanos = budget.toNanos();
+        long baseNanos = measure(minStrength);
+
+        int chosen = minStrength;
+        long estimate = baseNanos;
+        while (chosen < maxStrength && estimate * 2 <= budgetNanos) {
+            chosen++;
+            estimate *= 2;
+        }
+
+        // 見積もりが外れた場合に備えて実測で確認する
+        if (chosen > minStrength && measure(chosen) > budgetNanos) {
+            chosen--;
+        }
+
+        logger.info("BCrypt のコストを {} に設定しました（コスト{}で {}ms、目標 {}ms 以内）",
+                chosen, minStrength, Duration.ofNanos(baseNanos).toMillis(), budget.toMillis());
+        return chosen;
+    }
+
+    /**
+     * 保存済みハッシュのコストが現在のコストと異なる場合に true を返す。
+     * @param encodedPassword 保存済みハッシュ
+     * @return 再ハッシュが必要な場合 true
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        Matcher matcher = COST.matcher(encodedPassword);
+        if (!matcher.find()) {
+            return super.upgradeEncoding(encodedPassword);
+        }
+        return Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    /**
+     * 現在のコストを返す。
+     * @return コスト
+     */
+    public int getStrength() {
+        return strength;
+    }
+
+    // 指定コストでのハッシュ時間の中央値（ナノ秒）を計測する
+    private static long measure(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        String encoded = encoder.encode("calibration");
+
+        // JIT のウォームアップ
+        encoder.matches("calibration", encoded);
+
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.matches("calibration", encoded);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
@@ -0,0 +1,71 @@
+package dvn.local.dvnjs.helpers;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.annotation.Nonnull;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import dvn.local.dvnjs.services.ConcurrencyLimiter;
+import dvn.local.dvnjs.services.ConcurrencyLimiter.Priority;
+
+/**
+ * 🔐【クラス概要】
+ * 同時に処理するリクエスト数を ConcurrencyLimiter の上限までに制限するフィルター。
+ *
+ * 上限を超えたリクエストは待たせずに、雛形から作成した 503 レスポンス（Retry-After 付き）で返す。
+ * ログイン API は優先度を分け、認証済みの参照系の処理枠を使い切れないようにする。
+ * Actuator（ヘルスチェック・メトリクス）は混雑時にも応答できるよう対象外にする。
+ *
+ * RateLimitFilter と同様に SecurityConfig でインスタンスを作成し、JwtAuthFilter の前に追加する。
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final String LOGIN_PATH = "/api/v1/auth/login";
+
+    // 一括失効は数分かかることがあり、応答時間で上限を調整すると他のリクエストまで絞られるため対象外にする
+    private static final String BULK_REVOCATION_PATH = "/api/v1/auth/blacklisted_tokens/bulk";
+
+    // 503 レスポンスの雛形
+    private static final JsonErrorTemplate OVERLOADED = new JsonErrorTemplate(
+            HttpServletResponse.SC_SERVICE_UNAVAILABLE, "サーバーが混み合っています。", "しばらくしてから再試行してください。");
+
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    public ConcurrencyLimitFilter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@Nonnull HttpServletRequest request) {
+        final String path = request.getRequestURI();
+        return path.startsWith("/actuator/") || path.startsWith(BULK_REVOCATION_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(
+        @Nonnull HttpServletRequest request,
+        @Nonnull HttpServletResponse response,
+        @Nonnull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        final Priority priority = request.getRequestURI().startsWith(LOGIN_PATH) ? Priority.LOGIN : Priority.DEFAULT;
+        if (!concurrencyLimiter.tryAcquire(priority)) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            OVERLOADED.write(request, response);
+            return;
+        }
+
+        final long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            concurrencyLimiter.release(priority, start);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package dvn.local.dvnjs.helpers;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -11,6 +12,8 @@ import java.util.Map;
 import java.util.HashMap;
 
 import dvn.local.dvnjs.resources.ErrorResource;
+import dvn.local.dvnjs.services.PasswordHashingRejectedException;
+import dvn.local.dvnjs.services.RateLimitExceededException;
 
 @ControllerAdvice // 全てのコントローラーで発生する例外を共通的に処理するクラスであることを示す
 public class GlobalExceptionHandler {
@@ -49,5 +52,38 @@ public class GlobalExceptionHandler {
         // マップ（errors）をレスポンスボディとして返す（HTTPステータスは400 Bad Request）
         return new ResponseEntity<>(errorResource, HttpStatus.UNPROCESSABLE_ENTITY);
     }
-}
 
+    /**
+     * パスワード照合の待ち行列があふれた場合の処理。
+     * 待たせずに HTTPステータス503（Service Unavailable）と Retry-After を返す。
+     */
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public ResponseEntity<Object> handlePasswordHashingRejected(PasswordHashingRejectedException exception) {
+
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", exception.getMessage());
+
+        ErrorResource errorResource = new ErrorResource("認証処理中にエラーが発生しました。", errors);
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorResource);
+    }
+
+    /**
+     * 送信元ごとの試行回数が上限を超えた場合の処理。
+     * HTTPステータス429（Too Many Requests）と、再試行できるまでの秒数を Retry-After で返す。
+     */
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<Object> handleRateLimitExceeded(RateLimitExceededException exception) {
+
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", exception.getMessage());
+
+        ErrorResource errorResource = new ErrorResource("リクエストが多すぎます。", errors);
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(exception.getRetryAfterSeconds()))
+                .body(errorResource);
+    }
+}
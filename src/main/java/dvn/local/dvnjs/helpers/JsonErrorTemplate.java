@@ -0,0 +1,108 @@
+package dvn.local.dvnjs.helpers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * 【クラス概要】
+ * フィルターで返すエラーレスポンス（JSON）の雛形。
+ *
+ * status / error / message は固定のため起動時に1回だけ UTF-8 のバイト列にしておき、
+ * リクエストごとに変わる timestamp と path だけを差し込んで書き込む。
+ * 不正なトークンの大量送信などで拒否が続いても、Map の作成や ObjectMapper による変換を行わない。
+ * サーブレット版はレスポンスへ直接書き込み、WebFlux 版は DataBuffer に書き込んで返す。
+ *
+ * 出力形式：
+ *   {"status":401,"error":"...","message":"...","timestamp":1700000000000,"path":"/api/v1/me"}
+ */
+public final class JsonErrorTemplate {
+
+    private static final byte[] PATH_PREFIX = ",\"path\":\"".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] SUFFIX = "\"}".getBytes(StandardCharsets.UTF_8);
+
+    private static final String CONTENT_TYPE = MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8";
+
+    // ステータスコード
+    private final int status;
+
+    // timestamp の直前までの固定部分
+    private final byte[] prefix;
+
+    /**
+     * @param status ステータスコード
+     * @param error エラー概要
+     * @param message 詳細メッセージ
+     */
+    public JsonErrorTemplate(int status, String error, String message) {
+        this.status = status;
+        this.prefix = ("{\"status\":" + status
+                + ",\"error\":\"" + quote(error)
+                + "\",\"message\":\"" + quote(message)
+                + "\",\"timestamp\":").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 雛形に timestamp と path を差し込み、レスポンスに書き込む。
+     * @param request HTTPリクエスト（path の取得に使用）
+     * @param response HTTPレスポンス
+     */
+    public void write(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        byte[] timestamp = Long.toString(System.currentTimeMillis()).getBytes(StandardCharsets.US_ASCII);
+        byte[] path = JsonStringEncoder.getInstance().quoteAsUTF8(request.getRequestURI());
+
+        response.setStatus(status);
+        response.setContentType(CONTENT_TYPE);
+        response.setContentLength(prefix.length + timestamp.length + PATH_PREFIX.length + path.length + SUFFIX.length);
+
+        ServletOutputStream out = response.getOutputStream();
+        out.write(prefix);
+        out.write(timestamp);
+        out.write(PATH_PREFIX);
+        out.write(path);
+        out.write(SUFFIX);
+    }
+
+    /**
+     * 雛形に timestamp と path を差し込んだ本文を DataBuffer に書き込む（WebFlux 用）。
+     * ステータスと Content-Type は呼び出し側で getStatus / MediaType.APPLICATION_JSON を設定すること。
+     * @param bufferFactory レスポンスのバッファファクトリ
+     * @param requestPath リクエストのパス
+     * @return 本文を書き込んだバッファ
+     */
+    public DataBuffer toDataBuffer(DataBufferFactory bufferFactory, String requestPath) {
+        byte[] timestamp = Long.toString(System.currentTimeMillis()).getBytes(StandardCharsets.US_ASCII);
+        byte[] path = JsonStringEncoder.getInstance().quoteAsUTF8(requestPath);
+
+        DataBuffer buffer = bufferFactory.allocateBuffer(
+                prefix.length + timestamp.length + PATH_PREFIX.length + path.length + SUFFIX.length);
+        buffer.write(prefix);
+        buffer.write(timestamp);
+        buffer.write(PATH_PREFIX);
+        buffer.write(path);
+        buffer.write(SUFFIX);
+        return buffer;
+    }
+
+    /**
+     * @return ステータスコード
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    // JSON 文字列として埋め込めるようエスケープする
+    private static String quote(String value) {
+        return new String(JsonStringEncoder.getInstance().quoteAsString(value));
+    }
+}
@@ -1,20 +1,19 @@
 package dvn.local.dvnjs.helpers;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
+import java.util.List;
 
 import lombok.RequiredArgsConstructor;
 import lombok.NonNull;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.MediaType;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import jakarta.annotation.Nonnull;
@@ -23,11 +22,17 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
+import dvn.local.dvnjs.config.JwtConfig;
 import dvn.local.dvnjs.databases.seeder.DatabaseSeeder;
+import dvn.local.dvnjs.modules.users.security.AuthUser;
 import dvn.local.dvnjs.modules.users.services.impl.CustomUserDetailsService;
+import dvn.local.dvnjs.modules.users.services.impl.TokenEpochService;
+import dvn.local.dvnjs.services.AuthMetrics;
+import dvn.local.dvnjs.services.AuthMetrics.Rejection;
+import dvn.local.dvnjs.services.AuthMetrics.Stage;
 import dvn.local.dvnjs.services.JwtService;
+import dvn.local.dvnjs.services.VerifiedToken;
+import dvn.local.dvnjs.services.VerifiedTokenCache;
 
 
 
@@ -50,11 +55,31 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     // JWTの生成・検証を行うサービス
     private final JwtService jwtService;
 
+    // 検証済みトークンのキャッシュ
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    // ユーザー単位のトークン一括失効を判定するサービス
+    private final TokenEpochService tokenEpochService;
+
+    // JWTに関する設定（ステートレスモードの判定に使用）
+    private final JwtConfig jwtConfig;
+
     // ユーザー情報を取得するサービス
     private final CustomUserDetailsService customUserDetailsService;
 
-    // JSON出力用（エラーレスポンスなど）
-    private final ObjectMapper objectMapper;
+    // 段階ごとの処理時間と拒否理由の記録
+    private final AuthMetrics authMetrics;
+
+    // エラーレスポンスの雛形（固定部分は起動時に1回だけ JSON にしておく）
+    private static final JsonErrorTemplate MISSING_TOKEN = authError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "トークンが見つかりません。");
+    private static final JsonErrorTemplate BAD_FORMAT = authError(HttpServletResponse.SC_UNAUTHORIZED, "トークンの定義は正しくありません。");
+    private static final JsonErrorTemplate BAD_SIGNATURE = authError(HttpServletResponse.SC_UNAUTHORIZED, "トークンの署名が不正です。");
+    private static final JsonErrorTemplate WRONG_ISSUER = authError(HttpServletResponse.SC_UNAUTHORIZED, "トークンの発行者が不正です。");
+    private static final JsonErrorTemplate EXPIRED = authError(HttpServletResponse.SC_UNAUTHORIZED, "トークンの有効期限が切れています。");
+    private static final JsonErrorTemplate NOT_YET_VALID = authError(HttpServletResponse.SC_UNAUTHORIZED, "トークンはまだ有効になっていません。");
+    private static final JsonErrorTemplate BLOCKED = authError(HttpServletResponse.SC_UNAUTHORIZED, "トークンはブロックされました。");
+    private static final JsonErrorTemplate EMAIL_MISMATCH = authError(HttpServletResponse.SC_UNAUTHORIZED, "ユーザートークンが正くありません。");
+    private static final JsonErrorTemplate INTERNAL_ERROR = authError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "インターネットのエラー発生しました。");
 
     // ロガーの設定
     private static final Logger logger = LoggerFactory.getLogger(DatabaseSeeder.class);
@@ -70,18 +95,20 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     @Override
     protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
         String path = request.getRequestURI();
-        // /api/v1/auth/login のリクエストはフィルタ対象外にする
-        return path.startsWith("/api/v1/auth/login");
+        // /api/v1/auth/login・/api/v1/auth/refresh とヘルスチェックはフィルタ対象外にする
+        // その他の Actuator はトークンがない場合のみ対象外にし、許可するかどうかは SecurityConfig の認可設定に任せる
+        // （アプリケーションのポートでは拒否され、management.server.port の別ポートでは許可される）
+        return path.startsWith("/api/v1/auth/login")
+                || path.startsWith("/api/v1/auth/refresh")
+                || path.startsWith("/actuator/health")
+                || (path.startsWith("/actuator/") && request.getHeader("Authorization") == null);
     }
 
 
     /**
      * 【メソッド概要】
      * JWT認証のメイン処理を行う。
-     * 1. AuthorizationヘッダーからJWTを取得
-     * 2. トークン形式と内容を検証
-     * 3. ユーザー情報を読み込み、認証コンテキストを設定
-     * 4. エラー発生時はJSON形式でレスポンスを返す
+     * 認証処理（authenticate）の時間を計測し、成功した場合だけ次のフィルターへ渡す。
      */
     @Override
     public void doFilterInternal(
@@ -91,134 +118,204 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
 
         try {
-            // Authorizationヘッダーの取得（形式: "Bearer <JWT>"）
-            final String authHeader = request.getHeader("Authorization");
-
-            final String jwt;
-            final String userId;
-
-            // ヘッダーが存在しない、またはBearerトークンでない場合はエラー返却
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                sendErrorResponse(response,
-                        request, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
-                        "認証できませんでした。",
-                        "トークンが見つかりません。");
-                return;
+            final long started = authMetrics.start();
+            final boolean authenticated;
+            try {
+                authenticated = authenticate(request, response);
+            } finally {
+                authMetrics.record(Stage.TOTAL, started);
             }
 
-            // "Bearer " の7文字をスキップしてトークン本体を抽出
-            jwt = authHeader.substring(7);
+            // 次のフィルターへ処理を渡す
+            if (authenticated) {
+                filterChain.doFilter(request, response);
+            }
 
-            // JWTトークンからユーザーIDを取得
-            userId = jwtService.getUserIdFromJwt(jwt);
+        } catch (ServletException | IOException e) {
+            // 想定外のエラー発生時の処理
+            sendErrorResponse(request, response, INTERNAL_ERROR);
+        }
+    }
 
-            // トークンの形式をチェック
-            if (!jwtService.isTokenFormatValid(jwt)) {
-                sendErrorResponse(response,
-                        request, HttpServletResponse.SC_UNAUTHORIZED,
-                        "認証できませんでした。",
-                        "トークンの定義は正しくありません。");
-                return;
-            }
 
-            // 署名検証：失敗なら401
-            if (!jwtService.isSignatureValid(jwt)) {
-                sendErrorResponse(response, request, HttpServletResponse.SC_UNAUTHORIZED,
-                        "認証できませんでした。", "トークンの署名が不正です。");
-                return;
-            }
+    /**
+     * 【メソッド概要】
+     * 1. AuthorizationヘッダーからJWTを取得
+     * 2. トークン形式を確認し、JwtService#verify で1回だけパースして内容を検証
+     * 3. ユーザー情報を読み込み、認証コンテキストを設定
+     * 4. エラー発生時はJSON形式でレスポンスを返す
+     *
+     * @return 認証できた場合 true（false の場合はエラーレスポンスを書き込み済み）
+     */
+    private boolean authenticate(
+        HttpServletRequest request,
+        HttpServletResponse response
+    ) throws IOException {
 
-            // 発行者チェック：不一致なら401
-            if (!jwtService.isIssuerToken(jwt)) {
-                sendErrorResponse(response, request, HttpServletResponse.SC_UNAUTHORIZED,
-                        "認証できませんでした。", "トークンの発行者が不正です。");
-                return;
-            }
+        // Authorizationヘッダーの取得（形式: "Bearer <JWT>"）
+        final String authHeader = request.getHeader("Authorization");
+
+        final String jwt;
+        final String userId;
+
+        // ヘッダーが存在しない、またはBearerトークンでない場合はエラー返却
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            authMetrics.reject(Rejection.MISSING_HEADER);
+            sendErrorResponse(request, response, MISSING_TOKEN);
+            return false;
+        }
+
+        // "Bearer " の7文字をスキップしてトークン本体を抽出
+        jwt = authHeader.substring(7);
+
+        // トークンの形式をチェック（パース前に安価に弾く）
+        final long formatStart = authMetrics.start();
+        final boolean formatValid = jwtService.isTokenFormatValid(jwt);
+        authMetrics.record(Stage.FORMAT, formatStart);
+        if (!formatValid) {
+            authMetrics.reject(Rejection.BAD_FORMAT);
+            sendErrorResponse(request, response, BAD_FORMAT);
+            return false;
+        }
+
+        // 検証済みトークンのキャッシュを確認（ヒットすれば署名検証とブラックリスト確認を省略）
+        final TokenDigest digest = TokenDigest.of(jwt);
+        VerifiedToken verifiedToken = verifiedTokenCache.get(digest);
 
-            // 期限切れチェック：期限切れなら401
-            if (!jwtService.isTokenExpired(jwt)) {
-                sendErrorResponse(response, request, HttpServletResponse.SC_UNAUTHORIZED,
-                        "認証できませんでした。", "トークンの有効期限が切れています。");
-                return;
+        if (verifiedToken == null) {
+            final long stamp = verifiedTokenCache.stamp();
+
+            // 署名・発行者・有効期限を1回のパースでまとめて検証
+            verifiedToken = jwtService.verify(jwt);
+            if (!verifiedToken.isValid()) {
+                authMetrics.reject(verifiedToken.getFailure());
+                sendErrorResponse(request, response, failureTemplate(verifiedToken.getFailure()));
+                return false;
             }
 
             //トークンフロックなら
-            if (jwtService.isBlackListedToken(jwt)) {
-                sendErrorResponse(response, request, HttpServletResponse.SC_UNAUTHORIZED,
-                "認証できませんでした。", "トークンはブロックされました。");
-            return;
+            if (jwtService.isBlackListedToken(digest)) {
+                authMetrics.reject(Rejection.BLACKLISTED);
+                sendErrorResponse(request, response, BLOCKED);
+            return false;
             }
-            
-            // SecurityContext に認証情報が設定されていない場合
-            if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = customUserDetailsService.loadUserByUsername(userId);
-
-                final String emailFromToken = jwtService.getEmailFromJwt(jwt);
-
-                if (!emailFromToken.equals(userDetails.getUsername())) {
-                    sendErrorResponse(response,
-                        request, HttpServletResponse.SC_UNAUTHORIZED,
-                        "認証できませんでした。",
-                        "ユーザートークンが正くありません。");
-                    return;
-                }
-                // 認証トークンの作成（必要に応じて有効化）
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
-                        null,
-                        userDetails.getAuthorities());
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
-
-                logger.info("JWT認証確認成功: " + userDetails.getUsername());
+
+            // 検証済みとしてキャッシュに登録
+            verifiedTokenCache.put(digest, verifiedToken, stamp);
+        }
+
+        // ユーザー単位の一括失効（全端末からのログアウト）の確認
+        final long epochStart = authMetrics.start();
+        final boolean revoked = tokenEpochService.isRevoked(verifiedToken);
+        authMetrics.record(Stage.EPOCH, epochStart);
+        if (revoked) {
+            authMetrics.reject(Rejection.BLACKLISTED);
+            sendErrorResponse(request, response, BLOCKED);
+            return false;
+        }
+
+        // 検証済みクレームからユーザーIDを取得
+        userId = verifiedToken.getUserId();
+        
+        // SecurityContext に認証情報が設定されていない場合
+        if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            final AuthUser userDetails;
+
+            if (jwtConfig.isStateless() && verifiedToken.hasUserClaims()) {
+                // ステートレスモード：検証済みクレームだけでプリンシパルを作成（DB を参照しない）
+                userDetails = fromClaims(verifiedToken);
+            } else {
+                // ID・名前などを保持するプリンシパル（コントローラーで再検索しないようにそのまま設定する）
+                final long loadStart = authMetrics.start();
+                userDetails = customUserDetailsService.loadUserByUsername(userId);
+                authMetrics.record(Stage.USER_LOAD, loadStart);
             }
 
-            // 次のフィルターへ処理を渡す
-            filterChain.doFilter(request, response);
+            final String emailFromToken = verifiedToken.getEmail();
 
-        } catch (ServletException | IOException e) {
-            // 想定外のエラー発生時の処理
-            sendErrorResponse(response,
-                    request, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
-                    "認証できませんでした。",
-                    "インターネットのエラー発生しました。");
+            if (emailFromToken == null || !emailFromToken.equals(userDetails.getUsername())) {
+                authMetrics.reject(Rejection.EMAIL_MISMATCH);
+                sendErrorResponse(request, response, EMAIL_MISMATCH);
+                return false;
+            }
+            // 認証トークンの作成（必要に応じて有効化）
+            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                    userDetails,
+                    null,
+                    userDetails.getAuthorities());
+            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authToken);
+
+            logger.info("JWT認証確認成功: " + userDetails.getUsername());
         }
+
+        return true;
+    }
+
+
+    /**
+     * 【メソッド概要】
+     * ステートレスモードで発行されたトークンのクレームからプリンシパルを作成する。
+     *
+     * @param verifiedToken ユーザー情報が埋め込まれた検証済みトークン
+     * @return プリンシパル
+     */
+    private static AuthUser fromClaims(VerifiedToken verifiedToken) {
+        List<String> authorities = verifiedToken.getAuthorities();
+        return new AuthUser(
+            Long.valueOf(verifiedToken.getUserId()),
+            verifiedToken.getEmail(),
+            verifiedToken.getName(),
+            verifiedToken.getPhone(),
+            verifiedToken.getCatalogueId(),
+            authorities.isEmpty()
+                ? Collections.emptyList()
+                : authorities.stream().map(SimpleGrantedAuthority::new).toList()
+        );
+    }
+
+
+    /**
+     * 【メソッド概要】
+     * 検証失敗理由をクライアント向けのエラーレスポンスに変換する。
+     *
+     * @param failure JwtService#verify が返した失敗理由
+     * @return エラーレスポンスの雛形
+     */
+    private static JsonErrorTemplate failureTemplate(VerifiedToken.Failure failure) {
+        return switch (failure) {
+            case MALFORMED -> BAD_FORMAT;
+            case BAD_SIGNATURE -> BAD_SIGNATURE;
+            case WRONG_ISSUER -> WRONG_ISSUER;
+            case EXPIRED -> EXPIRED;
+            case NOT_YET_VALID -> NOT_YET_VALID;
+        };
+    }
+
+
+    // 「認証できませんでした。」のエラーレスポンスの雛形を作成する
+    private static JsonErrorTemplate authError(int status, String message) {
+        return new JsonErrorTemplate(status, "認証できませんでした。", message);
     }
 
 
     /**
      * 【メソッド概要】
      * エラー発生時にJSON形式でレスポンスを返す共通メソッド。
+     * 固定部分は雛形として作成済みのため、timestamp と path だけを差し込んで書き込む。
      *
-     * @param response HTTPレスポンス
      * @param request HTTPリクエスト
-     * @param statusCode ステータスコード
-     * @param error エラー概要
-     * @param message 詳細メッセージ
+     * @param response HTTPレスポンス
+     * @param template エラーレスポンスの雛形
      */
     private void sendErrorResponse(
-        HttpServletResponse response,
         HttpServletRequest request,
-        int statusCode,
-        String error,
-        String message
+        HttpServletResponse response,
+        JsonErrorTemplate template
     ) throws IOException {
 
-        // ステータスコード、エンコーディング、ContentTypeの設定
-        response.setStatus(statusCode);
-        response.setCharacterEncoding("UTF-8");
-        response.setContentType(MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8");
-
-        // エラー情報をマップに格納
-        Map<String, Object> errorResponse = new HashMap<>();
-        errorResponse.put("timestamp", System.currentTimeMillis());
-        errorResponse.put("status", statusCode);
-        errorResponse.put("error", error);
-        errorResponse.put("message", message);
-        errorResponse.put("path", request.getRequestURI());
-
-        // MapをJSONに変換して出力
-        String jsonResponse = objectMapper.writeValueAsString(errorResponse);
-        response.getWriter().write(jsonResponse);
+        final long start = authMetrics.start();
+        template.write(request, response);
+        authMetrics.record(Stage.RESPONSE, start);
     }
 }
@@ -0,0 +1,78 @@
+package dvn.local.dvnjs.helpers;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.annotation.Nonnull;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import dvn.local.dvnjs.services.RateLimiter;
+import dvn.local.dvnjs.services.RateLimiter.Rule;
+
+/**
+ * 🔐【クラス概要】
+ * 認証 API（/api/v1/auth/**）への送信元 IP アドレスごとのリクエスト数を制限するフィルター。
+ *
+ * リクエスト本文の読み込みや JWT の検証より前に実行し、上限を超えたリクエストは
+ * 雛形から作成した 429 レスポンス（Retry-After 付き）で即座に返す。
+ * メールアドレスごとの制限は本文が必要なため AuthController で行う。
+ * トークンの一括検証（/api/v1/auth/introspect）は他のサービスから高頻度に呼ばれるため、
+ * 利用者向けの API とは別の上限（INTROSPECT_IP）を使う。
+ *
+ * Bean として登録すると Servlet フィルターとしても自動登録されるため、
+ * SecurityConfig でインスタンスを作成して JwtAuthFilter の前に追加する。
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String AUTH_PATH = "/api/v1/auth/";
+
+    private static final String LOGIN_PATH = "/api/v1/auth/login";
+
+    private static final String INTROSPECT_PATH = "/api/v1/auth/introspect";
+
+    // 429 レスポンスの雛形
+    private static final JsonErrorTemplate TOO_MANY_REQUESTS = new JsonErrorTemplate(
+            429, "リクエストが多すぎます。", "しばらくしてから再試行してください。");
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitFilter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@Nonnull HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(AUTH_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(
+        @Nonnull HttpServletRequest request,
+        @Nonnull HttpServletResponse response,
+        @Nonnull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        // プロキシ経由の場合は server.forward-headers-strategy の設定により実際の送信元になる
+        long waitNanos = rateLimiter.tryAcquire(rule(request.getRequestURI()), request.getRemoteAddr());
+        if (waitNanos > 0) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(RateLimiter.retryAfterSeconds(waitNanos)));
+            TOO_MANY_REQUESTS.write(request, response);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    // パスに対応する制限の種類を返す
+    private static Rule rule(String uri) {
+        if (uri.startsWith(LOGIN_PATH)) {
+            return Rule.LOGIN_IP;
+        }
+        return uri.startsWith(INTROSPECT_PATH) ? Rule.INTROSPECT_IP : Rule.AUTH_IP;
+    }
+}
@@ -0,0 +1,96 @@
+package dvn.local.dvnjs.helpers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * 【クラス概要】
+ * JWT文字列の SHA-256 ダイジェスト（32バイト固定長）を表す値オブジェクト。
+ *
+ * トークン全文（300バイト以上）の代わりにキャッシュやブラックリストのキーとして使用する。
+ * equals / hashCode はダイジェストの内容で比較する。
+ */
+public final class TokenDigest {
+
+    // ダイジェストのバイト長（SHA-256）
+    public static final int LENGTH = 32;
+
+    // MessageDigest の雛形（getInstance のプロバイダ検索を毎回行わないよう clone して使う）
+    private static final MessageDigest PROTOTYPE;
+
+    static {
+        try {
+            PROTOTYPE = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 が利用できません。", e);
+        }
+    }
+
+    // ダイジェスト本体
+    private final byte[] bytes;
+
+    // ハッシュ値（ダイジェストの先頭4バイトをそのまま使う）
+    private final int hash;
+
+    private TokenDigest(byte[] bytes) {
+        this.bytes = bytes;
+        this.hash = (bytes[0] & 0xff) << 24 | (bytes[1] & 0xff) << 16 | (bytes[2] & 0xff) << 8 | (bytes[3] & 0xff);
+    }
+
+    /**
+     * トークン文字列からダイジェストを計算する。
+     * @param token JWT文字列
+     * @return ダイジェスト
+     */
+    public static TokenDigest of(String token) {
+        return new TokenDigest(sha256(token));
+    }
+
+    /**
+     * 既に計算済みのダイジェスト（DBから読み込んだ値など）をラップする。
+     * @param bytes 32バイトのダイジェスト
+     * @return ダイジェスト
+     */
+    public static TokenDigest wrap(byte[] bytes) {
+        if (bytes == null || bytes.length != LENGTH) {
+            throw new IllegalArgumentException("ダイジェストの長さが不正です。");
+        }
+        return new TokenDigest(bytes.clone());
+    }
+
+    /**
+     * トークン文字列の SHA-256 を計算する。
+     * @param token JWT文字列
+     * @return 32バイトのダイジェスト
+     */
+    public static byte[] sha256(String token) {
+        try {
+            MessageDigest md = (MessageDigest) PROTOTYPE.clone();
+            return md.digest(token.getBytes(StandardCharsets.US_ASCII));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("MessageDigest を複製できません。", e);
+        }
+    }
+
+    /**
+     * ダイジェストのバイト列を返す（呼び出し側で変更しないこと）。
+     */
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof TokenDigest other && Arrays.equals(bytes, other.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,163 @@
+package dvn.local.dvnjs.helpers;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * 🔍【クラス概要】
+ * 仮想スレッドモード（spring.threads.virtual.enabled=true）の診断情報を公開するクラス。
+ *
+ * 主な役割：
+ *  - JFR の jdk.VirtualThreadPinned イベントを購読し、キャリアスレッドに固定（ピン留め）された回数と時間を記録する
+ *    （しきい値を超えたものは、原因となったフレームをログに出力する）
+ *  - JMX の jdk.management:type=VirtualThreadScheduler から、キャリアスレッド数・実行中／待機中の仮想スレッド数・
+ *    キャリアスレッドの使用率を公開する
+ *
+ * 仮想スレッドモードが有効な場合のみ登録される。
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadDiagnostics {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadDiagnostics.class);
+
+    // 仮想スレッドスケジューラーの MBean（JDK 24 以降）
+    private static final String SCHEDULER_MBEAN = "jdk.management:type=VirtualThreadScheduler";
+
+    private final MeterRegistry meterRegistry;
+
+    // この時間以上のピン留めを記録する
+    private final Duration pinnedThreshold;
+
+    // ピン留めの回数
+    private final Counter pinnedEvents;
+
+    // ピン留めされていた時間
+    private final Timer pinnedDuration;
+
+    // JFR イベントの購読
+    private RecordingStream recordingStream;
+
+    public VirtualThreadDiagnostics(
+        MeterRegistry meterRegistry,
+        @Value("${threads.diagnostics.pinned-threshold:20ms}") Duration pinnedThreshold
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.pinnedThreshold = pinnedThreshold;
+
+        this.pinnedEvents = Counter.builder("jvm.threads.virtual.pinned")
+                .description("仮想スレッドがキャリアスレッドに固定された回数")
+                .register(meterRegistry);
+        this.pinnedDuration = Timer.builder("jvm.threads.virtual.pinned.duration")
+                .description("仮想スレッドがキャリアスレッドに固定されていた時間")
+                .register(meterRegistry);
+    }
+
+    /**
+     * JFR の購読を開始し、スケジューラーのゲージを登録する。
+     */
+    @PostConstruct
+    public void start() {
+        try {
+            recordingStream = new RecordingStream();
+            recordingStream.enable("jdk.VirtualThreadPinned")
+                    .withThreshold(pinnedThreshold)
+                    .withStackTrace();
+            recordingStream.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+            recordingStream.startAsync();
+        } catch (RuntimeException e) {
+            logger.warn("仮想スレッドのピン留め監視を開始できませんでした: {}", e.getMessage());
+        }
+
+        registerSchedulerGauges();
+    }
+
+    /**
+     * 停止時に JFR の購読を終了する。
+     */
+    @PreDestroy
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    // ピン留めイベントを記録し、原因のフレームをログに出力する
+    private void onPinned(RecordedEvent event) {
+        pinnedEvents.increment();
+        pinnedDuration.record(event.getDuration().toNanos(), TimeUnit.NANOSECONDS);
+
+        if (event.getStackTrace() != null && !event.getStackTrace().getFrames().isEmpty()) {
+            RecordedFrame top = event.getStackTrace().getFrames().get(0);
+            logger.warn("仮想スレッドが {}ms キャリアスレッドに固定されました: {}.{}",
+                    event.getDuration().toMillis(),
+                    top.getMethod().getType().getName(),
+                    top.getMethod().getName());
+        }
+    }
+
+    // VirtualThreadScheduler MBean の属性をゲージとして公開する（MBean がない JDK では何もしない）
+    private void registerSchedulerGauges() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name;
+        try {
+            name = new ObjectName(SCHEDULER_MBEAN);
+            if (!server.isRegistered(name)) {
+                logger.info("{} が見つからないため、キャリアスレッドの使用率は公開しません。", SCHEDULER_MBEAN);
+                return;
+            }
+        } catch (Exception e) {
+            return;
+        }
+
+        Gauge.builder("jvm.threads.virtual.scheduler.parallelism", () -> attribute(server, name, "Parallelism"))
+                .description("キャリアスレッドの目標数")
+                .register(meterRegistry);
+        Gauge.builder("jvm.threads.virtual.scheduler.pool_size", () -> attribute(server, name, "PoolSize"))
+                .description("キャリアスレッドの現在数")
+                .register(meterRegistry);
+        Gauge.builder("jvm.threads.virtual.mounted", () -> attribute(server, name, "MountedVirtualThreadCount"))
+                .description("キャリアスレッド上で実行中の仮想スレッド数")
+                .register(meterRegistry);
+        Gauge.builder("jvm.threads.virtual.queued", () -> attribute(server, name, "QueuedVirtualThreadCount"))
+                .description("実行待ちの仮想スレッド数")
+                .register(meterRegistry);
+        Gauge.builder("jvm.threads.virtual.carrier_utilization", () -> {
+                    double parallelism = attribute(server, name, "Parallelism");
+                    return parallelism > 0 ? attribute(server, name, "MountedVirtualThreadCount") / parallelism : Double.NaN;
+                })
+                .description("キャリアスレッドの使用率（実行中の仮想スレッド数 / キャリアスレッドの目標数）")
+                .register(meterRegistry);
+    }
+
+    // MBean の数値属性を読み出す
+    private static double attribute(MBeanServer server, ObjectName name, String attribute) {
+        try {
+            return ((Number) server.getAttribute(name, attribute)).doubleValue();
+        } catch (Exception e) {
+            return Double.NaN;
+        }
+    }
+}
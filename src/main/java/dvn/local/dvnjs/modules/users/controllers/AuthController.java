@@ -1,5 +1,8 @@
 package dvn.local.dvnjs.modules.users.controllers;
 
+import java.io.IOException;
+import java.util.Locale;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -12,13 +15,21 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 
 import dvn.local.dvnjs.modules.users.requests.BlacklistTokenRequest;
+import dvn.local.dvnjs.modules.users.requests.IntrospectRequest;
 import dvn.local.dvnjs.modules.users.requests.LoginRequest;
+import dvn.local.dvnjs.modules.users.requests.RefreshTokenRequest;
+import dvn.local.dvnjs.modules.users.resources.IntrospectionResource;
 import dvn.local.dvnjs.modules.users.resources.LoginResource;
 import dvn.local.dvnjs.modules.users.services.impl.BlackListService;
+import dvn.local.dvnjs.modules.users.services.impl.BulkRevocationService;
+import dvn.local.dvnjs.modules.users.services.impl.TokenIntrospectionService;
 import dvn.local.dvnjs.modules.users.services.interfaces.UserServiceInterface;
 import dvn.local.dvnjs.resources.ErrorResource;
 import dvn.local.dvnjs.resources.MessageResource;
+import dvn.local.dvnjs.services.JwtService;
+import dvn.local.dvnjs.services.RateLimiter;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 @Validated
@@ -34,6 +45,22 @@ public class AuthController {
     @Autowired
     private BlackListService blackListService;
 
+    // JWTトークンの解析を行うサービス
+    @Autowired
+    private JwtService jwtService;
+
+    // NDJSON によるトークンの一括失効
+    @Autowired
+    private BulkRevocationService bulkRevocationService;
+
+    // トークンの一括検証
+    @Autowired
+    private TokenIntrospectionService tokenIntrospectionService;
+
+    // メールアドレスごとのレート制限
+    @Autowired
+    private RateLimiter rateLimiter;
+
     // コンストラクタインジェクション（Springが自動でUserServiceを注入）
     public AuthController(UserServiceInterface userService) {
         this.userService = userService;
@@ -46,10 +73,14 @@ public class AuthController {
      * @return 
      *   認証成功 → HTTP 200 OK + LoginResource（トークンとユーザー情報）  
      *   認証失敗 → HTTP 422 Unprocessable Entity + ErrorResource（エラーメッセージ）  
+     *   試行回数超過 → HTTP 429 Too Many Requests（GlobalExceptionHandler で変換）
      *   その他エラー → HTTP 500 Internal Server Error
      */
     @PostMapping("login") // POSTメソッドで /api/v1/auth/login にアクセスされたときに実行される
     public ResponseEntity<?> login(@Valid @RequestBody LoginRequest request) {
+        // --- パスワード照合（BCrypt）の前に、メールアドレスごとの試行回数を制限 ---
+        rateLimiter.acquire(RateLimiter.Rule.LOGIN_EMAIL, request.getEmail().toLowerCase(Locale.ROOT));
+
         // --- サービス層で認証処理を実行 ---
         Object result = userService.authenticate(request);
 
@@ -72,6 +103,42 @@ public class AuthController {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("認証処理中にエラーが発生しました。");
     }
 
+    /**
+     * リフレッシュトークンでアクセストークンを再発行するエンドポイント
+     * リフレッシュトークンは1回だけ使用でき、応答に含まれる新しいリフレッシュトークンに置き換える。
+     *
+     * @param request クライアントから送信されたリフレッシュトークン
+     * @return
+     *   成功 → HTTP 200 OK + LoginResource（新しいトークンとユーザー情報）
+     *   失敗 → HTTP 422 Unprocessable Entity + ErrorResource（期限切れ・無効・使用済み）
+     */
+    @PostMapping("refresh") // POSTメソッドで /api/v1/auth/refresh にアクセスされたときに実行される
+    public ResponseEntity<?> refresh(@Valid @RequestBody RefreshTokenRequest request) {
+        Object result = userService.refresh(request);
+
+        if (result instanceof LoginResource loginResource) {
+            return ResponseEntity.ok(loginResource);
+        }
+
+        if (result instanceof ErrorResource errorResource) {
+            return ResponseEntity.unprocessableEntity().body(errorResource);
+        }
+
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("トークンの再発行中にエラーが発生しました。");
+    }
+
+    /**
+     * 複数のトークンをまとめて検証するエンドポイント（ゲートウェイなど向け）
+     * 呼び出し元自身も Authorization ヘッダーのトークンで認証されている必要がある。
+     *
+     * @param request 検証するトークンの一覧（最大500件）
+     * @return HTTP 200 OK + IntrospectionResource（トークンと同じ順番の検証結果）
+     */
+    @PostMapping("introspect") // POSTメソッドで /api/v1/auth/introspect にアクセスされたときに実行される
+    public ResponseEntity<?> introspect(@Valid @RequestBody IntrospectRequest request) {
+        return ResponseEntity.ok(new IntrospectionResource(tokenIntrospectionService.introspect(request.getTokens())));
+    }
+
     @PostMapping("blacklisted_tokens") 
     // POSTメソッドで /api/v1/auth/blacklisted_tokens にアクセスされたときに実行される。
     // ブラックリストにトークンを追加するためのAPIエンドポイント。
@@ -90,6 +157,21 @@ public class AuthController {
         }
     }
 
+    @PostMapping(value = "blacklisted_tokens/bulk", consumes = "application/x-ndjson")
+    // POSTメソッドで /api/v1/auth/blacklisted_tokens/bulk にアクセスされたときに実行される。
+    // 本文の NDJSON（1行ごとに {"token":"..."} または {"userId":123}）を読みながらまとめて失効させ、件数の集計を返す。
+    public ResponseEntity<?> addTokensToBlacklist(HttpServletRequest request) {
+        try {
+            // 本文を全件読み込まずに、ストリームのまま渡す
+            return ResponseEntity.ok(bulkRevocationService.revoke(request.getInputStream()));
+
+        } catch (IOException e) {
+            // 本文の読み込みに失敗した場合、サーバーエラー(500)を返す
+            return ResponseEntity.internalServerError().body(
+                    new MessageResource("ネットワークエラーが発生しました。"));
+        }
+    }
+
     @GetMapping("logout")
     // GETメソッドで /api/v1/auth/logout にアクセスされたときに実行される。
     // 認証トークンをブラックリストに登録し、ログアウト処理を行うAPIエンドポイント。
@@ -115,4 +197,26 @@ public class AuthController {
         }
     }
 
+    @PostMapping("logout_all")
+    // POSTメソッドで /api/v1/auth/logout_all にアクセスされたときに実行される。
+    // 認証トークンのユーザーがこれまでに発行したすべてのトークンを無効化する（全端末からのログアウト）。
+    public ResponseEntity<?> logoutAll(@RequestHeader("Authorization") String bearerToken) {
+        try {
+            // Authorizationヘッダーから "Bearer " の部分を除いたトークンを取得
+            String token = bearerToken.substring(7);
+
+            // トークンからユーザーIDを取得し、そのユーザーのトークンを一括で無効化
+            Long userId = Long.valueOf(jwtService.getUserIdFromJwt(token));
+            Object message = blackListService.revokeAll(userId);
+
+            // 成功時にHTTPステータス200(OK)を返す
+            return ResponseEntity.ok(message);
+
+        } catch (Exception e) {
+            // 例外が発生した場合、サーバーエラー(500)を返す
+            return ResponseEntity.internalServerError()
+                    .body(new MessageResource("ネットワークエラーが発生しました。"));
+        }
+    }
+
 }
@@ -27,10 +27,10 @@ public class BlacklistedToken {
      @GeneratedValue(strategy = GenerationType.IDENTITY)
      private Long id;
  
-     // トークン文字列
+     // トークン文字列の SHA-256 ダイジェスト（32バイト）
      // nullを許可せず、同じ値を登録できないよう unique=true にする
-     @Column(nullable = false, unique = true)
-     private String token;
+     @Column(name = "token_hash", nullable = false, unique = true, length = 32, columnDefinition = "BINARY(32)")
+     private byte[] tokenHash;
  
      // トークンの有効期限
      // 期限を過ぎたトークンは無効とみなす
@@ -0,0 +1,62 @@
+package dvn.local.dvnjs.modules.users.entities;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity // エンティティクラス（データベースのテーブルと対応）
+@Table(name = "refresh_tokens", indexes = {
+    @Index(name = "idx_refresh_tokens_family_id", columnList = "family_id"),
+    @Index(name = "idx_refresh_tokens_user_id", columnList = "user_id"),
+    @Index(name = "idx_refresh_tokens_expiry_date", columnList = "expiry_date")
+})
+public class RefreshToken {
+    // 主キー（自動採番）
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // トークン文字列の SHA-256 ダイジェスト（32バイト）
+    @Column(name = "token_hash", nullable = false, unique = true, length = 32, columnDefinition = "BINARY(32)")
+    private byte[] tokenHash;
+
+    // 対象ユーザーID
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // ファミリーID（ログイン1回ごとに発行し、ローテーションしても引き継ぐ）
+    @Column(name = "family_id", nullable = false, length = 36)
+    private String familyId;
+
+    // トークンの有効期限
+    @Column(name = "expiry_date", nullable = false)
+    private LocalDateTime expiryDate;
+
+    // 使用日時（未使用の場合は null）
+    @Column(name = "used_at")
+    private LocalDateTime usedAt;
+
+    // 無効化日時（有効な場合は null）
+    @Column(name = "revoked_at")
+    private LocalDateTime revokedAt;
+
+    // レコード作成日時（登録時のみ設定、更新時には変更されない）
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
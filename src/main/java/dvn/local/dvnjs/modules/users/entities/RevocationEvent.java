@@ -0,0 +1,62 @@
+package dvn.local.dvnjs.modules.users.entities;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity // エンティティクラス（データベースのテーブルと対応）
+@Table(name="revocation_events")
+public class RevocationEvent {
+
+    /**
+     * イベントの種別
+     */
+    public enum Type {
+        TOKEN_REVOKED,       // トークンがブラックリストに登録された
+        USER_TOKENS_REVOKED, // ユーザーの全トークンが一括失効された
+        USER_CHANGED         // ユーザー情報が変更された
+    }
+
+    // 主キー（自動採番、各インスタンスの取り込み位置として使用）
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // イベントの種別
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 20)
+    private Type eventType;
+
+    // 失効したトークンの SHA-256 ダイジェスト（TOKEN_REVOKED の場合のみ）
+    @Column(name = "token_hash", length = 32, columnDefinition = "BINARY(32)")
+    private byte[] tokenHash;
+
+    // 対象ユーザーID
+    @Column(name = "user_id")
+    private Long userId;
+
+    // 発行元インスタンスのID（自分が発行したイベントは取り込まない）
+    @Column(nullable = false, length = 36)
+    private String origin;
+
+    // 登録日時（伝播遅延の計測に使用）
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
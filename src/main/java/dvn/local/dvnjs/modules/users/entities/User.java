@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -19,6 +20,7 @@ import lombok.AllArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity // エンティティクラス（データベースのテーブルと対応）
+@EntityListeners(UserChangeListener.class) // 変更時にキャッシュ済みのユーザー情報を無効化する
 @Table(name="users")
 public class User {
     
@@ -48,6 +50,10 @@ public class User {
     // アドレス
     private String address;
 
+    // この日時以前に発行されたトークンはすべて無効（全端末からのログアウト用）
+    @Column(name="tokens_revoked_at")
+    private LocalDateTime tokensRevokedAt;
+
     // 作成日時（新規登録時のみ設定）
     @Column(name="created_at", updatable=false)
     private LocalDateTime createdAt;
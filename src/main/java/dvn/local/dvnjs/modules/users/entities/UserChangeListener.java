@@ -0,0 +1,58 @@
+package dvn.local.dvnjs.modules.users.entities;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import dvn.local.dvnjs.modules.users.services.impl.CustomUserDetailsService;
+import dvn.local.dvnjs.modules.users.services.impl.RevocationEventService;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * User エンティティの変更を検知し、キャッシュ済みのユーザー情報を無効化するリスナー。
+ *
+ * トランザクションのコミット後に、このインスタンスのキャッシュから削除し、
+ * 他のインスタンスへも変更イベントを伝播させる。
+ * （エンティティリスナーは EntityManagerFactory の初期化中に生成されるため、依存は遅延取得する）
+ */
+@Component
+public class UserChangeListener {
+
+    private final ObjectProvider<CustomUserDetailsService> customUserDetailsService;
+
+    private final ObjectProvider<RevocationEventService> revocationEventService;
+
+    public UserChangeListener(
+        ObjectProvider<CustomUserDetailsService> customUserDetailsService,
+        ObjectProvider<RevocationEventService> revocationEventService
+    ) {
+        this.customUserDetailsService = customUserDetailsService;
+        this.revocationEventService = revocationEventService;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void onChanged(User user) {
+        final Long userId = user.getId();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    notifyChanged(userId);
+                }
+            });
+        } else {
+            notifyChanged(userId);
+        }
+    }
+
+    // ローカルのキャッシュを削除し、他のインスタンスへ伝播させる
+    private void notifyChanged(Long userId) {
+        customUserDetailsService.getObject().evict(userId);
+        revocationEventService.getObject().publishUserChanged(userId);
+    }
+}
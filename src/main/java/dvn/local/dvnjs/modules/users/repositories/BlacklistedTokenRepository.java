@@ -1,7 +1,20 @@
 package dvn.local.dvnjs.modules.users.repositories;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
 
 import dvn.local.dvnjs.modules.users.entities.BlacklistedToken;
 
@@ -17,8 +30,72 @@ public interface BlacklistedTokenRepository extends JpaRepository<BlacklistedTok
     /**
      * 指定されたトークンがデータベースに存在するかを確認するメソッド。
      * 
-     * @param token チェック対象のJWTトークン文字列
+     * @param tokenHash チェック対象のJWTトークンの SHA-256 ダイジェスト
      * @return 存在する場合は true、存在しない場合は false
      */
-    boolean existsByToken(String token);
+    boolean existsByTokenHash(byte[] tokenHash);
+
+    /**
+     * 指定されたダイジェストのうち、データベースに登録されているものを1回のクエリで取得するメソッド。
+     * 複数トークンの一括検証で、existsByTokenHash を件数分呼び出さないようにするために使用する。
+     *
+     * @param tokenHashes チェック対象のJWTトークンの SHA-256 ダイジェスト
+     * @return 登録済みのダイジェスト
+     */
+    @Query("SELECT b.tokenHash FROM BlacklistedToken b WHERE b.tokenHash IN :tokenHashes")
+    List<byte[]> findRegisteredTokenHashes(@Param("tokenHashes") Collection<byte[]> tokenHashes);
+
+    /**
+     * トークンを1文で冪等に登録するメソッド。
+     * 既に同じダイジェストが登録されている場合は何もしない（同時ログアウトでも一意制約違反にならない）。
+     *
+     * @param tokenHash トークンの SHA-256 ダイジェスト
+     * @param userId ユーザーID
+     * @param expiryDate トークンの有効期限
+     * @return 登録した場合は 1、既に登録済みの場合は 0
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO blacklisted_tokens (token_hash, user_id, expiry_date) "
+            + "VALUES (:tokenHash, :userId, :expiryDate)", nativeQuery = true)
+    int insertIfAbsent(
+        @Param("tokenHash") byte[] tokenHash,
+        @Param("userId") Long userId,
+        @Param("expiryDate") LocalDateTime expiryDate);
+
+    /**
+     * 有効期限内のブラックリスト登録トークンのダイジェストをストリームで取得するメソッド。
+     * 全件をメモリに載せずに読み込むため、トランザクション内で使用し、使用後は close すること。
+     *
+     * @param now 現在日時（これより後に期限が切れるものを対象とする）
+     * @return ダイジェストのストリーム
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT b.tokenHash FROM BlacklistedToken b WHERE b.expiryDate > :now")
+    Stream<byte[]> streamActiveTokenHashes(@Param("now") LocalDateTime now);
+
+    /**
+     * 期限切れのトークンを古い順に指定件数だけ削除するメソッド。
+     * 1回の削除件数を制限し、ロック時間を短く保つ（呼び出しごとに1トランザクション）。
+     * DELETE ... ORDER BY ... LIMIT は MySQL 独自の構文のため、対象の id を派生テーブルで絞り込んでから削除する
+     * （MySQL は IN の副問い合わせに直接 LIMIT を書けないため、もう1段の SELECT で包む）。
+     *
+     * @param now 現在日時（これより前に期限が切れたものを対象とする）
+     * @param limit 1回に削除する最大件数
+     * @return 削除した件数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM blacklisted_tokens WHERE id IN ("
+            + "SELECT id FROM (SELECT id FROM blacklisted_tokens WHERE expiry_date < :now "
+            + "ORDER BY expiry_date LIMIT :limit) expired)", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * 最も古い有効期限を取得するメソッド（削除の遅れの計測に使用）。
+     *
+     * @return 最も古い有効期限（行が存在しない場合は null）
+     */
+    @Query("SELECT MIN(b.expiryDate) FROM BlacklistedToken b")
+    LocalDateTime findOldestExpiryDate();
 }
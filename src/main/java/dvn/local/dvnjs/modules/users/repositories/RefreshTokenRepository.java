@@ -0,0 +1,78 @@
+package dvn.local.dvnjs.modules.users.repositories;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import dvn.local.dvnjs.modules.users.entities.RefreshToken;
+
+/**
+ * RefreshToken エンティティに対するデータベース操作を行うリポジトリインターフェース。
+ */
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    /**
+     * ダイジェストからリフレッシュトークンを取得するメソッド。
+     *
+     * @param tokenHash トークンの SHA-256 ダイジェスト
+     * @return リフレッシュトークン（存在しない場合は空）
+     */
+    Optional<RefreshToken> findByTokenHash(byte[] tokenHash);
+
+    /**
+     * 未使用かつ有効なトークンを使用済みにするメソッド。
+     * 同じトークンが同時に使われた場合でも、1件だけが成功する。
+     *
+     * @param id トークンID
+     * @param usedAt 使用日時
+     * @return 使用済みにした場合は 1、既に使用済みまたは無効の場合は 0
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken r SET r.usedAt = :usedAt WHERE r.id = :id AND r.usedAt IS NULL AND r.revokedAt IS NULL")
+    int markUsed(@Param("id") Long id, @Param("usedAt") LocalDateTime usedAt);
+
+    /**
+     * ファミリーのトークンをすべて無効化するメソッド（再使用を検知した場合）。
+     *
+     * @param familyId ファミリーID
+     * @param revokedAt 無効化日時
+     * @return 無効化した件数
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken r SET r.revokedAt = :revokedAt WHERE r.familyId = :familyId AND r.revokedAt IS NULL")
+    int revokeFamily(@Param("familyId") String familyId, @Param("revokedAt") LocalDateTime revokedAt);
+
+    /**
+     * ユーザーのトークンをすべて無効化するメソッド（全端末からのログアウト）。
+     *
+     * @param userId ユーザーID
+     * @param revokedAt 無効化日時
+     * @return 無効化した件数
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken r SET r.revokedAt = :revokedAt WHERE r.userId = :userId AND r.revokedAt IS NULL")
+    int revokeAllByUserId(@Param("userId") Long userId, @Param("revokedAt") LocalDateTime revokedAt);
+
+    /**
+     * 期限切れのトークンを古い順に指定件数だけ削除するメソッド。
+     *
+     * @param now 現在日時（これより前に期限が切れたものを対象とする）
+     * @param limit 1回に削除する最大件数
+     * @return 削除した件数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM refresh_tokens WHERE expiry_date < :now "
+            + "ORDER BY expiry_date LIMIT :limit", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
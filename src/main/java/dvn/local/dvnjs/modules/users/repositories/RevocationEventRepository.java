@@ -0,0 +1,54 @@
+package dvn.local.dvnjs.modules.users.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import dvn.local.dvnjs.modules.users.entities.RevocationEvent;
+
+/**
+ * RevocationEvent エンティティに対するデータベース操作を行うリポジトリインターフェース。
+ * 
+ * 各インスタンスは id 順にイベントを取り込み、ローカルのキャッシュを無効化する。
+ */
+@Repository
+public interface RevocationEventRepository extends JpaRepository<RevocationEvent, Long> {
+
+    /**
+     * 指定したIDより新しいイベントを id 順に取得するメソッド。
+     *
+     * @param id 取り込み済みの位置
+     * @param pageable 取得件数の上限
+     * @return イベントのリスト
+     */
+    @Query("SELECT e FROM RevocationEvent e WHERE e.id > :id ORDER BY e.id")
+    List<RevocationEvent> findNewerThan(@Param("id") Long id, Pageable pageable);
+
+    /**
+     * 最新のイベントIDを取得するメソッド（起動時の取り込み開始位置）。
+     *
+     * @return 最新のイベントID（イベントが存在しない場合は空）
+     */
+    @Query("SELECT MAX(e.id) FROM RevocationEvent e")
+    Optional<Long> findMaxId();
+
+    /**
+     * 保持期間を過ぎたイベントを指定件数だけ削除するメソッド。
+     *
+     * @param before これより前に登録されたイベントを対象とする
+     * @param limit 1回に削除する最大件数
+     * @return 削除した件数
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM revocation_events WHERE created_at < :before LIMIT :limit", nativeQuery = true)
+    int deleteOlderThan(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
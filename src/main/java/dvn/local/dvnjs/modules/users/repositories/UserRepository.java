@@ -1,9 +1,16 @@
 package dvn.local.dvnjs.modules.users.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import dvn.local.dvnjs.modules.users.entities.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -25,4 +32,55 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return 該当するユーザーを Optional で返す（存在しない場合は空）
      */
     Optional<User> findByEmail(String email);
+
+    /**
+     * トークンの一括失効日時が設定されているユーザーのIDと日時を取得するメソッド。
+     *
+     * @return [ユーザーID, 一括失効日時] の配列のリスト
+     */
+    @Query("SELECT u.id, u.tokensRevokedAt FROM User u WHERE u.tokensRevokedAt IS NOT NULL")
+    List<Object[]> findAllTokensRevokedAt();
+
+    /**
+     * 指定ユーザーのトークン一括失効日時を取得するメソッド。
+     *
+     * @param id ユーザーID
+     * @return 一括失効日時（未設定の場合は空）
+     */
+    @Query("SELECT u.tokensRevokedAt FROM User u WHERE u.id = :id")
+    Optional<LocalDateTime> findTokensRevokedAtById(@Param("id") Long id);
+
+    /**
+     * 指定ユーザーのトークン一括失効日時を更新するメソッド。
+     *
+     * 一括更新のため UserChangeListener は呼ばれない（ユーザー情報キャッシュはこの列を保持しないため無効化は不要。
+     * 他のインスタンスへは TokenEpochService の呼び出し側が USER_TOKENS_REVOKED イベントで伝播させる）。
+     *
+     * @param id ユーザーID
+     * @param revokedAt この日時以前に発行されたトークンを無効とする
+     * @return 更新した件数
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.tokensRevokedAt = :revokedAt WHERE u.id = :id")
+    int updateTokensRevokedAt(@Param("id") Long id, @Param("revokedAt") LocalDateTime revokedAt);
+
+    /**
+     * パスワードのハッシュを置き換えるメソッド（コスト変更に伴う再ハッシュ用）。
+     * 照合に使ったハッシュのままの場合のみ更新し、その間のパスワード変更を上書きしない。
+     *
+     * 一括更新のため UserChangeListener は呼ばれない（ユーザー情報キャッシュはパスワードを保持しないため無効化は不要）。
+     *
+     * @param id ユーザーID
+     * @param currentPassword 照合に使ったハッシュ
+     * @param newPassword 新しいハッシュ
+     * @return 更新した件数
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :newPassword WHERE u.id = :id AND u.password = :currentPassword")
+    int replacePassword(
+        @Param("id") Long id,
+        @Param("currentPassword") String currentPassword,
+        @Param("newPassword") String newPassword);
 }
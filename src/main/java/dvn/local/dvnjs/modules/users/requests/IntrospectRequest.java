@@ -0,0 +1,36 @@
+package dvn.local.dvnjs.modules.users.requests;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+/**
+ * トークン一括検証（イントロスペクション）用のリクエストクラス。
+ *
+ * ゲートウェイなどから、検証したいトークンをまとめて受け取る。
+ * 1回に受け付ける件数は最大 500 件（超える場合は分割して送ること）。
+ */
+public class IntrospectRequest {
+
+    // 検証するトークンの一覧
+    @NotEmpty(message = "トークンは空です。入力してください。")
+    @Size(max = 500, message = "一度に検証できるトークンは500件までです。")
+    private List<String> tokens;
+
+    /**
+     * トークンの一覧を取得する。
+     * @return トークンの一覧
+     */
+    public List<String> getTokens() {
+        return tokens;
+    }
+
+    /**
+     * トークンの一覧を設定する。
+     * @param tokens 検証するトークンの一覧
+     */
+    public void setTokens(List<String> tokens) {
+        this.tokens = tokens;
+    }
+}
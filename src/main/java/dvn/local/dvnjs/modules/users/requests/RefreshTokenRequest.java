@@ -0,0 +1,33 @@
+package dvn.local.dvnjs.modules.users.requests;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+/**
+ * アクセストークン再発行用のリクエストクラス。
+ *
+ * ログイン時（または前回の再発行時）に受け取ったリフレッシュトークンを受け取る。
+ */
+public class RefreshTokenRequest {
+
+    // リフレッシュトークンが空または null の場合はエラーメッセージを表示する
+    @NotBlank(message = "リフレッシュトークンは空です。入力してください。")
+    @Size(max = 100, message = "リフレッシュトークンの形式が正しくありません。")
+    private String refreshToken;
+
+    /**
+     * リフレッシュトークンを取得する。
+     * @return リフレッシュトークン
+     */
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    /**
+     * リフレッシュトークンを設定する。
+     * @param refreshToken リフレッシュトークン
+     */
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+}
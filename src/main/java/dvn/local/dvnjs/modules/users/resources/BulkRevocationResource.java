@@ -0,0 +1,74 @@
+package dvn.local.dvnjs.modules.users.resources;
+
+// 一括失効の結果（件数の集計）を表すリソースクラス
+public class BulkRevocationResource {
+
+    // 読み込んだ行数（空行を除く）
+    private final long lines;
+
+    // 新たにブラックリストへ登録したトークンの件数
+    private final long revoked;
+
+    // 既に登録済みだったトークンの件数
+    private final long alreadyRevoked;
+
+    // 有効期限切れのため登録を省略したトークンの件数
+    private final long expired;
+
+    // 形式・署名・発行者が不正だった行の件数
+    private final long invalid;
+
+    // 全トークンを無効化したユーザーの件数
+    private final long users;
+
+    // 処理にかかった時間（ミリ秒）
+    private final long elapsedMillis;
+
+    // コンストラクタ（各件数と処理時間を受け取る）
+    public BulkRevocationResource(
+        long lines, long revoked, long alreadyRevoked, long expired, long invalid, long users, long elapsedMillis
+    ) {
+        this.lines = lines;
+        this.revoked = revoked;
+        this.alreadyRevoked = alreadyRevoked;
+        this.expired = expired;
+        this.invalid = invalid;
+        this.users = users;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    // 読み込んだ行数を取得
+    public long getLines() {
+        return lines;
+    }
+
+    // 新たに登録した件数を取得
+    public long getRevoked() {
+        return revoked;
+    }
+
+    // 既に登録済みだった件数を取得
+    public long getAlreadyRevoked() {
+        return alreadyRevoked;
+    }
+
+    // 有効期限切れの件数を取得
+    public long getExpired() {
+        return expired;
+    }
+
+    // 不正な行の件数を取得
+    public long getInvalid() {
+        return invalid;
+    }
+
+    // 全トークンを無効化したユーザーの件数を取得
+    public long getUsers() {
+        return users;
+    }
+
+    // 処理時間を取得
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,21 @@
+package dvn.local.dvnjs.modules.users.resources;
+
+import java.util.List;
+
+// トークン一括検証のレスポンスを表すリソースクラス
+// results はリクエストのトークンと同じ順番で並ぶ
+public class IntrospectionResource {
+
+    // トークンごとの検証結果
+    private final List<TokenIntrospectionResource> results;
+
+    // コンストラクタ（検証結果の一覧を受け取る）
+    public IntrospectionResource(List<TokenIntrospectionResource> results) {
+        this.results = results;
+    }
+
+    // 検証結果の一覧を取得
+    public List<TokenIntrospectionResource> getResults() {
+        return results;
+    }
+}
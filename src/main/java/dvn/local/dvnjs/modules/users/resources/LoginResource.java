@@ -7,12 +7,16 @@ public class LoginResource {
     // JWTなどの認証トークン
     private final String token;
 
+    // アクセストークンの再発行に使うリフレッシュトークン（1回だけ使用できる）
+    private final String refreshToken;
+
     // ログインしたユーザーの情報
     private final UserResource user;
 
-    // コンストラクタ（トークンとユーザー情報を受け取る）
-    public LoginResource(String token, UserResource user) {
+    // コンストラクタ（トークン、リフレッシュトークンとユーザー情報を受け取る）
+    public LoginResource(String token, String refreshToken, UserResource user) {
         this.token = token;
+        this.refreshToken = refreshToken;
         this.user = user;
     }
 
@@ -21,6 +25,11 @@ public class LoginResource {
         return token;
     }
 
+    // リフレッシュトークンを取得
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
     // ユーザー情報を取得
     public UserResource getUser() {
         return user;
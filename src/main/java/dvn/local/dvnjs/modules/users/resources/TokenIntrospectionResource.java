@@ -0,0 +1,52 @@
+package dvn.local.dvnjs.modules.users.resources;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// トークン1件分の検証結果を表すリソースクラス
+// 有効でないトークンは理由を区別せず active=false のみを返す
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TokenIntrospectionResource {
+
+    // 有効でない場合の結果（中身を持たないため使い回す）
+    public static final TokenIntrospectionResource INACTIVE = new TokenIntrospectionResource(false, null, null, null);
+
+    // 有効なトークンかどうか
+    private final boolean active;
+
+    // Subject（ユーザーID）
+    private final String sub;
+
+    // メールアドレス
+    private final String email;
+
+    // 有効期限（エポック秒）
+    private final Long exp;
+
+    // コンストラクタ（有効フラグ、Subject、メールアドレス、有効期限を受け取る）
+    public TokenIntrospectionResource(boolean active, String sub, String email, Long exp) {
+        this.active = active;
+        this.sub = sub;
+        this.email = email;
+        this.exp = exp;
+    }
+
+    // 有効なトークンかどうかを取得
+    public boolean isActive() {
+        return active;
+    }
+
+    // Subject を取得
+    public String getSub() {
+        return sub;
+    }
+
+    // メールアドレスを取得
+    public String getEmail() {
+        return email;
+    }
+
+    // 有効期限を取得
+    public Long getExp() {
+        return exp;
+    }
+}
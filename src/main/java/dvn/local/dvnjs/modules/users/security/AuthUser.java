@@ -0,0 +1,92 @@
+package dvn.local.dvnjs.modules.users.security;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import dvn.local.dvnjs.modules.users.entities.User;
+
+import lombok.Getter;
+
+/**
+ * 認証済みユーザーを表すプリンシパルクラス。
+ *
+ * JwtAuthFilter が読み込んだユーザー情報（ID、メール、名前、電話番号、カタログID）を保持し、
+ * SecurityContext に設定される。コントローラーは DB を再検索せずにこの情報を利用できる。
+ * パスワードは認証（JWT検証）後には不要なため保持しない。
+ */
+@Getter
+public final class AuthUser implements UserDetails {
+
+    // ユーザーID
+    private final Long id;
+
+    // メールアドレス（ユーザー名として使用）
+    private final String email;
+
+    // ユーザー名
+    private final String name;
+
+    // 電話番号
+    private final String phone;
+
+    // ユーザーカタログID
+    private final Long userCatalogueId;
+
+    // 権限リスト
+    private final Collection<? extends GrantedAuthority> authorities;
+
+    public AuthUser(
+        Long id,
+        String email,
+        String name,
+        String phone,
+        Long userCatalogueId,
+        Collection<? extends GrantedAuthority> authorities
+    ) {
+        this.id = id;
+        this.email = email;
+        this.name = name;
+        this.phone = phone;
+        this.userCatalogueId = userCatalogueId;
+        this.authorities = authorities;
+    }
+
+    /**
+     * User エンティティからプリンシパルを作成する（権限は空のリスト）。
+     * @param user ユーザーエンティティ
+     * @return プリンシパル
+     */
+    public static AuthUser from(User user) {
+        return from(user, Collections.emptyList());
+    }
+
+    /**
+     * User エンティティと権限からプリンシパルを作成する。
+     * @param user ユーザーエンティティ
+     * @param authorities 権限リスト（UserAuthorities で決める）
+     * @return プリンシパル
+     */
+    public static AuthUser from(User user, Collection<? extends GrantedAuthority> authorities) {
+        return new AuthUser(
+            user.getId(),
+            user.getEmail(),
+            user.getName(),
+            user.getPhone(),
+            user.getUserCatalogueId(),
+            authorities
+        );
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+}
@@ -0,0 +1,60 @@
+package dvn.local.dvnjs.modules.users.security;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+/**
+ * ユーザーに与える権限を決めるクラス。
+ *
+ * 現状はロールのテーブルを持たないため、ユーザーカタログIDで判定する。
+ *  - security.ops.user-catalogue-ids に含まれるカタログのユーザーには OPS（運用者）権限を与える
+ *  - それ以外のユーザーは権限を持たない
+ *
+ * CustomUserDetailsService（DB から読み込む場合）と JwtService（ステートレスモードでクレームに埋め込む場合）の
+ * 両方から使い、どちらの認証方式でも同じ権限になるようにする。
+ */
+@Component
+public class UserAuthorities {
+
+    // 運用者の権限（全ユーザーの一括失効など）
+    public static final String OPS = "OPS";
+
+    private static final List<GrantedAuthority> OPS_AUTHORITIES = List.of(new SimpleGrantedAuthority(OPS));
+
+    private static final List<String> OPS_NAMES = List.of(OPS);
+
+    // OPS 権限を与えるユーザーカタログID
+    private final Set<Long> opsCatalogueIds;
+
+    public UserAuthorities(@Value("${security.ops.user-catalogue-ids:}") Set<Long> opsCatalogueIds) {
+        this.opsCatalogueIds = Set.copyOf(opsCatalogueIds);
+    }
+
+    /**
+     * ユーザーカタログIDに対応する権限を返す。
+     * @param userCatalogueId ユーザーカタログID
+     * @return 権限リスト（権限がない場合は空のリスト）
+     */
+    public List<GrantedAuthority> of(Long userCatalogueId) {
+        return isOps(userCatalogueId) ? OPS_AUTHORITIES : Collections.emptyList();
+    }
+
+    /**
+     * ユーザーカタログIDに対応する権限名を返す（JWT のクレーム用）。
+     * @param userCatalogueId ユーザーカタログID
+     * @return 権限名のリスト（権限がない場合は空のリスト）
+     */
+    public List<String> namesOf(Long userCatalogueId) {
+        return isOps(userCatalogueId) ? OPS_NAMES : Collections.emptyList();
+    }
+
+    private boolean isOps(Long userCatalogueId) {
+        return userCatalogueId != null && opsCatalogueIds.contains(userCatalogueId);
+    }
+}
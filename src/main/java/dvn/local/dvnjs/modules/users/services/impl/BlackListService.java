@@ -4,16 +4,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Date;
 
 import dvn.local.dvnjs.databases.seeder.DatabaseSeeder;
-import dvn.local.dvnjs.modules.users.entities.BlacklistedToken;
+import dvn.local.dvnjs.helpers.TokenDigest;
 import dvn.local.dvnjs.modules.users.repositories.BlacklistedTokenRepository;
 import dvn.local.dvnjs.modules.users.requests.BlacklistTokenRequest;
 import dvn.local.dvnjs.resources.MessageResource;
 import dvn.local.dvnjs.services.JwtService;
+import dvn.local.dvnjs.services.VerifiedTokenCache;
 
 import io.jsonwebtoken.Claims;
 
@@ -24,6 +27,10 @@ import io.jsonwebtoken.Claims;
  *  - 無効化されたトークン（例：ログアウト時）をデータベースに登録し、
  *    再利用を防止する。
  *  - トークンの有効期限やユーザーIDを保存する。
+ *  - 登録と同時に検証済みトークンのキャッシュから削除する。
+ *  - トークンにセッションID（sid）がある場合は、同じログインのリフレッシュトークンも無効化する。
+ *  - 失効イベントを記録し、他のインスタンスのキャッシュにも反映させる。
+ *  - write-behind が有効な場合は、登録をキューに積んでまとめて書き込む。
  */
 @Service
 public class BlackListService {
@@ -36,6 +43,34 @@ public class BlackListService {
     @Autowired
     private JwtService jwtService;
 
+    // 検証済みトークンのキャッシュ（登録時に即座に削除する）
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    // 失効トークンのブルームフィルター（登録時に追加する）
+    @Autowired
+    private RevokedTokenFilter revokedTokenFilter;
+
+    // 他のインスタンスへ失効を伝播させるサービス
+    @Autowired
+    private RevocationEventService revocationEventService;
+
+    // ユーザー単位のトークン一括失効を管理するサービス
+    @Autowired
+    private TokenEpochService tokenEpochService;
+
+    // 失効の書き込みを遅延・集約するキュー
+    @Autowired
+    private BlacklistWriteBehindQueue blacklistWriteBehindQueue;
+
+    // リフレッシュトークンの無効化（ログアウト時）
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    // 登録と失効イベントの追記を1トランザクションで行うためのテンプレート
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     // ログ出力用のロガー
     private static final Logger logger = LoggerFactory.getLogger(DatabaseSeeder.class);
 
@@ -47,14 +82,9 @@ public class BlackListService {
      */
     public Object create(BlacklistTokenRequest request) {
         try {
-            // --- 1. トークンの重複チェック ---
-            if (blacklistedTokenRepository.existsByToken(request.getToken())) {
-                // 既に登録済みの場合は、処理を中断してメッセージを返す
-                return new MessageResource("トークンは既に登録されています。");
-            }
             logger.info("トークンの登録処理を開始します。");
 
-            // --- 2. JWTトークンからクレーム情報を抽出 ---
+            // --- 1. JWTトークンからクレーム情報を抽出 ---
             Claims claims = jwtService.getAllClaimsFromToken(request.getToken());
 
             // サブジェクト（ユーザーID）を取得
@@ -63,32 +93,99 @@ public class BlackListService {
             // トークンの有効期限を取得
             Date expiryDate = claims.getExpiration();
 
-            // --- 3. エンティティ作成 ---
-            BlacklistedToken blacklistedToken = new BlacklistedToken();
+            // トークン全文ではなくダイジェストで登録する
+            TokenDigest digest = TokenDigest.of(request.getToken());
 
-            // トークン文字列を設定
-            blacklistedToken.setToken(request.getToken());
+            LocalDateTime expiry = expiryDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
 
-            // ユーザーIDを設定
-            blacklistedToken.setUserId(userId);
+            // --- 1'. 同じログイン（セッション）のリフレッシュトークンを無効化し、ログアウト後に再発行できないようにする ---
+            String sessionId = claims.get(JwtService.CLAIM_SESSION_ID, String.class);
+            if (sessionId != null) {
+                refreshTokenService.revokeFamily(sessionId);
+            }
 
-            // Date → LocalDateTime に変換して有効期限を設定
-            blacklistedToken.setExpiryDate(
-                expiryDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime()
-            );
+            // --- 2. write-behind キューが受け付けた場合は、ローカルに反映してすぐに応答する ---
+            if (blacklistWriteBehindQueue.submit(new BlacklistWriteBehindQueue.PendingRevocation(digest, userId, expiry))) {
+                revokedTokenFilter.add(digest);
+                verifiedTokenCache.invalidate(digest);
+                return new MessageResource("トークンは正常にブラックリストへ登録されました。");
+            }
 
-            // --- 4. データベースに保存 ---
-            blacklistedTokenRepository.save(blacklistedToken);
+            // --- 2'. データベースに冪等に登録（重複チェックと保存を1文で行う）し、他のインスタンスへ失効を伝播させる ---
+            // イベントの追記に失敗した場合は登録も取り消し、再試行時に「登録済み」として伝播が漏れないようにする
+            Integer inserted = transactionTemplate.execute(status -> {
+                int rows = blacklistedTokenRepository.insertIfAbsent(
+                    digest.bytes(),
+                    userId,
+                    // Date → LocalDateTime に変換して有効期限を設定
+                    expiry
+                );
+                if (rows > 0) {
+                    revocationEventService.publishTokenRevoked(digest, userId);
+                }
+                return rows;
+            });
+
+            // --- 3. フィルターへ追加し、検証済みキャッシュから削除して以降のリクエストで即座に拒否されるようにする ---
+            revokedTokenFilter.add(digest);
+            verifiedTokenCache.invalidate(digest);
+
+            if (inserted == null || inserted == 0) {
+                // 既に登録済みの場合は、その旨のメッセージを返す
+                return new MessageResource("トークンは既に登録されています。");
+            }
 
             logger.info("トークンをブラックリストに登録しました。");
 
-            // --- 5. 成功メッセージを返す ---
+            // --- 4. 成功メッセージを返す ---
             return new MessageResource("トークンは正常にブラックリストへ登録されました。");
 
         } catch (Exception e) {
-            // --- 6. 予期しないエラーの処理 ---
+            // --- 5. 予期しないエラーの処理 ---
             logger.error("ブラックリスト登録中にエラーが発生しました: {}", e.getMessage());
             return new MessageResource("ブラックリスト登録処理中にエラーが発生しました。 " + e.getMessage());
         }
     }
+
+    /**
+     * 指定ユーザーのこれまでに発行されたトークンをすべて無効にするメソッド（全端末からのログアウト）。
+     * トークンごとの登録は行わず、ユーザー単位の失効日時のみを更新する。
+     * リフレッシュトークンもすべて無効化し、新しいアクセストークンを発行できないようにする。
+     * 
+     * @param userId 対象ユーザーID
+     * @return MessageResource 結果メッセージを返す
+     */
+    public Object revokeAll(Long userId) {
+        try {
+            if (!revokeAllTokens(userId)) {
+                return new MessageResource("ユーザーが存在しません。");
+            }
+            return new MessageResource("すべての端末からログアウトしました。");
+
+        } catch (Exception e) {
+            logger.error("トークンの一括無効化中にエラーが発生しました: {}", e.getMessage());
+            return new MessageResource("トークンの一括無効化処理中にエラーが発生しました。 " + e.getMessage());
+        }
+    }
+
+    /**
+     * 指定ユーザーのトークンをすべて無効にし、結果を返すメソッド（一括失効用）。
+     * 
+     * @param userId 対象ユーザーID
+     * @return 無効化した場合 true、ユーザーが存在しない場合 false
+     * @throws RuntimeException DB の更新に失敗した場合
+     */
+    public boolean revokeAllTokens(Long userId) {
+        if (!tokenEpochService.revokeAll(userId)) {
+            logger.warn("トークンの一括無効化の対象ユーザーが存在しません。ユーザーID: {}", userId);
+            return false;
+        }
+        refreshTokenService.revokeAll(userId);
+
+        // 他のインスタンスへ失効を伝播させる
+        revocationEventService.publishUserTokensRevoked(userId);
+
+        logger.info("ユーザーの全トークンを無効化しました。ユーザーID: {}", userId);
+        return true;
+    }
 }
@@ -0,0 +1,136 @@
+package dvn.local.dvnjs.modules.users.services.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import dvn.local.dvnjs.modules.users.repositories.BlacklistedTokenRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 期限切れのブラックリスト登録トークンを定期的に削除するサービスクラス。
+ *
+ * 主な役割：
+ *  - expiry_date を過ぎた行を古い順に少量ずつ（バッチごとに別トランザクションで）削除する
+ *  - バッチの間に待機を入れ、長時間のロックやレプリケーション遅延を避ける
+ *  - 削除件数・処理時間・スループット・削除の遅れ（最も古い行の期限切れからの経過秒数）をメトリクスで公開する
+ *
+ * 期限切れのトークンは有効期限の検証で拒否されるため、削除しても安全性は変わらない。
+ */
+@Service
+public class BlacklistPurgeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlacklistPurgeService.class);
+
+    private final BlacklistedTokenRepository blacklistedTokenRepository;
+
+    // 1回の DELETE で削除する最大件数
+    private final int batchSize;
+
+    // バッチ間の待機時間
+    private final Duration pause;
+
+    // 1回の実行で処理を続ける最大時間
+    private final Duration maxRunTime;
+
+    // 削除件数の累計
+    private final Counter rowsRemoved;
+
+    // 1回の実行にかかった時間
+    private final Timer runTimer;
+
+    // 直近の実行のスループット（行/秒）
+    private final AtomicLong lastThroughput = new AtomicLong();
+
+    // 削除の遅れ（最も古い行が期限切れになってからの秒数、期限切れの行がなければ 0）
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    public BlacklistPurgeService(
+        BlacklistedTokenRepository blacklistedTokenRepository,
+        MeterRegistry meterRegistry,
+        @Value("${blacklist.purge.batch-size:1000}") int batchSize,
+        @Value("${blacklist.purge.pause:50ms}") Duration pause,
+        @Value("${blacklist.purge.max-run-time:60s}") Duration maxRunTime
+    ) {
+        this.blacklistedTokenRepository = blacklistedTokenRepository;
+        this.batchSize = batchSize;
+        this.pause = pause;
+        this.maxRunTime = maxRunTime;
+
+        this.rowsRemoved = Counter.builder("blacklist.purge.rows")
+                .description("削除した期限切れトークンの件数")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("blacklist.purge.duration")
+                .description("期限切れトークン削除1回あたりの処理時間")
+                .register(meterRegistry);
+        Gauge.builder("blacklist.purge.throughput", lastThroughput, AtomicLong::get)
+                .description("直近の削除処理のスループット（行/秒）")
+                .register(meterRegistry);
+        Gauge.builder("blacklist.purge.lag", lagSeconds, AtomicLong::get)
+                .description("最も古い期限切れ行が残っている秒数")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 期限切れの行を削除する（一定間隔で実行）。
+     */
+    @Scheduled(
+        initialDelayString = "${blacklist.purge.interval:PT5M}",
+        fixedDelayString = "${blacklist.purge.interval:PT5M}")
+    public void purgeExpired() {
+        long start = System.nanoTime();
+        long deadline = start + maxRunTime.toNanos();
+        long total = 0;
+
+        try {
+            int deleted;
+            do {
+                deleted = blacklistedTokenRepository.deleteExpiredBatch(LocalDateTime.now(), batchSize);
+                total += deleted;
+                rowsRemoved.increment(deleted);
+
+                if (deleted == batchSize && !pause.isZero()) {
+                    Thread.sleep(pause.toMillis());
+                }
+            } while (deleted == batchSize && System.nanoTime() < deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("期限切れトークンの削除中にエラーが発生しました: {}", e.getMessage());
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            runTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            lastThroughput.set(elapsed > 0 ? total * TimeUnit.SECONDS.toNanos(1) / elapsed : 0);
+            updateLag();
+        }
+
+        if (total > 0) {
+            logger.info("期限切れトークンを削除しました。件数: {}", total);
+        }
+    }
+
+    // 残っている最も古い行の期限から、削除の遅れを計算する
+    private void updateLag() {
+        try {
+            LocalDateTime oldest = blacklistedTokenRepository.findOldestExpiryDate();
+            LocalDateTime now = LocalDateTime.now();
+            lagSeconds.set(oldest != null && oldest.isBefore(now)
+                    ? Duration.between(oldest, now).getSeconds()
+                    : 0);
+        } catch (RuntimeException e) {
+            logger.warn("削除の遅れを計測できませんでした: {}", e.getMessage());
+        }
+    }
+}
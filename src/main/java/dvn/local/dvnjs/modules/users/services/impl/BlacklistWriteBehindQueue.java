@@ -0,0 +1,455 @@
+package dvn.local.dvnjs.modules.users.services.impl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import dvn.local.dvnjs.helpers.TokenDigest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * トークン失効の書き込みを遅延・集約する（write-behind）キュークラス。
+ *
+ * 主な役割：
+ *  - 失効を受け付けた時点でこのインスタンス内では即座に失効済みとして扱い（pending）、呼び出し側にすぐ応答する
+ *  - 件数（batch-size）または時間（max-delay）のしきい値で、blacklisted_tokens と revocation_events へ
+ *    複数行 INSERT でまとめて書き込む（1回のフラッシュで1トランザクション）
+ *  - キューが満杯、または停止処理中の場合は受け付けず、呼び出し側で同期的に登録させる
+ *  - 書き込みに失敗した場合は再試行を続ける（停止時は shutdown-timeout まで）
+ *  - 停止時に書き込めなかった失効はスプールファイルへ追記し、次回の起動時に書き込む
+ *  - キューの長さ・フラッシュ時間・書き込み件数をメトリクスで公開する
+ *
+ * 受け付け（submit）と停止（stop）は読み書きロックで排他し、停止処理の開始後に受け付けた失効が
+ * 最後の書き込みから漏れないようにする。
+ */
+@Service
+public class BlacklistWriteBehindQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlacklistWriteBehindQueue.class);
+
+    /**
+     * 書き込み待ちの失効
+     * @param digest トークンのダイジェスト
+     * @param userId ユーザーID
+     * @param expiryDate トークンの有効期限
+     */
+    public record PendingRevocation(TokenDigest digest, Long userId, LocalDateTime expiryDate) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final RevocationEventService revocationEventService;
+
+    private final RevokedTokenFilter revokedTokenFilter;
+
+    // write-behind を使用するかどうか
+    private final boolean enabled;
+
+    // 1回のフラッシュで書き込む最大件数
+    private final int batchSize;
+
+    // 最初の要素を受け付けてからフラッシュするまでの最大待ち時間
+    private final Duration maxDelay;
+
+    // 停止時に書き込みを再試行する最大時間（超えた分はスプールファイルへ退避する）
+    private final Duration shutdownTimeout;
+
+    // 停止時に書き込めなかった失効の退避先
+    private final Path spoolFile;
+
+    // 起動時に読み込んだ退避分（書き込みが完了するまで削除しない）
+    private final Path replayFile;
+
+    // 書き込み待ちのキュー
+    private final BlockingQueue<PendingRevocation> queue;
+
+    // 書き込み待ちの失効（DB に反映されるまでこのインスタンスの失効判定に使う）
+    private final Map<TokenDigest, PendingRevocation> pending = new ConcurrentHashMap<>();
+
+    // 受け付けと停止の排他（受け付けは読み取りロック、停止は書き込みロック）
+    private final ReadWriteLock admission = new ReentrantReadWriteLock();
+
+    // フラッシュ時間
+    private final Timer flushTimer;
+
+    // 書き込んだ件数
+    private final Counter flushedRows;
+
+    // スプールファイルへ退避した件数
+    private final Counter spooledRows;
+
+    // 停止処理中かどうか（admission の書き込みロック内で更新する）
+    private volatile boolean closed;
+
+    // 停止時の再試行の期限（System.nanoTime 基準、停止処理中のみ有効）
+    private volatile long shutdownDeadline;
+
+    // フラッシュ用スレッドを仮想スレッドにするかどうか
+    private final boolean virtualThreads;
+
+    // 起動時にスプールファイルから読み込んだ失効
+    private List<PendingRevocation> replay = List.of();
+
+    // フラッシュを行うスレッド
+    private Thread flusher;
+
+    public BlacklistWriteBehindQueue(
+        JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        RevocationEventService revocationEventService,
+        RevokedTokenFilter revokedTokenFilter,
+        MeterRegistry meterRegistry,
+        @Value("${blacklist.write-behind.enabled:false}") boolean enabled,
+        @Value("${blacklist.write-behind.capacity:10000}") int capacity,
+        @Value("${blacklist.write-behind.batch-size:500}") int batchSize,
+        @Value("${blacklist.write-behind.max-delay:50ms}") Duration maxDelay,
+        @Value("${blacklist.write-behind.shutdown-timeout:30s}") Duration shutdownTimeout,
+        @Value("${blacklist.write-behind.spool-file:data/blacklist-write-behind.spool}") String spoolFile,
+        @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.revocationEventService = revocationEventService;
+        this.revokedTokenFilter = revokedTokenFilter;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxDelay = maxDelay;
+        this.shutdownTimeout = shutdownTimeout;
+        this.spoolFile = Paths.get(spoolFile);
+        this.replayFile = Paths.get(spoolFile + ".replay");
+        this.virtualThreads = virtualThreads;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+
+        Gauge.builder("blacklist.write_behind.depth", queue, BlockingQueue::size)
+                .description("書き込み待ちの失効の件数")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("blacklist.write_behind.flush")
+                .description("失効をまとめて書き込む1回あたりの時間")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.flushedRows = Counter.builder("blacklist.write_behind.rows")
+                .description("まとめて書き込んだ失効の件数")
+                .register(meterRegistry);
+        this.spooledRows = Counter.builder("blacklist.write_behind.spooled")
+                .description("停止時に書き込めずスプールファイルへ退避した失効の件数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 前回の停止時に退避した失効を読み込み、フラッシュ用スレッドを開始する。
+     * 退避分は DB に書き込むまで書き込み待ちとして扱う（write-behind が無効でも書き込む）。
+     */
+    @PostConstruct
+    public void start() {
+        replay = loadSpool();
+        for (PendingRevocation revocation : replay) {
+            pending.put(revocation.digest(), revocation);
+        }
+        if (!enabled && replay.isEmpty()) {
+            return;
+        }
+        if (virtualThreads) {
+            // 仮想スレッドモードでは、DB 書き込みの待ちでキャリアスレッドを占有しない
+            flusher = new VirtualThreadTaskExecutor().getVirtualThreadFactory().newThread(this::run);
+            flusher.setName("blacklist-write-behind");
+        } else {
+            flusher = new Thread(this::run, "blacklist-write-behind");
+            flusher.setDaemon(true);
+        }
+        flusher.start();
+    }
+
+    /**
+     * 停止時に、受け付け済みの失効をすべて書き込んでから終了する。
+     * shutdown-timeout までに書き込めなかった失効はスプールファイルへ退避する。
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // 受け付け中の submit が終わるのを待ってから閉じる（以降は受け付けない）
+        admission.writeLock().lock();
+        try {
+            shutdownDeadline = System.nanoTime() + shutdownTimeout.toNanos();
+            closed = true;
+        } finally {
+            admission.writeLock().unlock();
+        }
+        if (flusher == null) {
+            return;
+        }
+        flusher.interrupt();
+        flusher.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(shutdownDeadline - System.nanoTime())));
+
+        // スレッドが残した分を書き込む（書き込めなければ退避する）
+        List<PendingRevocation> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            if (!flushWithRetry(batch)) {
+                spool(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * 失効を受け付ける。
+     * @param revocation 失効内容
+     * @return 受け付けた場合 true（無効・満杯・停止処理中の場合は false、呼び出し側で同期的に登録すること）
+     */
+    public boolean submit(PendingRevocation revocation) {
+        if (!enabled) {
+            return false;
+        }
+        admission.readLock().lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            pending.put(revocation.digest(), revocation);
+            if (!queue.offer(revocation)) {
+                pending.remove(revocation.digest(), revocation);
+                return false;
+            }
+            return true;
+        } finally {
+            admission.readLock().unlock();
+        }
+    }
+
+    /**
+     * 書き込み待ちの失効に含まれているかを判定する。
+     * @param digest トークンのダイジェスト
+     * @return 含まれている場合 true
+     */
+    public boolean isPending(TokenDigest digest) {
+        return !pending.isEmpty() && pending.containsKey(digest);
+    }
+
+    // 退避分を書き込んだ後、キューから取り出し、件数または時間のしきい値でフラッシュする
+    private void run() {
+        if (!replayAll()) {
+            return;
+        }
+        if (!enabled) {
+            return;
+        }
+
+        List<PendingRevocation> batch = new ArrayList<>(batchSize);
+        while (!closed) {
+            try {
+                PendingRevocation first = queue.take();
+                batch.add(first);
+
+                long deadline = System.nanoTime() + maxDelay.toNanos();
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingRevocation next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                // 停止要求：取り出し済みの分を書き込んで終了する（残りは stop が書き込む）
+            }
+
+            if (!batch.isEmpty()) {
+                if (!flushWithRetry(batch)) {
+                    spool(batch);
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    // 起動時に読み込んだ退避分を書き込み、完了したら退避ファイルを削除する
+    private boolean replayAll() {
+        if (replay.isEmpty()) {
+            return true;
+        }
+        for (int from = 0; from < replay.size(); from += batchSize) {
+            List<PendingRevocation> batch = replay.subList(from, Math.min(replay.size(), from + batchSize));
+            if (!flushWithRetry(batch)) {
+                // 停止までに書き込めなかった分は退避ファイルに残り、次回の起動時に再度書き込む
+                return false;
+            }
+        }
+        try {
+            Files.deleteIfExists(replayFile);
+            logger.info("退避していた失効を書き込みました。件数: {}", replay.size());
+        } catch (IOException e) {
+            logger.warn("退避ファイルを削除できませんでした（次回の起動時に再度書き込まれます）: {}", e.getMessage());
+        }
+        replay = List.of();
+        return true;
+    }
+
+    // 書き込めるまで間隔を空けて再試行する（停止処理中は期限まで）
+    private boolean flushWithRetry(List<PendingRevocation> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                flush(batch);
+                return true;
+            } catch (RuntimeException e) {
+                logger.error("失効の書き込みに失敗しました（{}回目、{}件）: {}", attempt, batch.size(), e.getMessage());
+                long backoff = TimeUnit.MILLISECONDS.toNanos(Math.min(5_000L, 100L * attempt));
+                if (closed && shutdownDeadline - System.nanoTime() < backoff) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    // 停止要求：以降は shutdown-timeout の期限まで再試行を続ける
+                }
+            }
+        }
+    }
+
+    // blacklisted_tokens と revocation_events へ1トランザクションで複数行 INSERT する
+    private void flush(List<PendingRevocation> batch) {
+        long start = System.nanoTime();
+
+        StringBuilder sql = new StringBuilder(
+                "INSERT IGNORE INTO blacklisted_tokens (token_hash, user_id, expiry_date) VALUES ");
+        List<Object> args = new ArrayList<>(batch.size() * 3);
+        for (int i = 0; i < batch.size(); i++) {
+            PendingRevocation revocation = batch.get(i);
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+            args.add(revocation.digest().bytes());
+            args.add(revocation.userId());
+            args.add(revocation.expiryDate());
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(sql.toString(), args.toArray());
+            revocationEventService.publishTokenRevokedBatch(batch);
+        });
+
+        // DB に反映されたため、書き込み待ちから外す
+        // 外す前にフィルターへ追加し直す（書き込み前に始まった再構築で失われた分を補う）
+        for (PendingRevocation revocation : batch) {
+            revokedTokenFilter.add(revocation.digest());
+            pending.remove(revocation.digest(), revocation);
+        }
+
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        flushedRows.increment(batch.size());
+    }
+
+    // 書き込めなかった失効をスプールファイルへ追記し、ディスクへ同期する
+    private synchronized void spool(List<PendingRevocation> batch) {
+        try {
+            Path parent = spoolFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (FileChannel channel = FileChannel.open(spoolFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                BufferedWriter writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+                for (PendingRevocation revocation : batch) {
+                    writer.write(HexFormat.of().formatHex(revocation.digest().bytes()));
+                    writer.write('\t');
+                    writer.write(String.valueOf(revocation.userId()));
+                    writer.write('\t');
+                    writer.write(revocation.expiryDate().toString());
+                    writer.write('\n');
+                }
+                writer.flush();
+                channel.force(true);
+            }
+            spooledRows.increment(batch.size());
+            logger.warn("書き込めなかった失効をスプールファイルへ退避しました。件数: {}、ファイル: {}", batch.size(), spoolFile);
+        } catch (IOException e) {
+            // 最後の手段として、手作業で登録できるようダイジェストをログに残す
+            logger.error("失効をスプールファイルへ退避できませんでした: {}", e.getMessage());
+            for (PendingRevocation revocation : batch) {
+                logger.error("未登録の失効: {}\t{}\t{}",
+                        HexFormat.of().formatHex(revocation.digest().bytes()), revocation.userId(), revocation.expiryDate());
+            }
+        }
+    }
+
+    // スプールファイルと前回書き込みきれなかった退避ファイルを1つの退避ファイルにまとめて読み込む（期限切れは除く）
+    private List<PendingRevocation> loadSpool() {
+        if (!Files.exists(spoolFile) && !Files.exists(replayFile)) {
+            return List.of();
+        }
+        try {
+            List<String> lines = new ArrayList<>();
+            if (Files.exists(replayFile)) {
+                lines.addAll(Files.readAllLines(replayFile, StandardCharsets.UTF_8));
+            }
+            if (Files.exists(spoolFile)) {
+                lines.addAll(Files.readAllLines(spoolFile, StandardCharsets.UTF_8));
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            List<PendingRevocation> revocations = new ArrayList<>(lines.size());
+            List<String> kept = new ArrayList<>(lines.size());
+            for (String line : lines) {
+                String[] fields = line.split("\t");
+                if (fields.length != 3) {
+                    continue;
+                }
+                LocalDateTime expiryDate = LocalDateTime.parse(fields[2]);
+                if (!expiryDate.isAfter(now)) {
+                    continue;
+                }
+                revocations.add(new PendingRevocation(
+                        TokenDigest.wrap(HexFormat.of().parseHex(fields[0])), Long.valueOf(fields[1]), expiryDate));
+                kept.add(line);
+            }
+
+            // まとめた内容を一時ファイルに書いてから差し替え、スプールファイルを空にする
+            Path temp = Paths.get(replayFile + ".tmp");
+            Files.write(temp, kept, StandardCharsets.UTF_8);
+            Files.move(temp, replayFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(spoolFile);
+
+            logger.info("退避していた失効を読み込みました。件数: {}", revocations.size());
+            return revocations;
+        } catch (IOException | RuntimeException e) {
+            logger.error("退避していた失効を読み込めませんでした（ファイルは残します）: {}", e.getMessage());
+            return List.of();
+        }
+    }
+}
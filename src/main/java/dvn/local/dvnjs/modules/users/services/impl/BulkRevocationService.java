@@ -0,0 +1,465 @@
+package dvn.local.dvnjs.modules.users.services.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dvn.local.dvnjs.helpers.TokenDigest;
+import dvn.local.dvnjs.modules.users.resources.BulkRevocationResource;
+import dvn.local.dvnjs.services.JwtService;
+import dvn.local.dvnjs.services.VerifiedToken;
+import dvn.local.dvnjs.services.VerifiedTokenCache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * NDJSON（1行1件の JSON）で送られたトークン・ユーザーをまとめて失効させるサービスクラス。
+ *
+ * 入力の形式（1行ごと）：
+ *  - {"token":"<JWT>"} : トークンをブラックリストに登録する
+ *  - {"userId":123}    : ユーザーのトークンをすべて無効化する（全端末からのログアウトと同じ。
+ *                        存在しないユーザーや無効化に失敗した行は不正として数える）
+ *
+ * 処理の流れ：
+ *  - 本文を1行ずつ読み、batch-size 件ごとに処理する（全件をメモリに載せない）
+ *  - 最大文字数を超える行は内容を保持せずに読み飛ばし、不正な行として数える
+ *  - 署名の検証とクレームの取得は専用のスレッドプールで並列に行い、期限切れのトークンは登録を省略する
+ *  - blacklisted_tokens への登録は JDBC のバッチ INSERT で行い、バッチごとに1トランザクションにする
+ *    （失効イベントも同じトランザクションで追記し、他のインスタンスへ伝播させる）
+ *  - トークンにセッションID（sid）がある場合は、同じログインのリフレッシュトークンも同じトランザクションで無効化する
+ *  - 件数をメトリクスで公開し、progress-interval 件ごとに進捗をログに出力する
+ */
+@Service
+public class BulkRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkRevocationService.class);
+
+    // 1行の最大文字数（これを超える行は不正として扱う）
+    private static final int MAX_LINE_LENGTH = 16 * 1024;
+
+    private static final String INSERT_SQL =
+            "INSERT IGNORE INTO blacklisted_tokens (token_hash, user_id, expiry_date) VALUES (?, ?, ?)";
+
+    private static final String REVOKE_FAMILY_SQL =
+            "UPDATE refresh_tokens SET revoked_at = ? WHERE family_id = ? AND revoked_at IS NULL";
+
+    /**
+     * トークン1件の解析結果
+     */
+    private enum Outcome {
+        PENDING,    // 登録対象
+        EXPIRED,    // 有効期限切れ（登録を省略）
+        INVALID     // 形式・署名・発行者が不正
+    }
+
+    /**
+     * 登録対象のトークン（セッションIDは埋め込まれていない場合 null）
+     */
+    private record ParsedToken(BlacklistWriteBehindQueue.PendingRevocation revocation, String sessionId) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final JwtService jwtService;
+
+    private final BlackListService blackListService;
+
+    private final RevokedTokenFilter revokedTokenFilter;
+
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    private final RevocationEventService revocationEventService;
+
+    // 署名検証用のスレッドプール
+    private final ForkJoinPool pool;
+
+    // 1回のトランザクションで登録する最大件数
+    private final int batchSize;
+
+    // 進捗をログに出力する間隔（行数）
+    private final long progressInterval;
+
+    // 1バッチの処理時間
+    private final Timer batchTimer;
+
+    private final Counter revokedCounter;
+
+    private final Counter duplicateCounter;
+
+    private final Counter expiredCounter;
+
+    private final Counter invalidCounter;
+
+    private final Counter userCounter;
+
+    public BulkRevocationService(
+        JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager,
+        ObjectMapper objectMapper,
+        JwtService jwtService,
+        BlackListService blackListService,
+        RevokedTokenFilter revokedTokenFilter,
+        VerifiedTokenCache verifiedTokenCache,
+        RevocationEventService revocationEventService,
+        MeterRegistry meterRegistry,
+        @Value("${blacklist.bulk.batch-size:1000}") int batchSize,
+        @Value("${blacklist.bulk.threads:0}") int threads,
+        @Value("${blacklist.bulk.progress-interval:100000}") long progressInterval
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.jwtService = jwtService;
+        this.blackListService = blackListService;
+        this.revokedTokenFilter = revokedTokenFilter;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.revocationEventService = revocationEventService;
+        this.batchSize = Math.max(1, batchSize);
+        this.progressInterval = Math.max(1, progressInterval);
+
+        // 0 以下の場合はコア数に合わせる
+        this.pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+
+        this.batchTimer = Timer.builder("blacklist.bulk.batch")
+                .description("一括失効の1バッチ（検証と登録）の処理時間")
+                .register(meterRegistry);
+        this.revokedCounter = tokens(meterRegistry, "revoked");
+        this.duplicateCounter = tokens(meterRegistry, "duplicate");
+        this.expiredCounter = tokens(meterRegistry, "expired");
+        this.invalidCounter = tokens(meterRegistry, "invalid");
+        this.userCounter = Counter.builder("blacklist.bulk.users")
+                .description("一括失効で全トークンを無効化したユーザーの件数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * NDJSON の本文を読み込み、トークン・ユーザーを失効させる。
+     * @param body リクエスト本文（UTF-8）
+     * @return 件数の集計
+     * @throws IOException 本文の読み込みに失敗した場合
+     */
+    public BulkRevocationResource revoke(InputStream body) throws IOException {
+        final long started = System.nanoTime();
+        final Progress progress = new Progress();
+        final List<String> tokens = new ArrayList<>(batchSize);
+
+        BoundedLineReader reader = new BoundedLineReader(
+                new InputStreamReader(body, StandardCharsets.UTF_8), MAX_LINE_LENGTH);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (reader.isOversize()) {
+                // 長すぎる行は読み飛ばし済み（内容は保持していない）
+                progress.lines++;
+                invalid(progress);
+            } else if (line.isBlank()) {
+                continue;
+            } else {
+                progress.lines++;
+                readLine(line, tokens, progress);
+            }
+            if (tokens.size() >= batchSize) {
+                flush(tokens, progress);
+            }
+
+            if (progress.lines % progressInterval == 0) {
+                logger.info("一括失効の進捗: {}行（登録 {}、登録済み {}、期限切れ {}、不正 {}、ユーザー {}）",
+                        progress.lines, progress.revoked, progress.duplicates, progress.expired,
+                        progress.invalid, progress.users);
+            }
+        }
+        flush(tokens, progress);
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        logger.info("一括失効が完了しました: {}行（登録 {}、登録済み {}、期限切れ {}、不正 {}、ユーザー {}）、{}ms",
+                progress.lines, progress.revoked, progress.duplicates, progress.expired,
+                progress.invalid, progress.users, elapsedMillis);
+
+        return new BulkRevocationResource(
+                progress.lines, progress.revoked, progress.duplicates, progress.expired,
+                progress.invalid, progress.users, elapsedMillis);
+    }
+
+    /**
+     * 停止時にスレッドプールを終了する。
+     */
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // 1行を解析し、トークンはバッチに追加、ユーザーはその場で全トークンを無効化する
+    private void readLine(String line, List<String> tokens, Progress progress) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            invalid(progress);
+            return;
+        }
+
+        JsonNode token = node.get("token");
+        if (token != null && token.isTextual()) {
+            tokens.add(token.asText());
+            return;
+        }
+
+        JsonNode userId = node.get("userId");
+        if (userId != null && userId.canConvertToLong()) {
+            revokeUser(userId.asLong(), progress);
+            return;
+        }
+
+        invalid(progress);
+    }
+
+    // ユーザーの全トークンを無効化する（存在しないユーザーや、無効化に失敗した場合は不正として数える）
+    private void revokeUser(long userId, Progress progress) {
+        boolean revoked;
+        try {
+            revoked = blackListService.revokeAllTokens(userId);
+        } catch (RuntimeException e) {
+            logger.error("一括失効でユーザーのトークンを無効化できませんでした。ユーザーID: {}、{}", userId, e.getMessage());
+            revoked = false;
+        }
+
+        if (revoked) {
+            userCounter.increment();
+            progress.users++;
+        } else {
+            invalid(progress);
+        }
+    }
+
+    // バッチのトークンを並列に検証し、登録対象を1トランザクションでバッチ INSERT する
+    private void flush(List<String> tokens, Progress progress) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        final long start = System.nanoTime();
+
+        // --- 1. 署名の検証とクレームの取得（要素ごとに書き込み先が異なるため同期は不要） ---
+        final int size = tokens.size();
+        final Outcome[] outcomes = new Outcome[size];
+        final ParsedToken[] parsed = new ParsedToken[size];
+        pool.submit(() -> IntStream.range(0, size).parallel()
+                .forEach(i -> outcomes[i] = parse(tokens.get(i), parsed, i))).join();
+
+        final List<BlacklistWriteBehindQueue.PendingRevocation> revocations = new ArrayList<>(size);
+        final List<String> sessionIds = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            switch (outcomes[i]) {
+                case PENDING -> {
+                    revocations.add(parsed[i].revocation());
+                    if (parsed[i].sessionId() != null) {
+                        sessionIds.add(parsed[i].sessionId());
+                    }
+                }
+                case EXPIRED -> {
+                    expiredCounter.increment();
+                    progress.expired++;
+                }
+                case INVALID -> invalid(progress);
+            }
+        }
+        tokens.clear();
+
+        // --- 2. JDBC のバッチ INSERT（既に登録済みのものは無視）、失効イベントの追記、
+        //        セッションのリフレッシュトークンの無効化を1トランザクションで行う ---
+        if (!revocations.isEmpty()) {
+            int[] counts = transactionTemplate.execute(status -> {
+                int[] result = jdbcTemplate.batchUpdate(INSERT_SQL, revocations, revocations.size(), (ps, revocation) -> {
+                    ps.setBytes(1, revocation.digest().bytes());
+                    ps.setLong(2, revocation.userId());
+                    ps.setObject(3, revocation.expiryDate());
+                })[0];
+                revocationEventService.publishTokenRevokedBatch(revocations);
+                if (!sessionIds.isEmpty()) {
+                    LocalDateTime now = LocalDateTime.now();
+                    jdbcTemplate.batchUpdate(REVOKE_FAMILY_SQL, sessionIds, sessionIds.size(), (ps, sessionId) -> {
+                        ps.setObject(1, now);
+                        ps.setString(2, sessionId);
+                    });
+                }
+                return result;
+            });
+
+            // --- 3. フィルターへ追加し、検証済みキャッシュから削除する ---
+            for (int i = 0; i < revocations.size(); i++) {
+                TokenDigest digest = revocations.get(i).digest();
+                revokedTokenFilter.add(digest);
+                verifiedTokenCache.invalidate(digest);
+
+                // 件数が返らないドライバー（SUCCESS_NO_INFO）の場合は登録として数える
+                if (counts != null && i < counts.length && counts[i] == 0) {
+                    duplicateCounter.increment();
+                    progress.duplicates++;
+                } else {
+                    revokedCounter.increment();
+                    progress.revoked++;
+                }
+            }
+        }
+
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    // トークンを検証し、登録対象の場合は parsed[i] に格納する（セッションIDも保持する）
+    private Outcome parse(String token, ParsedToken[] parsed, int i) {
+        if (!jwtService.isTokenFormatValid(token)) {
+            return Outcome.INVALID;
+        }
+        VerifiedToken verified = jwtService.verify(token);
+        if (verified.getFailure() == VerifiedToken.Failure.EXPIRED) {
+            return Outcome.EXPIRED;
+        }
+        if (!verified.isValid() || verified.getExpiration() == null) {
+            return Outcome.INVALID;
+        }
+
+        Long userId;
+        try {
+            userId = Long.valueOf(verified.getUserId());
+        } catch (NumberFormatException e) {
+            return Outcome.INVALID;
+        }
+
+        LocalDateTime expiry = verified.getExpiration().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+        parsed[i] = new ParsedToken(
+                new BlacklistWriteBehindQueue.PendingRevocation(TokenDigest.of(token), userId, expiry),
+                verified.getSessionId());
+        return Outcome.PENDING;
+    }
+
+    private void invalid(Progress progress) {
+        invalidCounter.increment();
+        progress.invalid++;
+    }
+
+    // 結果ごとのトークン件数のカウンター
+    private static Counter tokens(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("blacklist.bulk.tokens")
+                .tag("result", result)
+                .description("一括失効で処理したトークンの件数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 1行の長さに上限を設けて読み込むリーダー。
+     * BufferedReader#readLine は行全体を読み込むため、改行のない巨大な本文でメモリを使い切られる。
+     * 上限を超えた行は、改行までを読み捨てて空の文字列を返し、isOversize を true にする。
+     */
+    private static final class BoundedLineReader {
+
+        private final Reader reader;
+
+        // 1行の最大文字数（行末の \r を除く）
+        private final int maxLength;
+
+        private final char[] buffer = new char[8192];
+
+        private final StringBuilder line = new StringBuilder();
+
+        private int position;
+
+        private int limit;
+
+        // 直前に読んだ行が上限を超えていたかどうか
+        private boolean oversize;
+
+        BoundedLineReader(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * 次の1行を読み込む。
+         * @return 行の内容（改行を含まない。上限を超えた行は空の文字列）、本文の終わりの場合は null
+         */
+        String readLine() throws IOException {
+            line.setLength(0);
+            oversize = false;
+            boolean read = false;
+            while (true) {
+                if (position >= limit) {
+                    limit = reader.read(buffer, 0, buffer.length);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        return read ? finish() : null;
+                    }
+                }
+                char c = buffer[position++];
+                read = true;
+                if (c == '\n') {
+                    return finish();
+                }
+                if (oversize) {
+                    continue;
+                }
+                // 行末の \r の分だけ1文字多く保持し、超えた時点で内容を捨てる
+                if (line.length() > maxLength) {
+                    oversize = true;
+                    line.setLength(0);
+                } else {
+                    line.append(c);
+                }
+            }
+        }
+
+        boolean isOversize() {
+            return oversize;
+        }
+
+        // 行末の \r を除き、上限を超えていないか確認する
+        private String finish() {
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == '\r') {
+                line.setLength(--length);
+            }
+            if (length > maxLength) {
+                oversize = true;
+                return "";
+            }
+            return oversize ? "" : line.toString();
+        }
+    }
+
+    // 1回の一括失効の集計（リクエストを処理するスレッドだけが更新する）
+    private static final class Progress {
+        long lines;
+        long revoked;
+        long duplicates;
+        long expired;
+        long invalid;
+        long users;
+    }
+}
@@ -1,47 +1,94 @@
 package dvn.local.dvnjs.modules.users.services.impl;
 
-import java.util.Collections;
+import java.time.Duration;
 
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
 import dvn.local.dvnjs.modules.users.entities.User;
 import dvn.local.dvnjs.modules.users.repositories.UserRepository;
+import dvn.local.dvnjs.modules.users.security.AuthUser;
+import dvn.local.dvnjs.modules.users.security.UserAuthorities;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
-@RequiredArgsConstructor
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
     
     // ユーザー情報を取得するためのリポジトリ（データベース操作用）
     private final UserRepository userRepository;
 
+    // ユーザーカタログIDから権限を決める
+    private final UserAuthorities userAuthorities;
+
+    // 読み込んだプリンシパルのキャッシュ（ユーザーID → AuthUser）
+    // 同じユーザーIDの読み込みが同時に発生した場合、DB への問い合わせは1回にまとめられる
+    // エンティティの更新・削除は UserChangeListener がコミット後に無効化する。JPQL の一括更新はリスナーを通らないため、
+    // AuthUser に保持する列（ID・メール・名前・電話番号・カタログID）を一括更新で変更する場合は evict を呼ぶこと
+    private final LoadingCache<Long, AuthUser> cache;
+
+    public CustomUserDetailsService(
+        UserRepository userRepository,
+        UserAuthorities userAuthorities,
+        MeterRegistry meterRegistry,
+        @Value("${users.cache.maximum-size:10000}") long maximumSize,
+        @Value("${users.cache.ttl:60s}") Duration ttl
+    ) {
+        this.userRepository = userRepository;
+        this.userAuthorities = userAuthorities;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build(this::load);
+
+        // ヒット率・読み込み時間を cache.gets / cache.load.duration として公開
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users.details");
+    }
+
     /**
      * 認証時に呼び出されるメソッド。
      * 引数の userId（ここでは JWT の subject に格納された値）を使ってユーザー情報を検索する。
      * 
      * @param userId 認証対象ユーザーのID
-     * @return Spring Security で使用される UserDetails オブジェクト
+     * @return Spring Security で使用される UserDetails オブジェクト（ID・名前なども保持する AuthUser）
      * @throws UsernameNotFoundException ユーザーが存在しない場合にスローされる
      */
     @Override
-    public UserDetails loadUserByUsername(String userId) throws UsernameNotFoundException {
-
-        // データベースからユーザーを検索（存在しない場合は例外を投げる）
-        User user = userRepository.findById(Long.valueOf(userId))
-            .orElseThrow(() -> new UsernameNotFoundException("ユーザーが存在ございません。"));
-        
-        // Spring Security の User オブジェクトを返す
-        // 第1引数：ユーザー名（ここではメールアドレス）
-        // 第2引数：パスワード（ハッシュ化済み）
-        // 第3引数：権限リスト（ここでは空のリスト）
-        return new org.springframework.security.core.userdetails.User(
-            user.getEmail(),
-            user.getPassword(),
-            Collections.emptyList()
-        );
+    public AuthUser loadUserByUsername(String userId) throws UsernameNotFoundException {
+
+        // キャッシュから取得（存在しない場合は DB から読み込む）
+        AuthUser userDetails = cache.get(Long.valueOf(userId));
+        if (userDetails == null) {
+            throw new UsernameNotFoundException("ユーザーが存在ございません。");
+        }
+        return userDetails;
+    }
+
+    /**
+     * ユーザー情報が変更された場合にキャッシュから削除する。
+     * 
+     * @param userId 対象ユーザーのID
+     */
+    public void evict(Long userId) {
+        cache.invalidate(userId);
+    }
+
+    // データベースからユーザーを読み込む（存在しない場合は null を返し、キャッシュしない）
+    private AuthUser load(Long userId) {
+        User user = userRepository.findById(userId).orElse(null);
+        if (user == null) {
+            return null;
+        }
+
+        // ユーザー名（メールアドレス）に加え、ID・名前・電話番号・カタログIDを保持するプリンシパルを返す
+        // 権限リストはユーザーカタログIDから決める（運用者のカタログは OPS、それ以外は空のリスト）
+        return AuthUser.from(user, userAuthorities.of(user.getUserCatalogueId()));
     }
 }
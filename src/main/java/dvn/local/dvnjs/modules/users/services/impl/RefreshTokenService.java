@@ -0,0 +1,200 @@
+package dvn.local.dvnjs.modules.users.services.impl;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import dvn.local.dvnjs.helpers.TokenDigest;
+import dvn.local.dvnjs.modules.users.entities.RefreshToken;
+import dvn.local.dvnjs.modules.users.repositories.RefreshTokenRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * リフレッシュトークンの発行・ローテーション・無効化を行うサービスクラス。
+ *
+ * 主な仕様：
+ *  - リフレッシュトークンはランダムな32バイト（Base64URL）で、DB にはダイジェストのみを保存する
+ *  - 1回だけ使用でき、使用すると同じファミリー（ログイン1回分）の新しいトークンを発行する
+ *  - 使用済みのトークンが再度使われた場合は漏えいとみなし、ファミリー全体を無効化する
+ *  - ファミリーIDはアクセストークンのセッションID（sid）にも設定し、ログアウト時にファミリー全体を無効化する
+ *  - 全端末からのログアウトでは、ユーザーのトークンをすべて無効化する
+ *
+ * アクセストークンの有効期間（jwt.expiration）を数分にしても再ログインが不要になり、
+ * ブラックリストに残す期間も短くなる。
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    // 認証失敗時のメッセージ（理由は区別しない）
+    private static final String INVALID = "リフレッシュトークンが正しくありません。";
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    // リフレッシュトークンの有効期間
+    private final Duration expiration;
+
+    // 期限切れの削除で1回に削除する最大件数
+    private final int purgeBatchSize;
+
+    // ローテーションした件数
+    private final Counter rotations;
+
+    // 再使用を検知した件数
+    private final Counter reuseDetected;
+
+    /**
+     * ローテーションの結果
+     * @param userId 対象ユーザーID
+     * @param familyId ファミリーID（アクセストークンのセッションIDに使う）
+     * @param refreshToken 新しいリフレッシュトークン
+     */
+    public record Rotation(Long userId, String familyId, String refreshToken) {
+    }
+
+    public RefreshTokenService(
+        RefreshTokenRepository refreshTokenRepository,
+        MeterRegistry meterRegistry,
+        @Value("${jwt.refresh-expiration:14d}") Duration expiration,
+        @Value("${jwt.refresh-purge.batch-size:1000}") int purgeBatchSize
+    ) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.expiration = expiration;
+        this.purgeBatchSize = purgeBatchSize;
+
+        this.rotations = Counter.builder("refresh_token.rotations")
+                .description("ローテーションしたリフレッシュトークンの件数")
+                .register(meterRegistry);
+        this.reuseDetected = Counter.builder("refresh_token.reuse_detected")
+                .description("使用済みのリフレッシュトークンが再度使われた件数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * ログイン時に新しいファミリーのリフレッシュトークンを発行する。
+     * @param userId 対象ユーザーID
+     * @return リフレッシュトークン
+     */
+    public String issue(Long userId) {
+        return issue(userId, newFamilyId());
+    }
+
+    /**
+     * ログイン時に、指定したファミリーのリフレッシュトークンを発行する。
+     * @param userId 対象ユーザーID
+     * @param familyId ファミリーID（newFamilyId で作成し、アクセストークンのセッションIDにも設定する）
+     * @return リフレッシュトークン
+     */
+    public String issue(Long userId, String familyId) {
+        return create(userId, familyId);
+    }
+
+    /**
+     * 新しいファミリーID（ログイン1回分）を作成する。
+     */
+    public String newFamilyId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * リフレッシュトークンを使用済みにし、同じファミリーの新しいトークンを発行する。
+     * 使用済みのトークンが使われた場合はファミリー全体を無効化する（無効化は例外時もコミットする）。
+     *
+     * @param token クライアントから送られたリフレッシュトークン
+     * @return ユーザーID・ファミリーID・新しいリフレッシュトークン
+     * @throws BadCredentialsException トークンが存在しない・期限切れ・無効・使用済みの場合
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public Rotation rotate(String token) {
+        RefreshToken current = refreshTokenRepository.findByTokenHash(TokenDigest.of(token).bytes())
+                .orElseThrow(() -> new BadCredentialsException(INVALID));
+
+        LocalDateTime now = LocalDateTime.now();
+        if (current.getRevokedAt() != null || !current.getExpiryDate().isAfter(now)) {
+            throw new BadCredentialsException(INVALID);
+        }
+
+        // 1回だけ使用できる（同時に使われた場合も1件だけが成功し、残りは再使用として扱う）
+        if (current.getUsedAt() != null || refreshTokenRepository.markUsed(current.getId(), now) == 0) {
+            int revoked = refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+            reuseDetected.increment();
+            logger.warn("使用済みのリフレッシュトークンが再度使われました。ユーザーID: {}、無効化した件数: {}",
+                    current.getUserId(), revoked);
+            throw new BadCredentialsException(INVALID);
+        }
+
+        rotations.increment();
+        return new Rotation(current.getUserId(), current.getFamilyId(),
+                create(current.getUserId(), current.getFamilyId()));
+    }
+
+    /**
+     * ファミリー（ログイン1回分）のリフレッシュトークンをすべて無効化する（1端末からのログアウト）。
+     * @param familyId ファミリーID（アクセストークンのセッションID）
+     * @return 無効化した件数
+     */
+    public int revokeFamily(String familyId) {
+        return refreshTokenRepository.revokeFamily(familyId, LocalDateTime.now());
+    }
+
+    /**
+     * ユーザーのリフレッシュトークンをすべて無効化する（全端末からのログアウト）。
+     * @param userId 対象ユーザーID
+     */
+    public void revokeAll(Long userId) {
+        refreshTokenRepository.revokeAllByUserId(userId, LocalDateTime.now());
+    }
+
+    /**
+     * 期限切れのリフレッシュトークンを削除する（一定間隔で実行）。
+     */
+    @Scheduled(
+        initialDelayString = "${jwt.refresh-purge.interval:PT1H}",
+        fixedDelayString = "${jwt.refresh-purge.interval:PT1H}")
+    public void purgeExpired() {
+        try {
+            long total = 0;
+            int deleted;
+            do {
+                deleted = refreshTokenRepository.deleteExpiredBatch(LocalDateTime.now(), purgeBatchSize);
+                total += deleted;
+            } while (deleted == purgeBatchSize);
+
+            if (total > 0) {
+                logger.info("期限切れのリフレッシュトークンを削除しました。件数: {}", total);
+            }
+        } catch (RuntimeException e) {
+            logger.error("期限切れのリフレッシュトークンの削除中にエラーが発生しました: {}", e.getMessage());
+        }
+    }
+
+    // 新しいリフレッシュトークンを作成し、ダイジェストを保存する
+    private String create(Long userId, String familyId) {
+        byte[] random = new byte[32];
+        secureRandom.nextBytes(random);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(TokenDigest.of(token).bytes());
+        refreshToken.setUserId(userId);
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setExpiryDate(LocalDateTime.now().plus(expiration));
+        refreshTokenRepository.save(refreshToken);
+        return token;
+    }
+}
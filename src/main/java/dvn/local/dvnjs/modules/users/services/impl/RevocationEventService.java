@@ -0,0 +1,304 @@
+package dvn.local.dvnjs.modules.users.services.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import dvn.local.dvnjs.helpers.TokenDigest;
+import dvn.local.dvnjs.modules.users.entities.RevocationEvent;
+import dvn.local.dvnjs.modules.users.repositories.RevocationEventRepository;
+import dvn.local.dvnjs.services.VerifiedTokenCache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * インスタンス間で失効情報を伝播させるサービスクラス。
+ *
+ * 主な役割：
+ *  - 失効が発生したインスタンスは revocation_events にイベントを追記する
+ *  - 全インスタンスが revocation_events を id 順に定期取得し、ローカルのキャッシュ
+ *    （失効トークンのフィルター、検証済みトークンのキャッシュ、ユーザー単位の失効日時、
+ *    読み込み済みのユーザー情報）へ反映する
+ *  - 登録から反映までの遅延を revocation.propagation.delay として公開する
+ *
+ * AUTO_INCREMENT の id はコミット順と一致しない場合があるため、登録から一定時間（grace）が
+ * 経過するまでは取り込み位置を進めず、後から見えるようになった小さい id も取りこぼさない。
+ *
+ * 取り込みは専用のスレッドで実行する。@Scheduled の共有スケジューラーは期限切れトークンの削除
+ * （最大 blacklist.purge.max-run-time）やフィルターの再構築でふさがることがあり、その間も伝播を止めないため。
+ */
+@Service
+public class RevocationEventService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevocationEventService.class);
+
+    // このインスタンスのID（自分が発行したイベントは既にローカルへ反映済みのため取り込まない）
+    private final String origin = UUID.randomUUID().toString();
+
+    private final RevocationEventRepository revocationEventRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final RevokedTokenFilter revokedTokenFilter;
+
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    private final TokenEpochService tokenEpochService;
+
+    private final CustomUserDetailsService customUserDetailsService;
+
+    // 1回の取得件数
+    private final int batchSize;
+
+    // 取り込み位置を確定させるまでの猶予時間
+    private final Duration grace;
+
+    // イベントの保持期間
+    private final Duration retention;
+
+    // 取り込みの間隔
+    private final Duration pollInterval;
+
+    // 登録から反映までの遅延
+    private final Timer propagationDelay;
+
+    // 取り込み専用のスレッド
+    private final ScheduledExecutorService poller;
+
+    // 起動時の取り込み開始位置（ローカルのキャッシュを読み込む前に確定させる）
+    private long initialCursor;
+
+    // 取り込み位置（これ以下の id は反映済みで確定、起動完了までは -1）
+    private volatile long cursor = -1;
+
+    // 取り込み位置より後で、既に反映したイベントの id
+    private final Set<Long> applied = new HashSet<>();
+
+    public RevocationEventService(
+        RevocationEventRepository revocationEventRepository,
+        JdbcTemplate jdbcTemplate,
+        RevokedTokenFilter revokedTokenFilter,
+        VerifiedTokenCache verifiedTokenCache,
+        TokenEpochService tokenEpochService,
+        CustomUserDetailsService customUserDetailsService,
+        MeterRegistry meterRegistry,
+        @Value("${revocation.poll-interval:1s}") Duration pollInterval,
+        @Value("${revocation.poll-batch-size:500}") int batchSize,
+        @Value("${revocation.poll-grace:5s}") Duration grace,
+        @Value("${revocation.retention:P1D}") Duration retention
+    ) {
+        this.revocationEventRepository = revocationEventRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.revokedTokenFilter = revokedTokenFilter;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.tokenEpochService = tokenEpochService;
+        this.customUserDetailsService = customUserDetailsService;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.grace = grace;
+        this.retention = retention;
+
+        this.propagationDelay = Timer.builder("revocation.propagation.delay")
+                .description("他インスタンスで発生した失効がこのインスタンスへ反映されるまでの遅延")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "revocation-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 取り込み開始位置を最新のイベントに合わせてから、ユーザー単位の失効日時を読み込む。
+     * 開始位置より前のイベントは読み込み済みの状態に含まれ、後のイベントは取り込みで反映されるため、
+     * 読み込みと開始位置の確定の間に発生した失効を取りこぼさない。
+     */
+    @PostConstruct
+    public void init() {
+        initialCursor = revocationEventRepository.findMaxId().orElse(0L);
+        tokenEpochService.load();
+    }
+
+    /**
+     * 起動完了時に失効トークンのフィルターを構築し、init で確定させた位置から定期的な取り込みを開始する。
+     * フィルターの構築は開始位置の確定後に行う必要があるため、RevokedTokenFilter 自身ではなくここで実行する。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (cursor >= 0) {
+            return;
+        }
+        revokedTokenFilter.warmUp();
+        cursor = initialCursor;
+        long interval = Math.max(1, pollInterval.toMillis());
+        poller.scheduleWithFixedDelay(this::poll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止時に取り込みを終了する。
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        poller.shutdownNow();
+        poller.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * トークンの失効イベントを追記する。
+     * @param digest 失効したトークンのダイジェスト
+     * @param userId トークンのユーザーID
+     */
+    public void publishTokenRevoked(TokenDigest digest, Long userId) {
+        RevocationEvent event = new RevocationEvent();
+        event.setEventType(RevocationEvent.Type.TOKEN_REVOKED);
+        event.setTokenHash(digest.bytes());
+        event.setUserId(userId);
+        event.setOrigin(origin);
+        revocationEventRepository.save(event);
+    }
+
+    /**
+     * 複数のトークンの失効イベントを1回の複数行 INSERT で追記する。
+     * 呼び出し側のトランザクション内で実行される。
+     * @param revocations 失効したトークン
+     */
+    public void publishTokenRevokedBatch(List<BlacklistWriteBehindQueue.PendingRevocation> revocations) {
+        if (revocations.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO revocation_events (event_type, token_hash, user_id, origin, created_at) VALUES ");
+        List<Object> args = new ArrayList<>(revocations.size() * 5);
+        for (int i = 0; i < revocations.size(); i++) {
+            BlacklistWriteBehindQueue.PendingRevocation revocation = revocations.get(i);
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+            args.add(RevocationEvent.Type.TOKEN_REVOKED.name());
+            args.add(revocation.digest().bytes());
+            args.add(revocation.userId());
+            args.add(origin);
+            args.add(now);
+        }
+        jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+
+    /**
+     * ユーザーの全トークン一括失効イベントを追記する。
+     * @param userId 対象ユーザーID
+     */
+    public void publishUserTokensRevoked(Long userId) {
+        RevocationEvent event = new RevocationEvent();
+        event.setEventType(RevocationEvent.Type.USER_TOKENS_REVOKED);
+        event.setUserId(userId);
+        event.setOrigin(origin);
+        revocationEventRepository.save(event);
+    }
+
+    /**
+     * ユーザー情報の変更イベントを追記する。
+     * 変更元のトランザクションのコミット後に呼ばれるため、別トランザクションで登録する。
+     * @param userId 対象ユーザーID
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void publishUserChanged(Long userId) {
+        RevocationEvent event = new RevocationEvent();
+        event.setEventType(RevocationEvent.Type.USER_CHANGED);
+        event.setUserId(userId);
+        event.setOrigin(origin);
+        revocationEventRepository.save(event);
+    }
+
+    /**
+     * 新しいイベントを取得してローカルのキャッシュへ反映する（専用のスレッドで一定間隔で実行）。
+     */
+    public synchronized void poll() {
+        if (cursor < 0) {
+            return;
+        }
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime settled = now.minus(grace);
+            long from = cursor;
+            long newCursor = cursor;
+            boolean advancing = true;
+            List<RevocationEvent> events;
+
+            do {
+                events = revocationEventRepository.findNewerThan(from, PageRequest.of(0, batchSize));
+                for (RevocationEvent event : events) {
+                    if (applied.add(event.getId()) && !origin.equals(event.getOrigin())) {
+                        apply(event);
+                        propagationDelay.record(Duration.between(event.getCreatedAt(), now).abs());
+                    }
+                    // 猶予時間を過ぎたイベントが連続している間だけ取り込み位置を進める
+                    if (advancing && event.getCreatedAt().isBefore(settled)) {
+                        newCursor = event.getId();
+                    } else {
+                        advancing = false;
+                    }
+                    from = event.getId();
+                }
+            } while (events.size() == batchSize);
+
+            final long confirmed = newCursor;
+            applied.removeIf(id -> id <= confirmed);
+            cursor = confirmed;
+        } catch (RuntimeException e) {
+            logger.error("失効イベントの取り込み中にエラーが発生しました: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 保持期間を過ぎたイベントを削除する（一定間隔で実行）。
+     */
+    @Scheduled(initialDelayString = "PT1H", fixedDelayString = "PT1H")
+    public void purgeOldEvents() {
+        try {
+            LocalDateTime before = LocalDateTime.now().minus(retention);
+            while (revocationEventRepository.deleteOlderThan(before, 1000) == 1000) {
+                // 少量ずつ削除を繰り返す
+            }
+        } catch (RuntimeException e) {
+            logger.error("古い失効イベントの削除中にエラーが発生しました: {}", e.getMessage());
+        }
+    }
+
+    // イベントの種別に応じてローカルのキャッシュへ反映する
+    private void apply(RevocationEvent event) {
+        switch (event.getEventType()) {
+            case TOKEN_REVOKED -> {
+                TokenDigest digest = TokenDigest.wrap(event.getTokenHash());
+                revokedTokenFilter.add(digest);
+                verifiedTokenCache.invalidate(digest);
+            }
+            case USER_TOKENS_REVOKED -> tokenEpochService.refresh(event.getUserId());
+            case USER_CHANGED -> customUserDetailsService.evict(event.getUserId());
+        }
+    }
+}
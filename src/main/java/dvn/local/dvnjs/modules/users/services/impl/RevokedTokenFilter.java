@@ -0,0 +1,141 @@
+package dvn.local.dvnjs.modules.users.services.impl;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import dvn.local.dvnjs.helpers.BloomFilter;
+import dvn.local.dvnjs.helpers.TokenDigest;
+import dvn.local.dvnjs.modules.users.repositories.BlacklistedTokenRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 失効済みトークンのブルームフィルターを管理するサービスクラス。
+ *
+ * 主な役割：
+ *  - 起動時に blacklisted_tokens の有効期限内の行をストリームで読み込み、フィルターを構築する
+ *  - トークンの失効（BlackListService#create）のたびにフィルターへ追加する
+ *  - 定期的に作り直し、期限切れの要素を取り除く
+ *
+ * フィルターが「含まれていない」と判定したトークンは DB を参照せずに有効と判断できる。
+ * 構築が完了するまでは常に「含まれている可能性あり」を返し、DB で確認させる。
+ */
+@Service
+public class RevokedTokenFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevokedTokenFilter.class);
+
+    private final BlacklistedTokenRepository blacklistedTokenRepository;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    // 想定する失効トークン数
+    private final long expectedInsertions;
+
+    // 許容する偽陽性率
+    private final double falsePositiveRate;
+
+    // 現在使用中のフィルター（構築前は null）
+    private volatile BloomFilter current;
+
+    // 再構築中の新しいフィルター（再構築中以外は null）
+    private volatile BloomFilter next;
+
+    // DB参照を省略できた回数（確実に含まれていないと判定した回数）
+    private final AtomicLong negatives = new AtomicLong();
+
+    public RevokedTokenFilter(
+        BlacklistedTokenRepository blacklistedTokenRepository,
+        PlatformTransactionManager transactionManager,
+        MeterRegistry meterRegistry,
+        @Value("${blacklist.bloom.expected-insertions:1000000}") long expectedInsertions,
+        @Value("${blacklist.bloom.false-positive-rate:0.001}") double falsePositiveRate
+    ) {
+        this.blacklistedTokenRepository = blacklistedTokenRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+
+        FunctionCounter.builder("blacklist.bloom.negatives", negatives, AtomicLong::get)
+                .description("ブルームフィルターによりDB参照を省略した回数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 起動完了時にフィルターを構築する。
+     * 失効イベントの取り込み開始位置を確定させた後に構築するため、RevocationEventService#start から呼ばれる。
+     */
+    public void warmUp() {
+        rebuild();
+    }
+
+    /**
+     * 定期的にフィルターを作り直し、期限切れのトークンを取り除く。
+     */
+    @Scheduled(
+        initialDelayString = "${blacklist.bloom.rebuild-interval:PT1H}",
+        fixedDelayString = "${blacklist.bloom.rebuild-interval:PT1H}")
+    public synchronized void rebuild() {
+        BloomFilter fresh = new BloomFilter(expectedInsertions, falsePositiveRate);
+
+        // 再構築中の失効は新旧両方のフィルターへ追加される
+        next = fresh;
+        try {
+            long count = readOnlyTransaction.execute(status -> {
+                try (Stream<byte[]> hashes = blacklistedTokenRepository.streamActiveTokenHashes(LocalDateTime.now())) {
+                    return hashes.mapToLong(hash -> {
+                        fresh.put(TokenDigest.wrap(hash));
+                        return 1;
+                    }).sum();
+                }
+            });
+            current = fresh;
+            logger.info("失効トークンのフィルターを構築しました。件数: {}", count);
+        } catch (RuntimeException e) {
+            logger.error("失効トークンのフィルター構築に失敗しました: {}", e.getMessage());
+        } finally {
+            next = null;
+        }
+    }
+
+    /**
+     * 失効したトークンをフィルターへ追加する。
+     * @param digest トークンのダイジェスト
+     */
+    public void add(TokenDigest digest) {
+        // 再構築の切り替え（current 更新 → next クリア）と競合しないよう、next を先に読む
+        BloomFilter rebuilding = next;
+        if (rebuilding != null) {
+            rebuilding.put(digest);
+        }
+        BloomFilter filter = current;
+        if (filter != null) {
+            filter.put(digest);
+        }
+    }
+
+    /**
+     * トークンが失効済みである可能性があるかを判定する。
+     * @param digest トークンのダイジェスト
+     * @return 失効済みの可能性がある場合（または構築前）は true、確実に失効していない場合は false
+     */
+    public boolean mightBeRevoked(TokenDigest digest) {
+        BloomFilter filter = current;
+        if (filter == null || filter.mightContain(digest)) {
+            return true;
+        }
+        negatives.incrementAndGet();
+        return false;
+    }
+}
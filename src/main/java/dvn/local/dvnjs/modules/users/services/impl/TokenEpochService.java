@@ -0,0 +1,97 @@
+package dvn.local.dvnjs.modules.users.services.impl;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import dvn.local.dvnjs.modules.users.repositories.UserRepository;
+import dvn.local.dvnjs.services.VerifiedToken;
+
+/**
+ * ユーザー単位のトークン一括失効（全端末からのログアウト）を管理するサービスクラス。
+ *
+ * 主な役割：
+ *  - users.tokens_revoked_at（この日時以前に発行されたトークンは無効）を更新する
+ *  - 全ユーザー分の失効日時をメモリ上のマップに保持し、検証時に O(1) で判定する
+ *
+ * JWT の iat は秒単位のため、失効日時も秒単位に切り捨てて保持し、
+ * 「iat が失効日時以前」のトークンを無効とする（同じ秒に発行されたトークンも無効になる）。
+ */
+@Service
+public class TokenEpochService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenEpochService.class);
+
+    private final UserRepository userRepository;
+
+    // ユーザーID → 失効日時（エポック秒）
+    private final Map<Long, Long> epochs = new ConcurrentHashMap<>();
+
+    public TokenEpochService(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * 起動時に失効日時が設定されているユーザーを読み込む。
+     * 失効イベントの取り込み開始位置を確定させた後に読み込むため、RevocationEventService#init から呼ばれる。
+     */
+    public void load() {
+        for (Object[] row : userRepository.findAllTokensRevokedAt()) {
+            epochs.put((Long) row[0], toEpochSecond((LocalDateTime) row[1]));
+        }
+        logger.info("トークン一括失効の設定を読み込みました。件数: {}", epochs.size());
+    }
+
+    /**
+     * 指定ユーザーのこれまでに発行されたトークンをすべて無効にする。
+     * @param userId ユーザーID
+     * @return 失効日時を更新した場合 true（ユーザーが存在しない場合は false）
+     */
+    public boolean revokeAll(Long userId) {
+        LocalDateTime revokedAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        if (userRepository.updateTokensRevokedAt(userId, revokedAt) == 0) {
+            return false;
+        }
+        epochs.put(userId, toEpochSecond(revokedAt));
+        return true;
+    }
+
+    /**
+     * 指定ユーザーの失効日時を DB から読み直す（他インスタンスでの変更を反映する）。
+     * @param userId ユーザーID
+     */
+    public void refresh(Long userId) {
+        userRepository.findTokensRevokedAtById(userId).ifPresentOrElse(
+            revokedAt -> epochs.put(userId, toEpochSecond(revokedAt)),
+            () -> epochs.remove(userId));
+    }
+
+    /**
+     * トークンがユーザー単位の一括失効により無効になっているかを判定する。
+     * @param verifiedToken 検証済みトークン
+     * @return 無効の場合 true
+     */
+    public boolean isRevoked(VerifiedToken verifiedToken) {
+        if (epochs.isEmpty()) {
+            return false;
+        }
+        Long epoch = epochs.get(Long.valueOf(verifiedToken.getUserId()));
+        if (epoch == null) {
+            return false;
+        }
+        Date issuedAt = verifiedToken.getIssuedAt();
+        return issuedAt == null || issuedAt.getTime() / 1000 <= epoch;
+    }
+
+    // LocalDateTime → エポック秒（BlackListService と同じくシステムのタイムゾーンで変換）
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+}
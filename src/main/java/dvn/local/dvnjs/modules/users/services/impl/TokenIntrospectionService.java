@@ -0,0 +1,191 @@
+package dvn.local.dvnjs.modules.users.services.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import dvn.local.dvnjs.helpers.TokenDigest;
+import dvn.local.dvnjs.modules.users.repositories.BlacklistedTokenRepository;
+import dvn.local.dvnjs.modules.users.resources.TokenIntrospectionResource;
+import dvn.local.dvnjs.services.JwtService;
+import dvn.local.dvnjs.services.VerifiedToken;
+import dvn.local.dvnjs.services.VerifiedTokenCache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 複数のトークンをまとめて検証する（イントロスペクション）サービスクラス。
+ *
+ * 処理の流れ：
+ *  1. 形式確認と署名・発行者・有効期限の検証を、専用のスレッドプールでコア数分並列に行う
+ *     （検証済みトークンのキャッシュにあるものは検証を省略する）
+ *  2. 書き込み待ちの失効とブルームフィルターで候補を絞り、残りのブラックリスト確認を1回のクエリで行う
+ *  3. ユーザー単位の一括失効（全端末からのログアウト）を確認する
+ *
+ * 結果はリクエストと同じ順番で返す。ユーザーの存在確認は行わない（/api/v1/me と異なり DB のユーザーは読まない）。
+ */
+@Service
+public class TokenIntrospectionService {
+
+    private final JwtService jwtService;
+
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    private final BlacklistWriteBehindQueue blacklistWriteBehindQueue;
+
+    private final RevokedTokenFilter revokedTokenFilter;
+
+    private final BlacklistedTokenRepository blacklistedTokenRepository;
+
+    private final TokenEpochService tokenEpochService;
+
+    // 署名検証用のスレッドプール（共通プールを使う他の処理と競合しないよう分ける）
+    private final ForkJoinPool pool;
+
+    // この件数未満の場合は並列化せず、呼び出し元のスレッドで検証する
+    private final int parallelThreshold;
+
+    // 1回のリクエストで受け取ったトークンの件数
+    private final DistributionSummary batchSize;
+
+    // 有効と判定した件数
+    private final Counter active;
+
+    // 有効でないと判定した件数
+    private final Counter inactive;
+
+    public TokenIntrospectionService(
+        JwtService jwtService,
+        VerifiedTokenCache verifiedTokenCache,
+        BlacklistWriteBehindQueue blacklistWriteBehindQueue,
+        RevokedTokenFilter revokedTokenFilter,
+        BlacklistedTokenRepository blacklistedTokenRepository,
+        TokenEpochService tokenEpochService,
+        MeterRegistry meterRegistry,
+        @Value("${introspection.threads:0}") int threads,
+        @Value("${introspection.parallel-threshold:16}") int parallelThreshold
+    ) {
+        this.jwtService = jwtService;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.blacklistWriteBehindQueue = blacklistWriteBehindQueue;
+        this.revokedTokenFilter = revokedTokenFilter;
+        this.blacklistedTokenRepository = blacklistedTokenRepository;
+        this.tokenEpochService = tokenEpochService;
+        this.parallelThreshold = parallelThreshold;
+
+        // 0 以下の場合はコア数に合わせる
+        this.pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+
+        this.batchSize = DistributionSummary.builder("introspection.batch_size")
+                .description("1回の一括検証で受け取ったトークンの件数")
+                .register(meterRegistry);
+        this.active = Counter.builder("introspection.tokens")
+                .tag("active", "true")
+                .description("一括検証したトークンの件数")
+                .register(meterRegistry);
+        this.inactive = Counter.builder("introspection.tokens")
+                .tag("active", "false")
+                .description("一括検証したトークンの件数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * トークンをまとめて検証する。
+     * @param tokens 検証するトークン
+     * @return トークンごとの検証結果（tokens と同じ順番）
+     */
+    public List<TokenIntrospectionResource> introspect(List<String> tokens) {
+        final int size = tokens.size();
+        batchSize.record(size);
+
+        // --- 1. 署名・発行者・有効期限の検証（無効な場合は null） ---
+        final TokenDigest[] digests = new TokenDigest[size];
+        final VerifiedToken[] verified = new VerifiedToken[size];
+        final boolean[] cached = new boolean[size];
+
+        IntStream indexes = IntStream.range(0, size);
+        if (size < parallelThreshold) {
+            indexes.forEach(i -> verifyAt(tokens, i, digests, verified, cached));
+        } else {
+            pool.submit(() -> indexes.parallel().forEach(i -> verifyAt(tokens, i, digests, verified, cached))).join();
+        }
+
+        // --- 2. ブラックリスト確認（DB は候補のみを1回で確認） ---
+        final Set<TokenDigest> revoked = new HashSet<>();
+        final List<byte[]> candidates = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (verified[i] == null || cached[i]) {
+                continue;
+            }
+            if (blacklistWriteBehindQueue.isPending(digests[i])) {
+                revoked.add(digests[i]);
+            } else if (revokedTokenFilter.mightBeRevoked(digests[i])) {
+                candidates.add(digests[i].bytes());
+            }
+        }
+        if (!candidates.isEmpty()) {
+            for (byte[] hash : blacklistedTokenRepository.findRegisteredTokenHashes(candidates)) {
+                revoked.add(TokenDigest.wrap(hash));
+            }
+        }
+
+        // --- 3. ユーザー単位の一括失効を確認し、結果を作成 ---
+        final List<TokenIntrospectionResource> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            VerifiedToken token = verified[i];
+            if (token == null || revoked.contains(digests[i]) || tokenEpochService.isRevoked(token)) {
+                inactive.increment();
+                results.add(TokenIntrospectionResource.INACTIVE);
+                continue;
+            }
+            active.increment();
+            results.add(new TokenIntrospectionResource(
+                    true,
+                    token.getUserId(),
+                    token.getEmail(),
+                    token.getExpiration() == null ? null : token.getExpiration().getTime() / 1000));
+        }
+        return results;
+    }
+
+    /**
+     * 停止時にスレッドプールを終了する。
+     */
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // i 番目のトークンを検証し、結果を配列に格納する（要素ごとに書き込み先が異なるため同期は不要）
+    private void verifyAt(List<String> tokens, int i, TokenDigest[] digests, VerifiedToken[] verified, boolean[] cached) {
+        String token = tokens.get(i);
+        if (token == null || !jwtService.isTokenFormatValid(token)) {
+            return;
+        }
+        TokenDigest digest = TokenDigest.of(token);
+        digests[i] = digest;
+
+        // キャッシュにあるものは検証・ブラックリスト確認済み
+        VerifiedToken hit = verifiedTokenCache.get(digest);
+        if (hit != null) {
+            verified[i] = hit;
+            cached[i] = true;
+            return;
+        }
+
+        VerifiedToken result = jwtService.verify(token);
+        if (result.isValid()) {
+            verified[i] = result;
+        }
+    }
+}
@@ -8,17 +8,18 @@ import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 import dvn.local.dvnjs.modules.users.services.interfaces.UserServiceInterface;
 import dvn.local.dvnjs.services.BaseService;
 import dvn.local.dvnjs.modules.users.requests.LoginRequest;
+import dvn.local.dvnjs.modules.users.requests.RefreshTokenRequest;
 import dvn.local.dvnjs.modules.users.resources.LoginResource;
 import dvn.local.dvnjs.modules.users.resources.UserResource;
 import dvn.local.dvnjs.modules.users.entities.User;
 import dvn.local.dvnjs.modules.users.repositories.UserRepository;
 import dvn.local.dvnjs.resources.ErrorResource;
 import dvn.local.dvnjs.services.JwtService;
+import dvn.local.dvnjs.services.PasswordHashingExecutor;
 
 @Service // サービス層を表すアノテーション。ビジネスロジックを担当するクラス。
 public class UserService extends BaseService implements UserServiceInterface {
@@ -30,11 +31,14 @@ public class UserService extends BaseService implements UserServiceInterface {
     private JwtService jwtService; // JWTトークン生成サービス
 
     @Autowired
-    private PasswordEncoder passwordEncoder; // パスワード暗号化・照合用
+    private PasswordHashingExecutor passwordHashingExecutor; // パスワード照合用（専用スレッドで実行）
 
     @Autowired
     private UserRepository userRepository; // ユーザー情報を操作するリポジトリ
 
+    @Autowired
+    private RefreshTokenService refreshTokenService; // リフレッシュトークンの発行・ローテーション
+
     /**
      * ユーザー認証処理を行うメソッド
      * 
@@ -53,40 +57,79 @@ public class UserService extends BaseService implements UserServiceInterface {
 
             // --- パスワードの一致確認 ---
             // 入力されたパスワードとDB上の暗号化済みパスワードを比較
-            if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+            // （混み合っている場合は PasswordHashingRejectedException が投げられ、503 が返る）
+            if (!passwordHashingExecutor.matches(request.getPassword(), user.getPassword())) {
                 // 一致しない場合も同じ例外を投げる（セキュリティのため詳細は区別しない）
                 throw new BadCredentialsException("メールアドレスあるいはパスワードが正しくありません。");
             }
 
-            // --- JWTトークン生成 ---
-            String token = jwtService.generateToken(user.getId(), user.getEmail());
+            // --- コストが現在の設定と異なる場合は、応答を待たせずに再ハッシュして保存 ---
+            final Long userId = user.getId();
+            final String currentPassword = user.getPassword();
+            passwordHashingExecutor.rehashIfNeeded(request.getPassword(), currentPassword,
+                    newPassword -> userRepository.replacePassword(userId, currentPassword, newPassword));
 
-            // --- レスポンス用のユーザー情報を作成 ---
-            UserResource userResource = new UserResource(
-                    user.getId(),
-                    user.getEmail(),
-                    user.getName(),
-                    user.getPhone());
+            // --- JWTトークンと新しいファミリーのリフレッシュトークンを生成（ファミリーIDをセッションIDとして埋め込む） ---
+            String familyId = refreshTokenService.newFamilyId();
+            String token = jwtService.generateToken(user, familyId);
+            String refreshToken = refreshTokenService.issue(user.getId(), familyId);
 
             // --- 成功時のレスポンス（トークン＋ユーザー情報）を返す ---
-            return new LoginResource(token, userResource);
+            return new LoginResource(token, refreshToken, toResource(user));
 
         } catch (BadCredentialsException e) {
             // --- 認証失敗時の処理 ---
             // エラーログを出力
             logger.error("認証処理中にエラーが発生しました。", e.getMessage());
 
-            // --- エラーレスポンスを作成 ---
-            Map<String, String> errors = new HashMap<>();
-            errors.put("message", e.getMessage());
+            // --- エラー内容を返す ---
+            return error("認証処理中にエラーが発生しました。", e);
+        }
+    }
+
+    /**
+     * リフレッシュトークンで新しいアクセストークンを発行するメソッド
+     * リフレッシュトークンは1回だけ使用でき、新しいリフレッシュトークンと交換する。
+     *
+     * @param request リフレッシュリクエスト（リフレッシュトークンを含む）
+     * @return 成功時は LoginResource（新しいトークン＋ユーザー情報）、
+     *         失敗時は ErrorResource（エラーメッセージ）を返す
+     */
+    @Override
+    public Object refresh(RefreshTokenRequest request) {
+        try {
+            // --- リフレッシュトークンを使用済みにし、新しいトークンを発行（再使用時はファミリーごと無効化） ---
+            RefreshTokenService.Rotation rotation = refreshTokenService.rotate(request.getRefreshToken());
+
+            // --- ユーザーを取得（削除済みの場合は失敗） ---
+            User user = userRepository.findById(rotation.userId())
+                    .orElseThrow(() -> new BadCredentialsException("リフレッシュトークンが正しくありません。"));
 
-            ErrorResource errorResource = new ErrorResource(
-                    "認証処理中にエラーが発生しました。",
-                    errors);
+            // --- 新しいアクセストークンを生成（同じファミリーのセッションIDを引き継ぐ） ---
+            String token = jwtService.generateToken(user, rotation.familyId());
 
-            // --- エラー内容を返す ---
-            return errorResource;
+            return new LoginResource(token, rotation.refreshToken(), toResource(user));
+
+        } catch (BadCredentialsException e) {
+            logger.warn("トークンの再発行に失敗しました: {}", e.getMessage());
+            return error("トークンの再発行中にエラーが発生しました。", e);
         }
     }
+
+    // レスポンス用のユーザー情報を作成する
+    private static UserResource toResource(User user) {
+        return new UserResource(
+                user.getId(),
+                user.getEmail(),
+                user.getName(),
+                user.getPhone());
+    }
+
+    // エラーレスポンスを作成する
+    private static ErrorResource error(String message, BadCredentialsException e) {
+        Map<String, String> errors = new HashMap<>();
+        errors.put("message", e.getMessage());
+        return new ErrorResource(message, errors);
+    }
     
 }
@@ -1,11 +1,14 @@
 package dvn.local.dvnjs.modules.users.services.interfaces;
 
 import dvn.local.dvnjs.modules.users.requests.LoginRequest;
+import dvn.local.dvnjs.modules.users.requests.RefreshTokenRequest;
 
 public interface UserServiceInterface {
 
     Object authenticate(LoginRequest request);
 
+    Object refresh(RefreshTokenRequest request);
+
     
     
 }
@@ -0,0 +1,127 @@
+package dvn.local.dvnjs.services;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 【概要】
+ * JWT 認証フィルターの段階ごとの処理時間と、拒否理由ごとの件数を記録するクラス。
+ *
+ * 認証の遅延が増えたときに、署名検証・ブラックリスト照会・ユーザー読み込み・
+ * エラーレスポンスの書き込みのどこに時間がかかっているかを切り分けるために使う。
+ *
+ * auth.metrics.enabled=false の場合は時刻の取得もカウンターの更新も行わない。
+ * メーターは起動時に作成しておき、リクエストごとにタグを組み立てない。
+ */
+@Component
+public class AuthMetrics {
+
+    /**
+     * 計測する処理段階
+     */
+    public enum Stage {
+        FORMAT,     // トークン形式の事前確認
+        VERIFY,     // 署名・発行者・有効期限の検証（HMAC）
+        BLACKLIST,  // ブラックリストの照会
+        EPOCH,      // ユーザー単位の一括失効の確認
+        USER_LOAD,  // ユーザー情報の読み込み
+        RESPONSE,   // エラーレスポンスの書き込み
+        TOTAL       // フィルター全体
+    }
+
+    /**
+     * 拒否理由
+     */
+    public enum Rejection {
+        MISSING_HEADER,  // Authorization ヘッダーがない
+        BAD_FORMAT,      // 形式不正
+        BAD_SIGNATURE,   // 署名不正
+        WRONG_ISSUER,    // 発行者不一致
+        EXPIRED,         // 有効期限切れ
+        NOT_YET_VALID,   // 有効期間の開始前
+        BLACKLISTED,     // ブラックリスト登録済み（一括失効を含む）
+        EMAIL_MISMATCH   // トークンとユーザーのメールアドレスが不一致
+    }
+
+    private final boolean enabled;
+
+    // 段階ごとのタイマー（Stage の序数で参照する）
+    private final Timer[] stageTimers;
+
+    // 拒否理由ごとのカウンター（Rejection の序数で参照する）
+    private final Counter[] rejections;
+
+    public AuthMetrics(
+        MeterRegistry meterRegistry,
+        @Value("${auth.metrics.enabled:true}") boolean enabled
+    ) {
+        this.enabled = enabled;
+        this.stageTimers = new Timer[Stage.values().length];
+        this.rejections = new Counter[Rejection.values().length];
+        if (!enabled) {
+            return;
+        }
+
+        for (Stage stage : Stage.values()) {
+            stageTimers[stage.ordinal()] = Timer.builder("auth.filter.stage")
+                    .description("JWT 認証フィルターの段階ごとの処理時間")
+                    .tag("stage", stage.name().toLowerCase())
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+        }
+        for (Rejection rejection : Rejection.values()) {
+            rejections[rejection.ordinal()] = Counter.builder("auth.filter.rejections")
+                    .description("JWT 認証フィルターで拒否したリクエストの件数")
+                    .tag("reason", rejection.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 計測の開始時刻を返す（無効な場合は 0）。
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * start() からの経過時間を段階の処理時間として記録する。
+     * @param stage 処理段階
+     * @param startNanos start() が返した値
+     */
+    public void record(Stage stage, long startNanos) {
+        if (enabled) {
+            stageTimers[stage.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 拒否件数を1件加算する。
+     * @param rejection 拒否理由
+     */
+    public void reject(Rejection rejection) {
+        if (enabled) {
+            rejections[rejection.ordinal()].increment();
+        }
+    }
+
+    /**
+     * 検証失敗の理由を拒否理由に変換して加算する。
+     * @param failure JwtService#verify が返した失敗理由
+     */
+    public void reject(VerifiedToken.Failure failure) {
+        reject(switch (failure) {
+            case MALFORMED -> Rejection.BAD_FORMAT;
+            case BAD_SIGNATURE -> Rejection.BAD_SIGNATURE;
+            case WRONG_ISSUER -> Rejection.WRONG_ISSUER;
+            case EXPIRED -> Rejection.EXPIRED;
+            case NOT_YET_VALID -> Rejection.NOT_YET_VALID;
+        });
+    }
+}
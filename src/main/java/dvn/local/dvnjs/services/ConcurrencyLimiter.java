@@ -0,0 +1,222 @@
+package dvn.local.dvnjs.services;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 【概要】
+ * 同時に処理するリクエスト数の上限を、観測した応答時間から自動で調整するクラス（gradient 方式）。
+ *
+ * 固定のスレッド数では、MySQL が遅くなったときに待ち行列が伸び続け、最終的にすべてのリクエストが
+ * タイムアウトする。ここでは応答時間が平常時より伸びた分だけ上限を下げ、超えたリクエストは
+ * 待たせずに即座に拒否する。
+ *
+ * 調整方法（window ごとに1回）：
+ *  - shortRtt : 直近の window の平均応答時間
+ *  - longRtt  : 平常時の応答時間（shortRtt の指数移動平均）
+ *  - gradient = clamp(tolerance × longRtt / shortRtt, 0.5, 1.0)
+ *  - newLimit = limit × gradient + √limit（応答時間が平常なら少しずつ上限を上げる）
+ *  - 同時実行数が上限の半分にも届いていない場合は、上限を上げない
+ *  - limit = limit × (1 - smoothing) + newLimit × smoothing（min-limit 〜 max-limit の範囲）
+ *
+ * 優先度：
+ *  - LOGIN   : /api/v1/auth/login。上限の login-share の割合までしか使えない
+ *  - DEFAULT : それ以外。上限いっぱいまで使える
+ * ログインの応答時間は BCrypt の計算時間が大半を占め DB の混雑を表さないため、調整には使わない。
+ */
+@Service
+public class ConcurrencyLimiter {
+
+    /**
+     * 優先度
+     */
+    public enum Priority {
+        LOGIN,
+        DEFAULT
+    }
+
+    // 制限を行うかどうか
+    private final boolean enabled;
+
+    // 上限の範囲
+    private final int minLimit;
+    private final int maxLimit;
+
+    // ログインが使える上限の割合
+    private final double loginShare;
+
+    // 平常時の応答時間に対して許容する倍率
+    private final double tolerance;
+
+    // 上限の変化を滑らかにする係数
+    private final double smoothing;
+
+    // 調整を行う間隔
+    private final long windowNanos;
+
+    // 現在の上限（小数で保持し、判定には切り捨てた値を使う）
+    private volatile double limit;
+
+    // 平常時の応答時間（ナノ秒）
+    private double longRtt;
+
+    // 処理中のリクエスト数（全体・優先度ごと）
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger[] inFlightByPriority = { new AtomicInteger(), new AtomicInteger() };
+
+    // 拒否した件数（優先度ごと）
+    private final Counter[] shed = new Counter[Priority.values().length];
+
+    // 現在の window の集計
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final LongAdder windowRttSum = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final AtomicInteger windowMaxInFlight = new AtomicInteger();
+
+    public ConcurrencyLimiter(
+        MeterRegistry meterRegistry,
+        @Value("${concurrency-limit.enabled:true}") boolean enabled,
+        @Value("${concurrency-limit.initial-limit:20}") int initialLimit,
+        @Value("${concurrency-limit.min-limit:8}") int minLimit,
+        @Value("${concurrency-limit.max-limit:500}") int maxLimit,
+        @Value("${concurrency-limit.login-share:0.3}") double loginShare,
+        @Value("${concurrency-limit.tolerance:1.5}") double tolerance,
+        @Value("${concurrency-limit.smoothing:0.2}") double smoothing,
+        @Value("${concurrency-limit.window:100ms}") Duration window
+    ) {
+        this.enabled = enabled;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.loginShare = loginShare;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.windowNanos = window.toNanos();
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+
+        Gauge.builder("concurrency.limit", this, ConcurrencyLimiter::getLimit)
+                .description("現在の同時実行数の上限")
+                .register(meterRegistry);
+        for (Priority priority : Priority.values()) {
+            String name = priority.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("concurrency.in_flight", inFlightByPriority[priority.ordinal()], AtomicInteger::get)
+                    .description("処理中のリクエスト数")
+                    .tag("priority", name)
+                    .register(meterRegistry);
+            shed[priority.ordinal()] = Counter.builder("concurrency.shed")
+                    .description("同時実行数の上限を超えたため拒否したリクエストの件数")
+                    .tag("priority", name)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 処理枠を1つ確保する。確保できた場合は必ず release を呼ぶこと。
+     * @param priority 優先度
+     * @return 確保できた場合 true（上限を超えた場合は false で、待たせずに拒否する）
+     */
+    public boolean tryAcquire(Priority priority) {
+        if (!enabled) {
+            return true;
+        }
+        final int current = (int) limit;
+        final AtomicInteger own = inFlightByPriority[priority.ordinal()];
+
+        // ログインは上限の一部しか使えない（認証済みの参照系が締め出されないように）
+        if (priority == Priority.LOGIN && own.incrementAndGet() > Math.max(1, (int) (current * loginShare))) {
+            own.decrementAndGet();
+            shed[priority.ordinal()].increment();
+            return false;
+        }
+        final int total = inFlight.incrementAndGet();
+        if (total > current) {
+            inFlight.decrementAndGet();
+            if (priority == Priority.LOGIN) {
+                own.decrementAndGet();
+            }
+            shed[priority.ordinal()].increment();
+            return false;
+        }
+        if (priority != Priority.LOGIN) {
+            own.incrementAndGet();
+        }
+        if (total > windowMaxInFlight.get()) {
+            windowMaxInFlight.accumulateAndGet(total, Math::max);
+        }
+        return true;
+    }
+
+    /**
+     * 処理枠を返却し、応答時間を上限の調整に使う。
+     * @param priority 優先度
+     * @param startNanos 処理開始時の System.nanoTime()
+     */
+    public void release(Priority priority, long startNanos) {
+        if (!enabled) {
+            return;
+        }
+        inFlightByPriority[priority.ordinal()].decrementAndGet();
+        inFlight.decrementAndGet();
+
+        final long now = System.nanoTime();
+        if (priority != Priority.LOGIN) {
+            windowRttSum.add(now - startNanos);
+            windowSamples.increment();
+        }
+
+        // window が終わっていれば、1つのスレッドだけが上限を更新する
+        final long start = windowStart.get();
+        if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+            update();
+        }
+    }
+
+    /**
+     * 現在の上限を返す。
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    // window の集計から上限を更新する（window ごとに1スレッドだけが呼ぶが、longRtt の可視性のため同期する）
+    private synchronized void update() {
+        final long samples = windowSamples.sumThenReset();
+        final long rttSum = windowRttSum.sumThenReset();
+        final int maxInFlight = windowMaxInFlight.getAndSet(0);
+        if (samples == 0) {
+            return;
+        }
+
+        final double shortRtt = (double) rttSum / samples;
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt = longRtt * 0.95 + shortRtt * 0.05;
+        }
+        // 応答時間が平常時より大きく下がった場合は、平常時の値を早めに追従させる
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.9;
+        }
+
+        final double current = limit;
+        final double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+        double newLimit = current * gradient + Math.sqrt(current);
+
+        // 上限まで使われていない場合は、上限を上げても意味がない
+        if (maxInFlight < current / 2) {
+            newLimit = Math.min(newLimit, current);
+        }
+
+        newLimit = current * (1 - smoothing) + newLimit * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+}
@@ -0,0 +1,218 @@
+package dvn.local.dvnjs.services;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import dvn.local.dvnjs.config.JwtConfig;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+
+/**
+ * 【概要】
+ * JWT の署名鍵を kid（JWS ヘッダーの鍵ID）ごとに保持する鍵リング。
+ *
+ * 主な仕様：
+ *  - 新しいトークンは有効な鍵（active）で署名し、ヘッダーに kid を設定する
+ *  - 検証時は kid から鍵を引く。古い鍵もリングに残しておけば、そのトークンが期限切れになるまで検証できる
+ *  - kid のないトークン（鍵リング導入前に発行したもの）は jwt.secret の鍵で検証する
+ *    （jwt.legacy.enabled=false の場合は検証せず、鍵ファイルを使う場合は jwt.secret の鍵もリングに加えない）
+ *  - 鍵は読み込み時に1回だけ生成し、検証時は HashMap の参照だけを行う（割り当てなし）
+ *  - jwt.keys-file を指定した場合は、ファイルの更新を定期的に確認し、再起動せずに差し替える
+ *
+ * 鍵ファイルの形式（properties）：
+ *   active=2026-10
+ *   2026-09=<古いシークレット>
+ *   2026-10=<新しいシークレット>
+ *
+ * ローテーション手順：新しい鍵を追加して active を切り替え、古い鍵は jwt.expiration が経過してから削除する。
+ * 複数ノードの場合は、先に全ノードへ新しい鍵を追加してから active を切り替えること。
+ * jwt.secret を廃止する場合は、鍵ファイルの鍵に切り替えてから jwt.expiration が経過した後に
+ * jwt.legacy.enabled=false にする（kid のないトークンと jwt.secret の kid のトークンは署名不正になる）。
+ */
+@Component
+public class JwtKeyRing extends SigningKeyResolverAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    // 鍵ファイルで有効な鍵を指定する項目名
+    private static final String ACTIVE = "active";
+
+    // リングにない kid のトークンを拒否するための例外（検証のたびに作らないよう使い回す）
+    private static final SignatureException UNKNOWN_KEY = new UnknownKeyException();
+
+    /**
+     * 署名に使う鍵と、その kid
+     */
+    public record SigningKey(String kid, Key key) {
+    }
+
+    /**
+     * ある時点の鍵リングの内容（差し替えは参照の入れ替えだけで行う）
+     */
+    private record Snapshot(SigningKey active, Map<String, Key> keys, long lastModified) {
+    }
+
+    // kid のないトークンの検証に使う鍵（jwt.secret。jwt.legacy.enabled=false の場合は null）
+    private final Key legacyKey;
+
+    // jwt.secret の鍵
+    private final Key secretKey;
+
+    // jwt.secret の鍵に付ける kid
+    private final String defaultKid;
+
+    // 鍵ファイル（指定されていない場合は null）
+    private final Path keysFile;
+
+    private volatile Snapshot snapshot;
+
+    public JwtKeyRing(
+        JwtConfig jwtConfig,
+        @Value("${jwt.kid:default}") String defaultKid,
+        @Value("${jwt.keys-file:}") String keysFile,
+        @Value("${jwt.legacy.enabled:true}") boolean legacyEnabled
+    ) {
+        this.secretKey = toKey(jwtConfig.getSecretKey());
+        this.legacyKey = legacyEnabled ? secretKey : null;
+        this.defaultKid = defaultKid;
+        this.keysFile = keysFile == null || keysFile.isBlank() ? null : Path.of(keysFile);
+        this.snapshot = new Snapshot(new SigningKey(defaultKid, secretKey), Map.of(defaultKid, secretKey), 0L);
+        if (this.keysFile != null) {
+            reload();
+        }
+    }
+
+    /**
+     * 新しいトークンの署名に使う鍵を返す。
+     */
+    public SigningKey active() {
+        return snapshot.active();
+    }
+
+    /**
+     * kid に対応する検証用の鍵を返す。
+     * @param kid JWS ヘッダーの kid（null の場合は jwt.secret の鍵）
+     * @return 鍵（リングにない場合、または kid が null で jwt.legacy.enabled=false の場合は null）
+     */
+    public Key find(String kid) {
+        return kid == null ? legacyKey : snapshot.keys().get(kid);
+    }
+
+    /**
+     * jjwt のパーサーから呼ばれ、ヘッダーの kid に対応する鍵を返す。
+     */
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        return resolve(header);
+    }
+
+    @Override
+    public Key resolveSigningKey(JwsHeader header, String plaintext) {
+        return resolve(header);
+    }
+
+    /**
+     * 鍵ファイルが更新されていれば読み込み直す。
+     */
+    @Scheduled(
+        initialDelayString = "${jwt.keys-reload-interval:10s}",
+        fixedDelayString = "${jwt.keys-reload-interval:10s}")
+    public void reloadIfChanged() {
+        if (keysFile == null) {
+            return;
+        }
+        try {
+            if (Files.getLastModifiedTime(keysFile).toMillis() != snapshot.lastModified()) {
+                reload();
+            }
+        } catch (IOException e) {
+            logger.error("鍵ファイルを確認できませんでした: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 鍵ファイルを読み込み、鍵リングを差し替える。
+     * 読み込みに失敗した場合や、active の鍵がない場合は現在の鍵リングを使い続ける。
+     */
+    public synchronized void reload() {
+        if (keysFile == null) {
+            return;
+        }
+        try {
+            long lastModified = Files.getLastModifiedTime(keysFile).toMillis();
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(keysFile, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+
+            // jwt.secret の鍵は、ファイルで同じ kid を上書きしない限り検証用に残す（jwt.legacy.enabled=false の場合は残さない）
+            Map<String, Key> keys = new HashMap<>();
+            if (legacyKey != null) {
+                keys.put(defaultKid, legacyKey);
+            }
+            for (String kid : properties.stringPropertyNames()) {
+                if (!ACTIVE.equals(kid)) {
+                    keys.put(kid, toKey(properties.getProperty(kid)));
+                }
+            }
+
+            String activeKid = properties.getProperty(ACTIVE, defaultKid);
+            Key activeKey = keys.get(activeKid);
+            if (activeKey == null) {
+                logger.error("鍵ファイルに active の鍵（{}）がありません。現在の鍵リングを使い続けます。", activeKid);
+                return;
+            }
+
+            snapshot = new Snapshot(new SigningKey(activeKid, activeKey), Map.copyOf(keys), lastModified);
+            logger.info("署名鍵を読み込みました。active: {}、鍵の数: {}", activeKid, keys.size());
+        } catch (IOException | RuntimeException e) {
+            logger.error("鍵ファイルを読み込めませんでした: {}", e.getMessage());
+        }
+    }
+
+    private Key resolve(JwsHeader header) {
+        Key key = find(header.getKeyId());
+        if (key == null) {
+            throw UNKNOWN_KEY;
+        }
+        return key;
+    }
+
+    // シークレット文字列を Base64 でエンコードして HMAC-SHA 用の Key を生成（従来の jwt.secret と同じ方法）
+    private static Key toKey(String secret) {
+        return Keys.hmacShaKeyFor(Base64.getEncoder().encode(secret.getBytes()));
+    }
+
+    /**
+     * リングにない kid を表す例外（使い回すため、スタックトレースを持たない）
+     */
+    private static final class UnknownKeyException extends SignatureException {
+
+        UnknownKeyException() {
+            super("署名鍵が見つかりません。");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -6,15 +6,20 @@ import org.springframework.stereotype.Service;
 import dvn.local.dvnjs.config.JwtConfig;
 
 import java.security.Key;
-import java.util.Base64;
 import java.util.Date;
 import java.util.function.Function;
 
+import dvn.local.dvnjs.helpers.TokenDigest;
+import dvn.local.dvnjs.modules.users.entities.User;
 import dvn.local.dvnjs.modules.users.repositories.BlacklistedTokenRepository;
+import dvn.local.dvnjs.modules.users.security.UserAuthorities;
+import dvn.local.dvnjs.modules.users.services.impl.BlacklistWriteBehindQueue;
+import dvn.local.dvnjs.modules.users.services.impl.RevokedTokenFilter;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.SignatureException;
 
@@ -24,39 +29,75 @@ import io.jsonwebtoken.security.SignatureException;
  *
  * 主な提供機能：
  *  - generateToken      : ユーザーID/メールから署名付きJWTを生成
+ *  - verify             : 1回のパースで署名・発行者・有効期限を検証し、結果をまとめて返す
  *  - getUserIdFromJwt   : JWTのSubject（ここでは userId）を取得
  *  - getEmailFromJwt    : JWTのカスタムクレーム "email" を取得
  *  - isValidToken       : 形式・署名・有効期限・発行者・ユーザー整合性の総合検証
- *  - isTokenFormatValid : 3分割（header.payload.signature）の形式確認
+ *  - isTokenFormatValid : 3分割（header.payload.signature）と使用文字の形式確認（デコード前）
  *  - isSignatureValid   : 署名の妥当性確認（秘密鍵で検証）
  *  - isTokenExpired     : 有効期限切れ判定
  *  - isIssuerToken      : 発行者(iss)の一致確認
  *
  * 設計メモ：
- *  - 署名鍵は HMAC-SHA 系の鍵（HS512）を使用
+ *  - 署名鍵は HMAC-SHA 系の鍵（HS512）を使用し、JwtKeyRing の有効な鍵で署名してヘッダーに kid を設定する
+ *  - パーサーは JwtVerifier が一度だけ生成し、全リクエストで使い回す
+ *  - verify の本体は JwtVerifier にあり、リアクティブ版（reactive-edge プロファイル）と共有する
  *  - 例外時は適切にログに出力し、呼び出し側に true/false を返す流儀
  */
 @Service // サービス層（ビジネスロジック担当）であることを示す
 public class JwtService {
 
+    // ステートレスモードで埋め込むクレーム名
+    public static final String CLAIM_CATALOGUE_ID = "cid";
+    public static final String CLAIM_NAME = "name";
+    public static final String CLAIM_PHONE = "phone";
+    public static final String CLAIM_AUTHORITIES = "authorities";
+
+    // ログイン1回分（リフレッシュトークンのファミリー）を表すクレーム名（ログアウト時に同じファミリーを無効化する）
+    public static final String CLAIM_SESSION_ID = "sid";
+
     // JWTに関する設定（シークレットキー、期限、発行者 など）
     private final JwtConfig jwtConfig;
 
-    // 署名・検証に使う秘密鍵
-    private final Key key;
+    // 署名・発行者・有効期限の検証（リアクティブ版と共有）
+    private final JwtVerifier jwtVerifier;
+
+    // kid ごとの署名鍵（署名には有効な鍵を使う）
+    private final JwtKeyRing keyRing;
+
+    // 事前に構築した JWT パーサー（スレッドセーフなので使い回す）
+    private final JwtParser jwtParser;
 
     @Autowired
     private BlacklistedTokenRepository blacklistedTokenRepository;
 
+    // 失効トークンのブルームフィルター（DB参照の前段）
+    @Autowired
+    private RevokedTokenFilter revokedTokenFilter;
+
+    // 書き込み待ちの失効（DB 反映前でも失効済みとして扱う）
+    @Autowired
+    private BlacklistWriteBehindQueue blacklistWriteBehindQueue;
+
+    // 段階ごとの処理時間の記録
+    @Autowired
+    private AuthMetrics authMetrics;
+
+    // ステートレスモードでクレームに埋め込む権限を決める
+    @Autowired
+    private UserAuthorities userAuthorities;
+
     /**
-     * コンストラクタ：設定を受け取り、署名用Keyを初期化
+     * コンストラクタ：設定と検証器を受け取り、鍵リングとパーサーを共有する
      * @param jwtConfig シークレットキーや有効期限等の設定
+     * @param jwtVerifier 鍵とパーサーを保持する検証器
      */
-    public JwtService(JwtConfig jwtConfig) {
+    public JwtService(JwtConfig jwtConfig, JwtVerifier jwtVerifier) {
         this.jwtConfig = jwtConfig;
-        // シークレット文字列を Base64 でエンコードして HMAC-SHA 用の Key を生成
-        // （注）getSigningKey() でも鍵を作るが、そこでは生バイトを使用している点に注意
-        this.key = Keys.hmacShaKeyFor(Base64.getEncoder().encode(jwtConfig.getSecretKey().getBytes()));
+        this.jwtVerifier = jwtVerifier;
+        // 検証器が一度だけ構築した鍵リングとパーサーを使い回す（リクエストごとの再生成を避ける）
+        this.keyRing = jwtVerifier.getKeyRing();
+        this.jwtParser = jwtVerifier.getParser();
     }
 
     /**
@@ -66,30 +107,92 @@ public class JwtService {
      * @return 署名済みのJWT（HS512）
      */
     public String generateToken(Long userId, String email) {
+        return generateToken(userId, email, null);
+    }
+
+    // セッションID（null の場合は設定しない）付きの JWT を生成する
+    private String generateToken(Long userId, String email, String sessionId) {
+        JwtKeyRing.SigningKey signingKey = keyRing.active(); // 有効な署名鍵
         Date now = new Date(); // 発行時刻
         Date expiryDate = new Date(now.getTime() + jwtConfig.getExpirationTime()); // 有効期限 = 現在 + 設定値
 
         // ビルダーで JWT を組み立て、署名して返却
         return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.kid()) // 検証時に鍵を引くための kid
                 .setSubject(String.valueOf(userId)) // Subject（ここでは userId）
                 .claim("email", email)               // カスタムクレーム
+                .claim(CLAIM_SESSION_ID, sessionId)  // セッションID（null の場合は設定されない）
                 .setIssuer(jwtConfig.getIssuer())    // 発行者(iss)
                 .setIssuedAt(now)                    // 発行時刻(iat)
                 .setExpiration(expiryDate)           // 期限(exp)
-                .signWith(key, SignatureAlgorithm.HS512) // HS512で署名
+                .signWith(signingKey.key(), SignatureAlgorithm.HS512) // HS512で署名
                 .compact();
     }
 
+    /**
+     * ユーザーに対する JWT を生成する。
+     * ステートレスモード（jwt.stateless=true）の場合は、認証時に DB を参照しなくて済むよう
+     * カタログID・名前・電話番号・権限もクレームとして埋め込む。
+     * @param user 対象ユーザー
+     * @return 署名済みのJWT（HS512）
+     */
+    public String generateToken(User user) {
+        return generateToken(user, null);
+    }
+
+    /**
+     * ログイン1回分のセッションIDを付けて、ユーザーに対する JWT を生成する。
+     * @param user 対象ユーザー
+     * @param sessionId リフレッシュトークンのファミリーID（null の場合は設定しない）
+     * @return 署名済みのJWT（HS512）
+     */
+    public String generateToken(User user, String sessionId) {
+        if (!jwtConfig.isStateless()) {
+            return generateToken(user.getId(), user.getEmail(), sessionId);
+        }
+
+        JwtKeyRing.SigningKey signingKey = keyRing.active(); // 有効な署名鍵
+        Date now = new Date(); // 発行時刻
+        Date expiryDate = new Date(now.getTime() + jwtConfig.getExpirationTime()); // 有効期限 = 現在 + 設定値
+
+        return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.kid())
+                .setSubject(String.valueOf(user.getId()))
+                .claim("email", user.getEmail())
+                .claim(CLAIM_CATALOGUE_ID, user.getUserCatalogueId())
+                .claim(CLAIM_NAME, user.getName())
+                .claim(CLAIM_PHONE, user.getPhone())
+                .claim(CLAIM_AUTHORITIES, userAuthorities.namesOf(user.getUserCatalogueId()))
+                .claim(CLAIM_SESSION_ID, sessionId)
+                .setIssuer(jwtConfig.getIssuer())
+                .setIssuedAt(now)
+                .setExpiration(expiryDate)
+                .signWith(signingKey.key(), SignatureAlgorithm.HS512)
+                .compact();
+    }
+
+    /**
+     * JWT を1回だけパースし、署名・発行者・有効期限をまとめて検証する。
+     * 判定順は 署名 → 発行者 → 有効期限（期限切れでも発行者不一致を優先して返す）。
+     *
+     * @param token 検証対象のJWT
+     * @return 検証済みクレーム、または失敗理由を持つ VerifiedToken
+     */
+    public VerifiedToken verify(String token) {
+        final long start = authMetrics.start();
+        try {
+            return jwtVerifier.verify(token);
+        } finally {
+            authMetrics.record(AuthMetrics.Stage.VERIFY, start);
+        }
+    }
+
     /**
      * JWT から Subject（= userId）を取り出す。
      * 署名検証に成功しないと Claims は取得できない。
      */
     public String getUserIdFromJwt(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)   // 署名検証に使用
-                .build()
-                .parseClaimsJws(token) // 成功すると署名OK + 期限内
-                .getBody();
+        Claims claims = getAllClaimsFromToken(token); // 成功すると署名OK + 期限内
         return claims.getSubject();
     }
 
@@ -97,24 +200,15 @@ public class JwtService {
      * JWT からカスタムクレーム "email" を取り出す。
      */
     public String getEmailFromJwt(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        Claims claims = getAllClaimsFromToken(token);
         return claims.get("email", String.class);
     }
 
     /**
-     * トークンの形式が「ヘッダ.ペイロード.署名」の3分割になっているかをざっくり確認。
+     * トークンの形式が「ヘッダ.ペイロード.署名」の3分割で、Base64URL の文字だけで構成されているかを確認。
      */
     public boolean isTokenFormatValid(String token) {
-        try {
-            String[] tokenParts = token.split("\\.");
-            return tokenParts.length == 3;
-        } catch (Exception e) {
-            return false;
-        }
+        return jwtVerifier.isTokenFormatValid(token);
     }
 
     /**
@@ -123,10 +217,7 @@ public class JwtService {
      */
     public boolean isSignatureValid(String token) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                    .parseClaimsJws(token); // 成功すれば署名OK
+            jwtParser.parseClaimsJws(token); // 成功すれば署名OK
                 
             return true;
         } catch (SignatureException e) {
@@ -135,12 +226,10 @@ public class JwtService {
     }
 
     /**
-     * 署名検証に用いる Key を生成。
-     * （注）コンストラクタで作った key と生成方法が異なる点に注意。
+     * 新しいトークンの署名に用いる Key を返す（鍵リングの有効な鍵。生成済みのものを再利用）。
      */
     public Key getSigningKey() {
-        byte[] keyBytes = jwtConfig.getSecretKey().getBytes();
-        return Keys.hmacShaKeyFor(Base64.getEncoder().encode(keyBytes));
+        return keyRing.active().key();
     }
 
     /**
@@ -166,24 +255,43 @@ public class JwtService {
 
     /**
      * トークンがブラックリストに登録されているかを確認する。
+     * ブルームフィルターで「確実に未登録」と判定できた場合は DB を参照しない。
      * 
      * @param token チェック対象のJWTトークン
      * @return ブラックリストに存在する場合は true、存在しない場合は false
      */
     public boolean isBlackListedToken(String token) {
-        // BlacklistedTokenRepository を使用してDB内に該当トークンがあるか確認
-        return blacklistedTokenRepository.existsByToken(token);
+        return isBlackListedToken(TokenDigest.of(token));
+    }
+
+    /**
+     * 計算済みのダイジェストでブラックリスト登録の有無を確認する。
+     *
+     * @param digest チェック対象のJWTトークンのダイジェスト
+     * @return ブラックリストに存在する場合は true、存在しない場合は false
+     */
+    public boolean isBlackListedToken(TokenDigest digest) {
+        final long start = authMetrics.start();
+        try {
+            // DB 反映前の失効はフィルター再構築で失われることがあるため、先に確認する
+            if (blacklistWriteBehindQueue.isPending(digest)) {
+                return true;
+            }
+            if (!revokedTokenFilter.mightBeRevoked(digest)) {
+                return false;
+            }
+            // BlacklistedTokenRepository を使用してDB内に該当ダイジェストがあるか確認
+            return blacklistedTokenRepository.existsByTokenHash(digest.bytes());
+        } finally {
+            authMetrics.record(AuthMetrics.Stage.BLACKLIST, start);
+        }
     }
 
     /**
      * すべてのクレーム（Claims）を取得する内部ヘルパー。
      */
     public Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                   .setSigningKey(getSigningKey())
-                   .build()
-                   .parseClaimsJws(token)
-                   .getBody();
+        return jwtParser.parseClaimsJws(token).getBody();
     }
 
     /**
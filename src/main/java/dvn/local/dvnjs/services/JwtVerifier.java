@@ -0,0 +1,157 @@
+package dvn.local.dvnjs.services;
+
+import java.util.Date;
+
+import org.springframework.stereotype.Component;
+
+import dvn.local.dvnjs.config.JwtConfig;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureException;
+
+/**
+ * 【概要】
+ * JWT の署名・発行者・有効期限の検証だけを行うクラス。
+ *
+ * DB やキャッシュに依存しないため、サーブレット版（JwtService / JwtAuthFilter）と
+ * リアクティブ版（reactive-edge プロファイル）の両方から同じ検証ロジックを使う。
+ * パーサーはコンストラクタで一度だけ生成し、全リクエストで使い回す。
+ * 検証に使う鍵はトークンの kid から JwtKeyRing で引く（鍵のローテーション中も古いトークンを検証できる）。
+ *
+ * 不正なトークンを大量に送られた場合でも安価に拒否できるよう、
+ *  - 形式確認は文字単位の走査で行い、Base64/JSON のデコード前に弾く
+ *  - 有効期限（exp）と有効期間の開始（nbf）は自前で判定し、期限切れのたびに例外（スタックトレース）を作らない
+ *    （パーサーの時刻の確認は exp と nbf の両方をまとめて無効化するため、どちらも verify で判定する）
+ */
+@Component
+public class JwtVerifier {
+
+    // JWTに関する設定（シークレットキー、発行者 など）
+    private final JwtConfig jwtConfig;
+
+    // kid ごとの署名鍵
+    private final JwtKeyRing keyRing;
+
+    // 事前に構築した JWT パーサー（スレッドセーフなので使い回す）
+    private final JwtParser jwtParser;
+
+    // verify 専用のパーサー（有効期限の確認を無効化し、期限切れで例外を投げさせない）
+    private final JwtParser verifyParser;
+
+    // 受け付けるトークンの最大長（これを超えるものはデコードせずに弾く）
+    private static final int MAX_TOKEN_LENGTH = 8192;
+
+    public JwtVerifier(JwtConfig jwtConfig, JwtKeyRing keyRing) {
+        this.jwtConfig = jwtConfig;
+        this.keyRing = keyRing;
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(keyRing)
+                .build();
+        this.verifyParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(keyRing)
+                .setAllowedClockSkewSeconds(Long.MAX_VALUE / 1_000_000) // exp と nbf は verify で判定する
+                .build();
+    }
+
+    /**
+     * JWT を1回だけパースし、署名・発行者・有効期限をまとめて検証する。
+     * 判定順は 署名 → 発行者 → 有効期限 → 有効期間の開始（期限切れでも発行者不一致を優先して返す）。
+     *
+     * @param token 検証対象のJWT
+     * @return 検証済みクレーム、または失敗理由を持つ VerifiedToken
+     */
+    public VerifiedToken verify(String token) {
+        Claims claims;
+        try {
+            claims = verifyParser.parseClaimsJws(token).getBody();
+        } catch (SignatureException e) {
+            return VerifiedToken.failure(VerifiedToken.Failure.BAD_SIGNATURE);
+        } catch (JwtException | IllegalArgumentException e) {
+            return VerifiedToken.failure(VerifiedToken.Failure.MALFORMED);
+        }
+
+        if (!jwtConfig.getIssuer().equals(claims.getIssuer())) {
+            return VerifiedToken.failure(VerifiedToken.Failure.WRONG_ISSUER);
+        }
+        // 署名検証後に判定するため、クレームは信頼できる
+        final long now = System.currentTimeMillis();
+        Date expiration = claims.getExpiration();
+        // exp のないトークンは無期限に使えてしまうため、形式不正として扱う
+        if (expiration == null) {
+            return VerifiedToken.failure(VerifiedToken.Failure.MALFORMED);
+        }
+        if (expiration.getTime() <= now) {
+            return VerifiedToken.failure(VerifiedToken.Failure.EXPIRED);
+        }
+        // nbf（Not Before）より前のトークンは受け付けない（パーサーの時刻の確認を無効化しているため、ここで判定する）
+        Date notBefore = claims.getNotBefore();
+        if (notBefore != null && notBefore.getTime() > now) {
+            return VerifiedToken.failure(VerifiedToken.Failure.NOT_YET_VALID);
+        }
+        if (claims.getSubject() == null) {
+            return VerifiedToken.failure(VerifiedToken.Failure.MALFORMED);
+        }
+        return VerifiedToken.success(claims);
+    }
+
+    /**
+     * トークンの形式が「ヘッダ.ペイロード.署名」の3分割になっているかを確認する。
+     * 文字列を分割せず1回の走査で、以下をすべて満たすかを判定する（デコードは行わない）。
+     *  - 長さが上限以内で、区切りの "." がちょうど2つ
+     *  - 各部分が空でなく、Base64URL の文字（A-Z a-z 0-9 - _）だけで構成される
+     *  - ヘッダとペイロードが JSON オブジェクト（Base64URL で "eyJ" から始まる）
+     */
+    public boolean isTokenFormatValid(String token) {
+        if (token == null) {
+            return false;
+        }
+        final int length = token.length();
+        if (length > MAX_TOKEN_LENGTH) {
+            return false;
+        }
+
+        int dots = 0;
+        int segmentStart = 0;
+        for (int i = 0; i < length; i++) {
+            char c = token.charAt(i);
+            if (c == '.') {
+                // 空の部分、または3つ目以降の区切りは不正
+                if (i == segmentStart || ++dots > 2) {
+                    return false;
+                }
+                segmentStart = i + 1;
+            } else if (!isBase64UrlChar(c)) {
+                return false;
+            }
+        }
+        return dots == 2
+                && segmentStart < length // 署名が空でない
+                && token.startsWith("eyJ")
+                && token.startsWith("eyJ", token.indexOf('.') + 1);
+    }
+
+    // Base64URL（パディングなし）で使われる文字かどうか
+    private static boolean isBase64UrlChar(char c) {
+        return (c >= 'A' && c <= 'Z')
+                || (c >= 'a' && c <= 'z')
+                || (c >= '0' && c <= '9')
+                || c == '-' || c == '_';
+    }
+
+    /**
+     * kid ごとの署名鍵を保持する鍵リングを返す。
+     */
+    public JwtKeyRing getKeyRing() {
+        return keyRing;
+    }
+
+    /**
+     * 事前に構築した JWT パーサーを返す。
+     */
+    public JwtParser getParser() {
+        return jwtParser;
+    }
+}
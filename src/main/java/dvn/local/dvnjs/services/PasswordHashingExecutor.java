@@ -0,0 +1,190 @@
+package dvn.local.dvnjs.services;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 【概要】
+ * パスワード照合（BCrypt）を専用のスレッドプールで実行するクラス。
+ *
+ * 主な役割：
+ *  - CPU負荷の高いハッシュ計算をコア数分のスレッドに限定し、リクエスト処理スレッドを使い切らないようにする
+ *  - 待ち行列を上限付きにし、あふれた照合は待たせずに PasswordHashingRejectedException で即座に拒否する
+ *  - コストが変わったパスワードを、ログイン成功時に同じスレッドプールで再ハッシュする
+ *  - 待ち時間・ハッシュ計算時間・拒否件数をメトリクスで公開する
+ *
+ * ハッシュ計算は CPU を使い続けるため、仮想スレッドモードでもプラットフォームスレッドのまま実行する。
+ */
+@Service
+public class PasswordHashingExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingExecutor.class);
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final ThreadPoolExecutor executor;
+
+    // 照合結果を待つ最大時間（超えた場合は拒否として扱う）
+    private final Duration timeout;
+
+    // 待ち行列に入ってから実行開始までの時間
+    private final Timer queueWait;
+
+    // ハッシュ計算にかかった時間
+    private final Timer hashTime;
+
+    // 拒否した件数
+    private final Counter rejections;
+
+    // コスト変更に伴い再ハッシュした件数
+    private final Counter rehashes;
+
+    public PasswordHashingExecutor(
+        PasswordEncoder passwordEncoder,
+        MeterRegistry meterRegistry,
+        @Value("${password.hashing.threads:0}") int threads,
+        @Value("${password.hashing.queue-capacity:64}") int queueCapacity,
+        @Value("${password.hashing.timeout:5s}") Duration timeout
+    ) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeout = timeout;
+
+        // 0 以下の場合はコア数に合わせる
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                threadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.queueWait = Timer.builder("password.hashing.queue_wait")
+                .description("パスワード照合の実行待ち時間")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.hashTime = Timer.builder("password.hashing.duration")
+                .description("パスワード照合（ハッシュ計算）にかかった時間")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejections = Counter.builder("password.hashing.rejections")
+                .description("待ち行列があふれたため拒否したパスワード照合の件数")
+                .register(meterRegistry);
+        this.rehashes = Counter.builder("password.hashing.rehashes")
+                .description("コスト変更に伴い再ハッシュしたパスワードの件数")
+                .register(meterRegistry);
+        Gauge.builder("password.hashing.queue_depth", executor, e -> e.getQueue().size())
+                .description("実行待ちのパスワード照合の件数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 専用スレッドでパスワードを照合する。
+     * @param rawPassword 入力されたパスワード
+     * @param encodedPassword DB上の暗号化済みパスワード
+     * @return 一致すれば true
+     * @throws PasswordHashingRejectedException 待ち行列があふれた、または待ち時間が上限を超えた場合
+     */
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        final long submittedAt = System.nanoTime();
+
+        Future<Boolean> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                queueWait.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return passwordEncoder.matches(rawPassword, encodedPassword);
+                } finally {
+                    hashTime.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw new PasswordHashingRejectedException("ログインが混み合っています。しばらくしてから再度お試しください。");
+        }
+
+        try {
+            return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // 実行前であれば取り消し、ワーカーを空ける
+            future.cancel(false);
+            rejections.increment();
+            throw new PasswordHashingRejectedException("ログインが混み合っています。しばらくしてから再度お試しください。");
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("パスワード照合が中断されました。");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * 保存済みハッシュのコストが現在のコストと異なる場合に、専用スレッドで再ハッシュする。
+     * ログインの応答は待たせず、混み合っている場合は見送る（次回のログインで再ハッシュされる）。
+     * @param rawPassword 照合に成功したパスワード
+     * @param encodedPassword DB上の暗号化済みパスワード
+     * @param store 新しいハッシュを保存する処理
+     */
+    public void rehashIfNeeded(CharSequence rawPassword, String encodedPassword, Consumer<String> store) {
+        if (!passwordEncoder.upgradeEncoding(encodedPassword)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    store.accept(passwordEncoder.encode(rawPassword));
+                    rehashes.increment();
+                } catch (RuntimeException e) {
+                    logger.warn("パスワードの再ハッシュに失敗しました: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 照合を優先するため、再ハッシュは次回に回す
+        }
+    }
+
+    /**
+     * 停止時にスレッドプールを終了する。
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // 識別しやすい名前のデーモンスレッドを作成する
+    private static ThreadFactory threadFactory() {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
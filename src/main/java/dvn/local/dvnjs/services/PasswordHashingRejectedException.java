@@ -0,0 +1,15 @@
+package dvn.local.dvnjs.services;
+
+/**
+ * パスワード照合の実行待ちが上限を超えた（またはタイムアウトした）ために、
+ * 照合を受け付けなかったことを表す例外。
+ *
+ * GlobalExceptionHandler で 503（Retry-After 付き）に変換される。
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    public PasswordHashingRejectedException(String message) {
+        // 高負荷時に大量に発生するため、スタックトレースは取得しない
+        super(message, null, false, false);
+    }
+}
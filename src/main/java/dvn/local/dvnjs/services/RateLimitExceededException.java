@@ -0,0 +1,21 @@
+package dvn.local.dvnjs.services;
+
+import lombok.Getter;
+
+/**
+ * クライアント（IP アドレスまたはメールアドレス）ごとのリクエスト数が上限を超えたことを表す例外。
+ *
+ * GlobalExceptionHandler で 429（Retry-After 付き）に変換される。
+ */
+@Getter
+public class RateLimitExceededException extends RuntimeException {
+
+    // 再試行できるまでの秒数
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        // 攻撃時に大量に発生するため、スタックトレースは取得しない
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
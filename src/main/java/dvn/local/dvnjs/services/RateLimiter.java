@@ -0,0 +1,171 @@
+package dvn.local.dvnjs.services;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 【概要】
+ * クライアント（IP アドレス・メールアドレス）ごとのリクエスト数を制限するインメモリのレートリミッター。
+ *
+ * ログイン API は認証不要で BCrypt を実行させられるため、送信元ごとに上限を設けて
+ * CPU を使い切られないようにする。
+ *
+ * 主な仕様：
+ *  - ルールごとに「capacity 回まで連続で受け付け、period で満タンに戻る」トークンバケット
+ *  - バケットは GCRA（次に空く理論上の時刻を1つの AtomicLong に持つ形式）で表し、CAS でロックなしに更新する
+ *  - period の間アクセスがないバケットは満タンと同じ状態のため、その時点で破棄する（件数の上限もあり）
+ *  - 判定時間・拒否件数・保持しているバケット数をメトリクスで公開する
+ */
+@Service
+public class RateLimiter {
+
+    /**
+     * 制限の種類
+     */
+    public enum Rule {
+        LOGIN_IP,     // ログイン：送信元 IP アドレスごと
+        LOGIN_EMAIL,  // ログイン：メールアドレスごと
+        AUTH_IP,      // その他の認証 API：送信元 IP アドレスごと
+        INTROSPECT_IP // トークンの一括検証（サービス間の呼び出し）：送信元 IP アドレスごと
+    }
+
+    // 制限を行うかどうか
+    private final boolean enabled;
+
+    // ルールごとのバケット（Rule の序数で参照する）
+    private final Bucket[] buckets;
+
+    // 判定にかかった時間
+    private final Timer checkTimer;
+
+    public RateLimiter(
+        MeterRegistry meterRegistry,
+        @Value("${rate-limit.enabled:true}") boolean enabled,
+        @Value("${rate-limit.max-entries:100000}") long maxEntries,
+        @Value("${rate-limit.login.ip.capacity:20}") int loginIpCapacity,
+        @Value("${rate-limit.login.ip.period:1m}") Duration loginIpPeriod,
+        @Value("${rate-limit.login.email.capacity:5}") int loginEmailCapacity,
+        @Value("${rate-limit.login.email.period:1m}") Duration loginEmailPeriod,
+        @Value("${rate-limit.auth.ip.capacity:120}") int authIpCapacity,
+        @Value("${rate-limit.auth.ip.period:1m}") Duration authIpPeriod,
+        @Value("${rate-limit.introspect.ip.capacity:1200}") int introspectIpCapacity,
+        @Value("${rate-limit.introspect.ip.period:1m}") Duration introspectIpPeriod
+    ) {
+        this.enabled = enabled;
+        this.buckets = new Bucket[] {
+            new Bucket(Rule.LOGIN_IP, loginIpCapacity, loginIpPeriod, maxEntries, meterRegistry),
+            new Bucket(Rule.LOGIN_EMAIL, loginEmailCapacity, loginEmailPeriod, maxEntries, meterRegistry),
+            new Bucket(Rule.AUTH_IP, authIpCapacity, authIpPeriod, maxEntries, meterRegistry),
+            new Bucket(Rule.INTROSPECT_IP, introspectIpCapacity, introspectIpPeriod, maxEntries, meterRegistry)
+        };
+        this.checkTimer = Timer.builder("rate_limit.check")
+                .description("レート制限の判定にかかった時間")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 1回分の許可を取得する。
+     * @param rule 制限の種類
+     * @param key クライアントを表すキー（IP アドレス・メールアドレス）
+     * @return 許可された場合は 0、上限を超えた場合は再試行できるまでのナノ秒
+     */
+    public long tryAcquire(Rule rule, String key) {
+        if (!enabled || key == null) {
+            return 0L;
+        }
+        final long start = System.nanoTime();
+        try {
+            return buckets[rule.ordinal()].tryAcquire(key, start);
+        } finally {
+            checkTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 1回分の許可を取得し、上限を超えた場合は RateLimitExceededException を投げる。
+     * @param rule 制限の種類
+     * @param key クライアントを表すキー（IP アドレス・メールアドレス）
+     */
+    public void acquire(Rule rule, String key) {
+        long waitNanos = tryAcquire(rule, key);
+        if (waitNanos > 0) {
+            throw new RateLimitExceededException("リクエストが多すぎます。しばらくしてから再試行してください。",
+                    retryAfterSeconds(waitNanos));
+        }
+    }
+
+    /**
+     * 待ち時間（ナノ秒）を Retry-After ヘッダー用の秒数（切り上げ）に変換する。
+     */
+    public static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1L, (waitNanos + 999_999_999L) / 1_000_000_000L);
+    }
+
+    /**
+     * 1つのルールに対応するバケットの集合
+     */
+    private static final class Bucket {
+
+        // 1回分の許可が回復する間隔
+        private final long intervalNanos;
+
+        // 連続で受け付けられる量（capacity 回分の間隔）
+        private final long burstNanos;
+
+        // キーごとの「次に空く理論上の時刻」
+        private final Cache<String, AtomicLong> states;
+
+        // 拒否した件数
+        private final Counter rejections;
+
+        Bucket(Rule rule, int capacity, Duration period, long maxEntries, MeterRegistry meterRegistry) {
+            int permits = Math.max(1, capacity);
+            this.intervalNanos = Math.max(1L, period.toNanos() / permits);
+            this.burstNanos = intervalNanos * permits;
+            // period の間アクセスがなければ満タンに戻っているため、状態を持つ必要がない
+            this.states = Caffeine.newBuilder()
+                    .maximumSize(maxEntries)
+                    .expireAfterAccess(period)
+                    .build();
+
+            String name = rule.name().toLowerCase(Locale.ROOT);
+            this.rejections = Counter.builder("rate_limit.rejections")
+                    .description("レート制限で拒否したリクエストの件数")
+                    .tag("rule", name)
+                    .register(meterRegistry);
+            Gauge.builder("rate_limit.buckets", states, Cache::estimatedSize)
+                    .description("保持しているクライアントごとのバケット数")
+                    .tag("rule", name)
+                    .register(meterRegistry);
+        }
+
+        long tryAcquire(String key, long now) {
+            AtomicLong state = states.get(key, k -> new AtomicLong(now));
+            while (true) {
+                long current = state.get();
+                long next = (current - now < 0 ? now : current) + intervalNanos;
+                long excess = next - now - burstNanos;
+                if (excess > 0) {
+                    rejections.increment();
+                    return excess;
+                }
+                if (state.compareAndSet(current, next)) {
+                    return 0L;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package dvn.local.dvnjs.services;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import io.jsonwebtoken.Claims;
+
+import lombok.Getter;
+
+/**
+ * 【概要】
+ * JwtService#verify の結果（1回のパースで得られた検証済みクレーム）を保持するクラス。
+ *
+ * 成功時は subject / email / 発行者 / 発行時刻 / 有効期限を持ち、
+ * 失敗時は Failure（失敗理由）のみを持つ。
+ * フィルター側はこの結果だけを見て認証可否を判断する。
+ */
+@Getter
+public final class VerifiedToken {
+
+    /**
+     * 検証失敗の理由
+     */
+    public enum Failure {
+        MALFORMED,      // 形式不正（3分割でない、Base64/JSONとして不正 など）
+        BAD_SIGNATURE,  // 署名不正
+        WRONG_ISSUER,   // 発行者(iss)が不一致
+        EXPIRED,        // 有効期限切れ
+        NOT_YET_VALID   // 有効期間の開始前（nbf が未来）
+    }
+
+    // 失敗結果は中身を持たないため、理由ごとに使い回す
+    private static final VerifiedToken MALFORMED = new VerifiedToken(Failure.MALFORMED);
+    private static final VerifiedToken BAD_SIGNATURE = new VerifiedToken(Failure.BAD_SIGNATURE);
+    private static final VerifiedToken WRONG_ISSUER = new VerifiedToken(Failure.WRONG_ISSUER);
+    private static final VerifiedToken EXPIRED = new VerifiedToken(Failure.EXPIRED);
+    private static final VerifiedToken NOT_YET_VALID = new VerifiedToken(Failure.NOT_YET_VALID);
+
+    // Subject（ここでは userId）
+    private final String userId;
+
+    // カスタムクレーム "email"
+    private final String email;
+
+    // 発行者(iss)
+    private final String issuer;
+
+    // 発行時刻(iat)
+    private final Date issuedAt;
+
+    // 有効期限(exp)
+    private final Date expiration;
+
+    // セッションID（リフレッシュトークンのファミリーID、埋め込まれていない場合は null）
+    private final String sessionId;
+
+    // ステートレスモードで埋め込まれるユーザー情報（埋め込まれていない場合は null）
+    // カタログID
+    private final Long catalogueId;
+
+    // ユーザー名
+    private final String name;
+
+    // 電話番号
+    private final String phone;
+
+    // 権限リスト
+    private final List<String> authorities;
+
+    // 失敗理由（成功時は null）
+    private final Failure failure;
+
+    private VerifiedToken(Claims claims) {
+        this.userId = claims.getSubject();
+        this.email = claims.get("email", String.class);
+        this.issuer = claims.getIssuer();
+        this.issuedAt = claims.getIssuedAt();
+        this.expiration = claims.getExpiration();
+        this.sessionId = claims.get(JwtService.CLAIM_SESSION_ID, String.class);
+        Number cid = claims.get(JwtService.CLAIM_CATALOGUE_ID, Number.class);
+        this.catalogueId = cid == null ? null : cid.longValue();
+        this.name = claims.get(JwtService.CLAIM_NAME, String.class);
+        this.phone = claims.get(JwtService.CLAIM_PHONE, String.class);
+        this.authorities = toStringList(claims.get(JwtService.CLAIM_AUTHORITIES));
+        this.failure = null;
+    }
+
+    private VerifiedToken(Failure failure) {
+        this.userId = null;
+        this.email = null;
+        this.issuer = null;
+        this.issuedAt = null;
+        this.expiration = null;
+        this.sessionId = null;
+        this.catalogueId = null;
+        this.name = null;
+        this.phone = null;
+        this.authorities = null;
+        this.failure = failure;
+    }
+
+    /**
+     * 検証済みクレームから成功結果を作成する。
+     */
+    static VerifiedToken success(Claims claims) {
+        return new VerifiedToken(claims);
+    }
+
+    /**
+     * 失敗理由に対応する結果を返す（インスタンスは共有）。
+     */
+    static VerifiedToken failure(Failure failure) {
+        return switch (failure) {
+            case MALFORMED -> MALFORMED;
+            case BAD_SIGNATURE -> BAD_SIGNATURE;
+            case WRONG_ISSUER -> WRONG_ISSUER;
+            case EXPIRED -> EXPIRED;
+            case NOT_YET_VALID -> NOT_YET_VALID;
+        };
+    }
+
+    /**
+     * 検証に成功したかどうか。
+     * @return 成功なら true
+     */
+    public boolean isValid() {
+        return failure == null;
+    }
+
+    /**
+     * ステートレスモードで発行された（ユーザー情報が埋め込まれた）トークンかどうか。
+     * @return 埋め込まれている場合 true
+     */
+    public boolean hasUserClaims() {
+        return authorities != null && email != null;
+    }
+
+    // 権限クレーム（JSON配列）を文字列のリストに変換する
+    private static List<String> toStringList(Object value) {
+        if (!(value instanceof List<?> list)) {
+            return null;
+        }
+        if (list.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return list.stream().map(String::valueOf).toList();
+    }
+}
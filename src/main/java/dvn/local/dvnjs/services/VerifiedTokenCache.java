@@ -0,0 +1,146 @@
+package dvn.local.dvnjs.services;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import dvn.local.dvnjs.helpers.TokenDigest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * 【概要】
+ * 署名検証とブラックリスト確認を通過したトークンを保持するインメモリキャッシュ。
+ *
+ * 主な仕様：
+ *  - キーはトークンの SHA-256 ダイジェスト（トークン全文は保持しない）
+ *  - 件数上限（jwt.cache.maximum-size）を超えると古いものから破棄
+ *  - 各エントリはトークン自身の exp より後には残らない（TTL との短い方で失効）
+ *  - BlackListService でトークンが失効された時点で即座に削除
+ *  - ヒット/ミス数は Micrometer のメトリクス（cache.gets など）として公開
+ */
+@Service
+public class VerifiedTokenCache {
+
+    // キャッシュ本体（無効化時は null）
+    private final Cache<TokenDigest, VerifiedToken> cache;
+
+    // 無効化の世代番号（検証中に失効が発生した結果をキャッシュしないために使う）
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public VerifiedTokenCache(
+        @Value("${jwt.cache.enabled:true}") boolean enabled,
+        @Value("${jwt.cache.maximum-size:10000}") long maximumSize,
+        @Value("${jwt.cache.ttl:300s}") Duration ttl,
+        MeterRegistry meterRegistry
+    ) {
+        this(enabled, maximumSize, ttl, meterRegistry, Ticker.systemTicker(), Clock.systemUTC());
+    }
+
+    /**
+     * 時刻の取得元を指定して作成する（テストで時刻を進めるために使用）。
+     * @param ticker エントリの経過時間の計測に使う時刻
+     * @param clock トークンの exp と比較する現在時刻
+     */
+    VerifiedTokenCache(
+        boolean enabled,
+        long maximumSize,
+        Duration ttl,
+        MeterRegistry meterRegistry,
+        Ticker ticker,
+        Clock clock
+    ) {
+        if (!enabled || maximumSize <= 0) {
+            this.cache = null;
+            return;
+        }
+
+        final long ttlNanos = ttl.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .ticker(ticker)
+                .expireAfter(new Expiry<TokenDigest, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(TokenDigest key, VerifiedToken value, long currentTime) {
+                        // TTL とトークンの残り有効期間の短い方
+                        if (value.getExpiration() == null) {
+                            return ttlNanos;
+                        }
+                        long remaining = TimeUnit.MILLISECONDS.toNanos(
+                                value.getExpiration().getTime() - clock.millis());
+                        return Math.max(0, Math.min(ttlNanos, remaining));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(TokenDigest key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(TokenDigest key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified_tokens");
+    }
+
+    /**
+     * 検証済みトークンを取得する。
+     * @param digest トークンのダイジェスト
+     * @return キャッシュ済みの検証結果（未登録・期限切れの場合は null）
+     */
+    public VerifiedToken get(TokenDigest digest) {
+        return cache == null ? null : cache.getIfPresent(digest);
+    }
+
+    /**
+     * 検証を開始する前に現在の世代番号を取得する。
+     * put 時に世代が変わっていれば、その間に失効が起きた可能性があるため登録しない。
+     */
+    public long stamp() {
+        return generation.get();
+    }
+
+    /**
+     * 検証済みトークンを登録する。
+     * @param digest トークンのダイジェスト
+     * @param verifiedToken 検証に成功した結果
+     * @param stamp 検証開始前に stamp() で取得した世代番号
+     */
+    public void put(TokenDigest digest, VerifiedToken verifiedToken, long stamp) {
+        if (cache == null || !verifiedToken.isValid()) {
+            return;
+        }
+        cache.put(digest, verifiedToken);
+        // 登録と同時に失効が起きていた場合は取り消す
+        if (generation.get() != stamp) {
+            cache.invalidate(digest);
+        }
+    }
+
+    /**
+     * トークンをキャッシュから即座に削除する（失効時に呼び出す）。
+     * @param digest トークンのダイジェスト
+     */
+    public void invalidate(TokenDigest digest) {
+        generation.incrementAndGet();
+        if (cache != null) {
+            cache.invalidate(digest);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+-- ============================================
+-- blacklisted_tokensテーブル変更用SQLスクリプト
+-- トークン全文（TEXT）の代わりに SHA-256 ダイジェスト（32バイト固定長）で
+-- 失効トークンを管理するように変更します。
+-- 一意インデックスが小さくなり、検索時の比較も32バイトで済みます。
+-- ============================================
+
+-- ① ダイジェスト列を追加
+ALTER TABLE blacklisted_tokens
+    ADD COLUMN token_hash BINARY(32) NULL AFTER user_id;
+
+-- ② 既存データのダイジェストを計算（JWTはASCIIのみのため文字コードの影響はない）
+UPDATE blacklisted_tokens
+    SET token_hash = UNHEX(SHA2(token, 256));
+
+-- ③ 必須化・一意制約を付与し、トークン全文の列（と一意インデックス）を削除
+ALTER TABLE blacklisted_tokens
+    MODIFY COLUMN token_hash BINARY(32) NOT NULL,
+    ADD UNIQUE KEY uk_blacklisted_tokens_token_hash (token_hash),
+    DROP COLUMN token;
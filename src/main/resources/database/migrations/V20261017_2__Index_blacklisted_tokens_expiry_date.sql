@@ -0,0 +1,8 @@
+-- ============================================
+-- blacklisted_tokensテーブルのインデックス追加用SQLスクリプト
+-- 期限切れ行の定期削除（expiry_date の古い順に少量ずつ削除）で
+-- 全件走査や長時間のロックが発生しないよう、expiry_date にインデックスを作成します。
+-- ============================================
+
+CREATE INDEX idx_blacklisted_tokens_expiry_date
+    ON blacklisted_tokens (expiry_date);
@@ -0,0 +1,18 @@
+-- ============================================
+-- revocation_eventsテーブル作成用SQLスクリプト
+-- 失効（トークンのブラックリスト登録、ユーザー情報の変更など）を
+-- 追記専用のログとして記録し、各インスタンスが id 順に取り込んで
+-- ローカルのキャッシュを無効化するためのテーブルです。
+-- ============================================
+
+CREATE TABLE revocation_events (
+    id BIGINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,        -- イベントID（取り込み位置として使用）
+    event_type VARCHAR(20) NOT NULL,                      -- 種別（TOKEN_REVOKED など）
+    token_hash BINARY(32) DEFAULT NULL,                   -- 失効したトークンのダイジェスト（TOKEN_REVOKED）
+    user_id BIGINT UNSIGNED DEFAULT NULL,                 -- 対象ユーザーID
+    origin VARCHAR(36) NOT NULL,                          -- 発行元インスタンスのID
+    created_at TIMESTAMP(3) NOT NULL
+        DEFAULT CURRENT_TIMESTAMP(3),                     -- 登録日時（伝播遅延の計測に使用）
+
+    INDEX idx_revocation_events_created_at (created_at)
+);
@@ -0,0 +1,8 @@
+-- ============================================
+-- usersテーブル変更用SQLスクリプト
+-- ユーザー単位で「この日時以前に発行されたトークンはすべて無効」とするための
+-- 列を追加します（全端末からのログアウト用）。
+-- ============================================
+
+ALTER TABLE users
+    ADD COLUMN tokens_revoked_at TIMESTAMP NULL DEFAULT NULL;  -- この日時以前に発行されたトークンは無効
@@ -0,0 +1,24 @@
+-- ============================================
+-- refresh_tokensテーブル作成用SQLスクリプト
+-- アクセストークンを短命にするためのリフレッシュトークンを管理するテーブルです。
+-- トークン本体は保存せず、SHA-256 ダイジェストのみを保存します。
+-- 1回使用したトークンは used_at を設定し、同じファミリー（ログイン1回分）の新しいトークンを発行します。
+-- 使用済みのトークンが再度使われた場合は、ファミリー全体を revoked_at で無効化します。
+-- ============================================
+
+CREATE TABLE refresh_tokens (
+    id BIGINT UNSIGNED AUTO_INCREMENT PRIMARY KEY,        -- トークンID
+    token_hash BINARY(32) NOT NULL,                       -- トークンの SHA-256 ダイジェスト
+    user_id BIGINT UNSIGNED NOT NULL,                     -- 対象ユーザーID
+    family_id CHAR(36) NOT NULL,                          -- ファミリーID（ログイン1回ごとの UUID）
+    expiry_date TIMESTAMP NOT NULL,                       -- 有効期限
+    used_at TIMESTAMP NULL DEFAULT NULL,                  -- 使用日時（未使用の場合は NULL）
+    revoked_at TIMESTAMP NULL DEFAULT NULL,               -- 無効化日時（有効な場合は NULL）
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,       -- 登録日時（自動設定）
+
+    UNIQUE KEY uk_refresh_tokens_token_hash (token_hash),
+    INDEX idx_refresh_tokens_family_id (family_id),
+    INDEX idx_refresh_tokens_user_id (user_id),
+    INDEX idx_refresh_tokens_expiry_date (expiry_date),
+    FOREIGN KEY (user_id) REFERENCES users(id)
+);
@@ -0,0 +1,145 @@
+package dvn.local.dvnjs.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import dvn.local.dvnjs.config.JwtConfig;
+import dvn.local.dvnjs.helpers.TokenDigest;
+import dvn.local.dvnjs.modules.users.security.AuthUser;
+import dvn.local.dvnjs.modules.users.security.UserAuthorities;
+import dvn.local.dvnjs.services.JwtService;
+import dvn.local.dvnjs.services.JwtVerifier;
+
+/**
+ * 組み込みデータベース（R2DBC H2）を使い、リアクティブ版の認証エッジの動作を確認する。
+ */
+@SpringBootTest(
+    classes = ReactiveEdgeApplication.class,
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "spring.main.web-application-type=reactive",
+        "spring.r2dbc.url=r2dbc:h2:mem:///edge;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:reactive-edge-schema.sql",
+        "security.ops.user-catalogue-ids=9"
+    })
+class ReactiveEdgeTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private JwtConfig jwtConfig;
+
+    @Autowired
+    private JwtVerifier jwtVerifier;
+
+    @Autowired
+    private ReactiveAuthRepository reactiveAuthRepository;
+
+    private Long userId;
+
+    private String token;
+
+    @BeforeEach
+    void createUser() {
+        databaseClient.sql("DELETE FROM blacklisted_tokens").then().block();
+        databaseClient.sql("DELETE FROM users").then().block();
+        databaseClient.sql("INSERT INTO users (name, email, phone, user_catalogue_id) VALUES ('Edge', 'edge@example.com', '0900000000', 1)")
+                .then().block();
+        userId = databaseClient.sql("SELECT id FROM users WHERE email = 'edge@example.com'")
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .block();
+
+        // サーブレット版と同じ JwtService でトークンを発行する（発行のみのため DB 依存は使わない）
+        token = new JwtService(jwtConfig, jwtVerifier).generateToken(userId, "edge@example.com");
+    }
+
+    @Test
+    void validTokenReturnsCurrentUser() {
+        webTestClient.get().uri("/api/v1/me")
+                .header("Authorization", "Bearer " + token)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data.id").isEqualTo(userId)
+                .jsonPath("$.data.email").isEqualTo("edge@example.com");
+    }
+
+    @Test
+    void authoritiesFollowTheUserCatalogue() {
+        // 一般のユーザーは権限を持たず、運用者のカタログのユーザーには OPS 権限が与えられる（サーブレット版と同じ）
+        assertThat(reactiveAuthRepository.findAuthRowById(userId).block().principal().getAuthorities()).isEmpty();
+
+        databaseClient.sql("INSERT INTO users (name, email, phone, user_catalogue_id) VALUES ('Ops', 'ops@example.com', '0900000000', 9)")
+                .then().block();
+        Long opsId = databaseClient.sql("SELECT id FROM users WHERE email = 'ops@example.com'")
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .block();
+        AuthUser ops = reactiveAuthRepository.findAuthRowById(opsId).block().principal();
+        assertThat(ops.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly(UserAuthorities.OPS);
+    }
+
+    @Test
+    void missingHeaderIsRejected() {
+        webTestClient.get().uri("/api/v1/me")
+                .exchange()
+                .expectStatus().is5xxServerError()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("トークンが見つかりません。")
+                .jsonPath("$.path").isEqualTo("/api/v1/me");
+    }
+
+    @Test
+    void badSignatureIsRejected() {
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        webTestClient.get().uri("/api/v1/me")
+                .header("Authorization", "Bearer " + tampered)
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void blacklistedTokenIsRejected() {
+        databaseClient.sql("INSERT INTO blacklisted_tokens (token_hash, user_id, expiry_date) VALUES (:hash, :userId, :expiry)")
+                .bind("hash", TokenDigest.sha256(token))
+                .bind("userId", userId)
+                .bind("expiry", LocalDateTime.now().plusHours(1))
+                .then().block();
+
+        webTestClient.get().uri("/api/v1/me")
+                .header("Authorization", "Bearer " + token)
+                .exchange()
+                .expectStatus().isUnauthorized()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("トークンはブロックされました。");
+    }
+
+    @Test
+    void tokensIssuedBeforeRevokeAllAreRejected() {
+        databaseClient.sql("UPDATE users SET tokens_revoked_at = :revokedAt WHERE id = :id")
+                .bind("revokedAt", LocalDateTime.now().plusMinutes(1))
+                .bind("id", userId)
+                .then().block();
+
+        webTestClient.get().uri("/api/v1/me")
+                .header("Authorization", "Bearer " + token)
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+}
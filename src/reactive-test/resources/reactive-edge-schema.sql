@@ -0,0 +1,17 @@
+-- リアクティブ版の認証エッジのテスト用スキーマ（認証で参照する列のみ）
+CREATE TABLE IF NOT EXISTS users (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_catalogue_id BIGINT,
+    name VARCHAR(255),
+    email VARCHAR(255),
+    password VARCHAR(255),
+    phone VARCHAR(255),
+    tokens_revoked_at TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS blacklisted_tokens (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    token_hash BINARY(32) NOT NULL UNIQUE,
+    user_id BIGINT NOT NULL,
+    expiry_date TIMESTAMP NOT NULL
+);
@@ -0,0 +1,75 @@
+package dvn.local.dvnjs.reactive;
+
+import java.time.LocalDateTime;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import dvn.local.dvnjs.modules.users.security.AuthUser;
+import dvn.local.dvnjs.modules.users.security.UserAuthorities;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 認証に必要なブラックリストとユーザー情報を R2DBC で非ブロッキングに参照するリポジトリ。
+ *
+ * サーブレット版の BlacklistedTokenRepository#existsByTokenHash と
+ * CustomUserDetailsService（＋ TokenEpochService の一括失効日時）に相当する。
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAuthRepository {
+
+    /**
+     * 認証用に読み込んだユーザー
+     * @param principal プリンシパル
+     * @param tokensRevokedAt この日時以前に発行されたトークンは無効（未設定の場合は null）
+     */
+    public record AuthRow(AuthUser principal, LocalDateTime tokensRevokedAt) {
+    }
+
+    private final DatabaseClient databaseClient;
+
+    // ユーザーカタログIDから権限を決める（サーブレット版と同じ権限にする）
+    private final UserAuthorities userAuthorities;
+
+    public ReactiveAuthRepository(DatabaseClient databaseClient, UserAuthorities userAuthorities) {
+        this.databaseClient = databaseClient;
+        this.userAuthorities = userAuthorities;
+    }
+
+    /**
+     * 指定ダイジェストのトークンがブラックリストに登録されているかを確認する。
+     * @param tokenHash トークンの SHA-256 ダイジェスト
+     * @return 登録されている場合 true
+     */
+    public Mono<Boolean> existsByTokenHash(byte[] tokenHash) {
+        return databaseClient.sql("SELECT 1 FROM blacklisted_tokens WHERE token_hash = :tokenHash LIMIT 1")
+                .bind("tokenHash", tokenHash)
+                .map(row -> Boolean.TRUE)
+                .first()
+                .defaultIfEmpty(Boolean.FALSE);
+    }
+
+    /**
+     * 認証に必要なユーザー情報と一括失効日時を1回の問い合わせで取得する。
+     * @param id ユーザーID
+     * @return ユーザーが存在しない場合は空
+     */
+    public Mono<AuthRow> findAuthRowById(Long id) {
+        return databaseClient.sql(
+                    "SELECT id, email, name, phone, user_catalogue_id, tokens_revoked_at FROM users WHERE id = :id")
+                .bind("id", id)
+                .map(row -> new AuthRow(
+                    new AuthUser(
+                        row.get("id", Long.class),
+                        row.get("email", String.class),
+                        row.get("name", String.class),
+                        row.get("phone", String.class),
+                        row.get("user_catalogue_id", Long.class),
+                        userAuthorities.of(row.get("user_catalogue_id", Long.class))),
+                    row.get("tokens_revoked_at", LocalDateTime.class)))
+                .first();
+    }
+}
@@ -0,0 +1,49 @@
+package dvn.local.dvnjs.reactive;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.reactive.ReactiveUserDetailsServiceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import dvn.local.dvnjs.config.JwtConfig;
+import dvn.local.dvnjs.modules.users.security.UserAuthorities;
+import dvn.local.dvnjs.services.JwtKeyRing;
+import dvn.local.dvnjs.services.JwtVerifier;
+
+/**
+ * 🌐【クラス概要】
+ * リアクティブ版の認証エッジ（reactive-edge プロファイル）の起動クラス。
+ *
+ * WebFlux（Netty）上で JWT 認証を行い、ブラックリストとユーザーの参照は R2DBC で非ブロッキングに行う。
+ * 少数のイベントループスレッドで多数のキープアライブ接続を処理するための構成で、
+ * JWT の検証ロジック（JwtVerifier）・鍵リング（JwtKeyRing）・設定（JwtConfig）と権限の判定（UserAuthorities）は
+ * サーブレット版と共有する。
+ *
+ * JDBC / JPA / Flyway は使わないため自動設定から除外する（スキーマはサーブレット版が管理する）。
+ * サーブレット版のコンポーネントスキャンに含まれても登録されないよう、リアクティブ起動時のみ有効にする。
+ */
+@SpringBootApplication(exclude = {
+    DataSourceAutoConfiguration.class,
+    DataSourceTransactionManagerAutoConfiguration.class,
+    HibernateJpaAutoConfiguration.class,
+    FlywayAutoConfiguration.class,
+    ReactiveUserDetailsServiceAutoConfiguration.class
+})
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Import({ JwtConfig.class, JwtKeyRing.class, JwtVerifier.class, UserAuthorities.class })
+@EnableScheduling // 鍵ファイルの再読み込み（JwtKeyRing）
+public class ReactiveEdgeApplication {
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveEdgeApplication.class)
+                .web(WebApplicationType.REACTIVE)
+                .run(args);
+    }
+}
@@ -0,0 +1,177 @@
+package dvn.local.dvnjs.reactive;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Optional;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import dvn.local.dvnjs.helpers.JsonErrorTemplate;
+import dvn.local.dvnjs.helpers.TokenDigest;
+import dvn.local.dvnjs.modules.users.security.AuthUser;
+import dvn.local.dvnjs.services.JwtVerifier;
+import dvn.local.dvnjs.services.VerifiedToken;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 🔐【クラス概要】
+ * JwtAuthFilter のリアクティブ版。WebFlux の WebFilter として JWT を検証し、
+ * 正しいトークンである場合に ReactiveSecurityContextHolder へ認証情報を設定する。
+ *
+ * 主な流れ：
+ *  - Authorization ヘッダーから "Bearer <token>" を取得し、形式を確認
+ *  - JwtVerifier#verify（サーブレット版と同じロジック）で署名・発行者・有効期限を検証
+ *  - ブラックリストとユーザー（一括失効日時を含む）を R2DBC で非ブロッキングに参照
+ *  - メールアドレスの一致を確認し、次のフィルターへ処理を渡す
+ *  - エラー時はサーブレット版と同じ形式の JSON を、共通の雛形（JsonErrorTemplate）から返す
+ *
+ * WebFilter の Bean として登録すると全リクエストに二重に適用されるため、
+ * ReactiveSecurityConfig でセキュリティフィルターチェーンにのみ追加する。
+ */
+public class ReactiveJwtAuthFilter implements WebFilter {
+
+    // エラーレスポンスの雛形（JwtAuthFilter と同じ文言）
+    private static final JsonErrorTemplate MISSING_TOKEN = authError(HttpStatus.INTERNAL_SERVER_ERROR, "トークンが見つかりません。");
+    private static final JsonErrorTemplate BAD_FORMAT = authError(HttpStatus.UNAUTHORIZED, "トークンの定義は正しくありません。");
+    private static final JsonErrorTemplate BAD_SIGNATURE = authError(HttpStatus.UNAUTHORIZED, "トークンの署名が不正です。");
+    private static final JsonErrorTemplate WRONG_ISSUER = authError(HttpStatus.UNAUTHORIZED, "トークンの発行者が不正です。");
+    private static final JsonErrorTemplate EXPIRED = authError(HttpStatus.UNAUTHORIZED, "トークンの有効期限が切れています。");
+    private static final JsonErrorTemplate NOT_YET_VALID = authError(HttpStatus.UNAUTHORIZED, "トークンはまだ有効になっていません。");
+    private static final JsonErrorTemplate BLOCKED = authError(HttpStatus.UNAUTHORIZED, "トークンはブロックされました。");
+    private static final JsonErrorTemplate EMAIL_MISMATCH = authError(HttpStatus.UNAUTHORIZED, "ユーザートークンが正くありません。");
+
+    // JWT の検証（サーブレット版と共有）
+    private final JwtVerifier jwtVerifier;
+
+    // ブラックリストとユーザー情報の参照
+    private final ReactiveAuthRepository reactiveAuthRepository;
+
+    public ReactiveJwtAuthFilter(
+        JwtVerifier jwtVerifier,
+        ReactiveAuthRepository reactiveAuthRepository
+    ) {
+        this.jwtVerifier = jwtVerifier;
+        this.reactiveAuthRepository = reactiveAuthRepository;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        // Authorizationヘッダーの取得（形式: "Bearer <JWT>"）
+        final String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+
+        // ヘッダーが存在しない、またはBearerトークンでない場合はエラー返却
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return sendErrorResponse(exchange, MISSING_TOKEN);
+        }
+
+        // "Bearer " の7文字をスキップしてトークン本体を抽出
+        final String jwt = authHeader.substring(7);
+
+        // トークンの形式をチェック（パース前に安価に弾く）
+        if (!jwtVerifier.isTokenFormatValid(jwt)) {
+            return sendErrorResponse(exchange, BAD_FORMAT);
+        }
+
+        // 署名・発行者・有効期限を1回のパースでまとめて検証（CPU のみで完結するためイベントループ上で行う）
+        final VerifiedToken verifiedToken = jwtVerifier.verify(jwt);
+        if (!verifiedToken.isValid()) {
+            return sendErrorResponse(exchange, failureTemplate(verifiedToken.getFailure()));
+        }
+
+        final Long userId;
+        try {
+            userId = Long.valueOf(verifiedToken.getUserId());
+        } catch (NumberFormatException e) {
+            return sendErrorResponse(exchange, BAD_FORMAT);
+        }
+
+        final TokenDigest digest = TokenDigest.of(jwt);
+
+        return reactiveAuthRepository.existsByTokenHash(digest.bytes())
+                .flatMap(blacklisted -> {
+                    // トークンがブロックされている場合
+                    if (blacklisted) {
+                        return sendErrorResponse(exchange, BLOCKED);
+                    }
+                    return reactiveAuthRepository.findAuthRowById(userId)
+                            .map(Optional::of)
+                            .defaultIfEmpty(Optional.empty())
+                            .flatMap(row -> authenticate(exchange, chain, verifiedToken, row));
+                });
+    }
+
+    // ユーザー単位の一括失効とメールアドレスを確認し、認証情報を設定して次のフィルターへ渡す
+    private Mono<Void> authenticate(
+        ServerWebExchange exchange,
+        WebFilterChain chain,
+        VerifiedToken verifiedToken,
+        Optional<ReactiveAuthRepository.AuthRow> row
+    ) {
+        if (row.isEmpty()) {
+            return sendErrorResponse(exchange, EMAIL_MISMATCH);
+        }
+
+        // ユーザー単位の一括失効（全端末からのログアウト）の確認（TokenEpochService と同じ秒単位の比較）
+        if (isRevoked(verifiedToken.getIssuedAt(), row.get().tokensRevokedAt())) {
+            return sendErrorResponse(exchange, BLOCKED);
+        }
+
+        final AuthUser userDetails = row.get().principal();
+        final String emailFromToken = verifiedToken.getEmail();
+        if (emailFromToken == null || !emailFromToken.equals(userDetails.getUsername())) {
+            return sendErrorResponse(exchange, EMAIL_MISMATCH);
+        }
+
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                userDetails,
+                null,
+                userDetails.getAuthorities());
+
+        return chain.filter(exchange)
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authToken));
+    }
+
+    // 発行時刻が一括失効日時以前であれば無効
+    private static boolean isRevoked(Date issuedAt, LocalDateTime tokensRevokedAt) {
+        if (tokensRevokedAt == null) {
+            return false;
+        }
+        long epoch = tokensRevokedAt.atZone(ZoneId.systemDefault()).toEpochSecond();
+        return issuedAt == null || issuedAt.getTime() / 1000 <= epoch;
+    }
+
+    // 検証失敗理由に対応するエラーレスポンスの雛形を返す（JwtAuthFilter と同じ文言）
+    private static JsonErrorTemplate failureTemplate(VerifiedToken.Failure failure) {
+        return switch (failure) {
+            case MALFORMED -> BAD_FORMAT;
+            case BAD_SIGNATURE -> BAD_SIGNATURE;
+            case WRONG_ISSUER -> WRONG_ISSUER;
+            case EXPIRED -> EXPIRED;
+            case NOT_YET_VALID -> NOT_YET_VALID;
+        };
+    }
+
+    // 認証エラーの雛形を作成する
+    private static JsonErrorTemplate authError(HttpStatus status, String message) {
+        return new JsonErrorTemplate(status.value(), "認証できませんでした。", message);
+    }
+
+    // エラー発生時に雛形から JSON 形式のレスポンスを返す（JwtAuthFilter と同じ形式）
+    private static Mono<Void> sendErrorResponse(ServerWebExchange exchange, JsonErrorTemplate template) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setRawStatusCode(template.getStatus());
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.fromSupplier(() ->
+                template.toDataBuffer(response.bufferFactory(), exchange.getRequest().getPath().value())));
+    }
+}
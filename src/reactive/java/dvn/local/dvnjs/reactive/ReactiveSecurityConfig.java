@@ -0,0 +1,49 @@
+package dvn.local.dvnjs.reactive;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+
+import dvn.local.dvnjs.services.JwtVerifier;
+
+/**
+ * リアクティブ版のセキュリティ設定。SecurityConfig（サーブレット版）に相当する。
+ */
+@Configuration
+@EnableWebFluxSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSecurityConfig {
+
+    // セキュリティ設定を定義するメソッド
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(
+        ServerHttpSecurity http,
+        JwtVerifier jwtVerifier,
+        ReactiveAuthRepository reactiveAuthRepository
+    ) {
+        // WebFilter の Bean にすると全リクエストに二重に適用されるため、ここで生成してチェーンにのみ追加する
+        ReactiveJwtAuthFilter jwtAuthFilter = new ReactiveJwtAuthFilter(jwtVerifier, reactiveAuthRepository);
+
+        return http
+            // CSRF保護・Basic認証・フォームログインを無効化（API通信のため）
+            .csrf(ServerHttpSecurity.CsrfSpec::disable)
+            .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+            .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+            .logout(ServerHttpSecurity.LogoutSpec::disable)
+
+            // サーバー側でセッションを保持しない（JWT認証のため）
+            .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+
+            // すべてのリクエストは認証が必要（ログインはサーブレット版で行う）
+            .authorizeExchange(exchange -> exchange.anyExchange().authenticated())
+
+            // JWTフィルターを認証の位置に追加
+            .addFilterAt(jwtAuthFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+            .build();
+    }
+}
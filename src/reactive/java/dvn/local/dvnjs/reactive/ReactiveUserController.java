@@ -0,0 +1,45 @@
+package dvn.local.dvnjs.reactive;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import dvn.local.dvnjs.modules.users.resources.UserResource;
+import dvn.local.dvnjs.modules.users.security.AuthUser;
+import dvn.local.dvnjs.resources.SuccessResource;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * UserController のリアクティブ版。
+ * ReactiveJwtAuthFilter が設定したプリンシパル（AuthUser）からユーザー情報を返す。
+ */
+@RestController
+@RequestMapping("api/v1")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserController {
+
+    /**
+     * 現在のユーザー情報を取得するエンドポイント
+     *
+     * @return ユーザー情報（id、email、name、phone）を含むレスポンス
+     */
+    @GetMapping("me")
+    public Mono<ResponseEntity<SuccessResource<UserResource>>> me() {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .map(Authentication::getPrincipal)
+                .cast(AuthUser.class)
+                .map(user -> ResponseEntity.ok(new SuccessResource<>("SUCCESS", UserResource.builder()
+                        .id(user.getId())
+                        .email(user.getEmail())
+                        .name(user.getName())
+                        .phone(user.getPhone())
+                        .build())));
+    }
+}
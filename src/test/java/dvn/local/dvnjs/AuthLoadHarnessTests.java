@@ -0,0 +1,409 @@
+package dvn.local.dvnjs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import dvn.local.dvnjs.services.JwtService;
+
+/**
+ * 外部ツールや MySQL サーバーを使わずに実行できる、エンドツーエンドの負荷テスト。
+ *
+ * 組み込み H2（MySQL モード）でアプリケーションを起動し、N 人のユーザーを登録したうえで、
+ * ログイン・/api/v1/me・ログアウトを一定の到着率（オープンモデル）で送信する。
+ * 各リクエストの遅延は「本来送信すべきだった時刻」から計測するため、
+ * 送信側の遅れによる計測漏れ（coordinated omission）を補正した値になる。
+ *
+ * 結果（スループット、p50/p99/p999、HdrHistogram の圧縮データ）は JSON に出力し、
+ * ベースラインの JSON を指定した場合は p99 の悪化がしきい値を超えると失敗する。
+ *
+ * loadtest.thread-modes に複数のモードを指定すると、仮想スレッドモードとプラットフォームスレッド
+ * （Tomcat のスレッドプール）でそれぞれアプリケーションを起動して同じ負荷をかけ、結果を並べて出力する。
+ * loadtest.caches=false の場合は、毎回 DB を参照させるため検証済みトークンとユーザー情報のキャッシュを無効にする。
+ *
+ * 通常のテストでは実行しない。実行例：
+ *   mvn test -Dtest=AuthLoadHarnessTests -Dloadtest=true \
+ *     -Dloadtest.users=1000 -Dloadtest.bcrypt-strength=10 -Dloadtest.rate=500 -Dloadtest.duration=30 \
+ *     -Dloadtest.thread-modes=platform,virtual -Dloadtest.caches=true \
+ *     -Dloadtest.output=target/load-test/result.json \
+ *     -Dloadtest.baseline=previous.json -Dloadtest.max-regression=0.10
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class AuthLoadHarnessTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthLoadHarnessTests.class);
+
+    /**
+     * 送信する操作
+     */
+    enum Operation {
+        LOGIN, ME, LOGOUT
+    }
+
+    // 登録するユーザー数
+    private static final int USERS = Integer.getInteger("loadtest.users", 1000);
+
+    // 1秒あたりの到着数（リクエスト数）
+    private static final int RATE = Integer.getInteger("loadtest.rate", 500);
+
+    // 計測時間と、その前のウォームアップ時間（秒）
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("loadtest.duration", 30));
+    private static final Duration WARM_UP = Duration.ofSeconds(Long.getLong("loadtest.warm-up", 5));
+
+    // 操作の比率（ログイン:me:ログアウト）
+    private static final int LOGIN_WEIGHT = Integer.getInteger("loadtest.mix.login", 10);
+    private static final int ME_WEIGHT = Integer.getInteger("loadtest.mix.me", 85);
+    private static final int LOGOUT_WEIGHT = Integer.getInteger("loadtest.mix.logout", 5);
+
+    // 結果の出力先と、比較するベースライン
+    private static final Path OUTPUT = Path.of(System.getProperty("loadtest.output", "target/load-test/result.json"));
+    private static final String BASELINE = System.getProperty("loadtest.baseline");
+
+    // ベースラインに対して許容する p99 の悪化率
+    private static final double MAX_REGRESSION = Double.parseDouble(System.getProperty("loadtest.max-regression", "0.10"));
+
+    // 許容するエラー率（2xx 以外の応答と送信エラーの割合）
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01"));
+
+    // 記録する遅延の上限（これを超える値は上限として記録する）
+    private static final long MAX_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    // BCrypt のコスト（ログインの比率を上げて計測する場合などに下げる）
+    private static final String BCRYPT_STRENGTH = System.getProperty("loadtest.bcrypt-strength", "10");
+
+    // 比較するスレッドモード（platform / virtual、カンマ区切り）
+    private static final List<String> THREAD_MODES = List.of(System.getProperty(
+            "loadtest.thread-modes", Runtime.version().feature() >= 21 ? "virtual" : "platform").split(","));
+
+    // 検証済みトークンとユーザー情報のキャッシュを使うかどうか
+    private static final boolean CACHES = Boolean.parseBoolean(System.getProperty("loadtest.caches", "true"));
+
+    private static final String PASSWORD = "password";
+
+    @Test
+    void runAtFixedArrivalRate() throws Exception {
+        Map<String, Map<Operation, Stats>> runs = new LinkedHashMap<>();
+        for (String mode : THREAD_MODES) {
+            String threadMode = mode.trim();
+            if ("virtual".equals(threadMode) && Runtime.version().feature() < 21) {
+                logger.warn("仮想スレッドは Java 21 以降でのみ計測できるため、スキップします");
+                continue;
+            }
+            runs.put(threadMode, run(threadMode));
+        }
+
+        Map<String, Object> result = toJson(runs);
+        Files.createDirectories(OUTPUT.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(OUTPUT.toFile(), result);
+        logger.info("負荷テストの結果を出力しました: {}", OUTPUT.toAbsolutePath());
+        logSummary(runs);
+
+        for (Map.Entry<String, Map<Operation, Stats>> run : runs.entrySet()) {
+            for (Operation operation : Operation.values()) {
+                Stats current = run.getValue().get(operation);
+                assertThat(current.errors.get())
+                        .as("%s/%s のエラー件数 %s", run.getKey(), operation, current.statuses)
+                        .isLessThanOrEqualTo((long) (current.corrected.getTotalCount() * MAX_ERROR_RATE));
+            }
+        }
+        if (BASELINE != null) {
+            assertNoRegression(new ObjectMapper().readTree(Path.of(BASELINE).toFile()), runs);
+        }
+    }
+
+    // 指定したスレッドモードでアプリケーションを起動し、一定の到着率で負荷をかける
+    private static Map<Operation, Stats> run(String threadMode) throws Exception {
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:mem:loadtest-" + threadMode + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "spring.threads.virtual.enabled=" + "virtual".equals(threadMode),
+                "password.bcrypt.strength=" + BCRYPT_STRENGTH,
+                "rate-limit.enabled=false", // 全リクエストが同じ送信元からになるため
+                "logging.level.root=WARN",
+                "logging.level.dvn.local.dvnjs.AuthLoadHarnessTests=INFO"));
+        if (!CACHES) {
+            properties.add("jwt.cache.enabled=false");
+            properties.add("users.cache.maximum-size=0");
+        }
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DvnjsApplication.class)
+                .properties(properties.toArray(String[]::new))
+                .run()) {
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port;
+            List<String> emails = seedUsers(context);
+
+            JwtService jwtService = context.getBean(JwtService.class);
+            List<String> tokens = new ArrayList<>(USERS);
+            List<Long> userIds = context.getBean(JdbcTemplate.class)
+                    .queryForList("SELECT id FROM users WHERE email LIKE 'load-%' ORDER BY id", Long.class);
+            for (int i = 0; i < USERS; i++) {
+                tokens.add(jwtService.generateToken(userIds.get(i), emails.get(i)));
+            }
+
+            Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+            for (Operation operation : Operation.values()) {
+                stats.put(operation, new Stats());
+            }
+
+            ExecutorService clients = clientExecutor();
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+            long intervalNanos = TimeUnit.SECONDS.toNanos(1) / RATE;
+            long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+            long measureFrom = start + WARM_UP.toNanos();
+            long end = measureFrom + DURATION.toNanos();
+            int totalWeight = LOGIN_WEIGHT + ME_WEIGHT + LOGOUT_WEIGHT;
+
+            // 到着時刻ごとに1リクエストを送信する（送信側が遅れても本来の時刻から遅延を計測する）
+            for (long i = 0; ; i++) {
+                final long intended = start + i * intervalNanos;
+                if (intended >= end) {
+                    break;
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+                Operation operation = pick < LOGIN_WEIGHT ? Operation.LOGIN
+                        : pick < LOGIN_WEIGHT + ME_WEIGHT ? Operation.ME
+                        : Operation.LOGOUT;
+                int slot = ThreadLocalRandom.current().nextInt(USERS);
+                boolean measured = intended >= measureFrom;
+
+                clients.execute(() -> {
+                    HttpRequest request = buildRequest(operation, baseUrl, slot, emails, tokens, jwtService, userIds);
+                    long sentAt = System.nanoTime();
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (Exception e) {
+                        status = -1;
+                    }
+                    long finishedAt = System.nanoTime();
+                    if (measured) {
+                        stats.get(operation).record(finishedAt - intended, finishedAt - sentAt, status);
+                    }
+                });
+            }
+
+            clients.shutdown();
+            clients.awaitTermination(2, TimeUnit.MINUTES);
+            return stats;
+        }
+    }
+
+    // 負荷テスト用のユーザーを一括で登録する（パスワードのハッシュは1回だけ計算して共有する）
+    private static List<String> seedUsers(ConfigurableApplicationContext context) {
+        String encoded = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        List<String> emails = new ArrayList<>(USERS);
+        List<Object[]> rows = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            String email = "load-" + i + "@example.com";
+            emails.add(email);
+            rows.add(new Object[] { "Load " + i, email, encoded, 1L, "0900000000" });
+        }
+        context.getBean(JdbcTemplate.class).batchUpdate(
+                "INSERT INTO users (name, email, password, user_catalogue_id, phone, created_at) VALUES (?, ?, ?, ?, ?, NOW())",
+                rows);
+        return emails;
+    }
+
+    // 操作ごとのリクエストを作成する
+    private static HttpRequest buildRequest(
+        Operation operation,
+        String baseUrl,
+        int slot,
+        List<String> emails,
+        List<String> tokens,
+        JwtService jwtService,
+        List<Long> userIds
+    ) {
+        return switch (operation) {
+            case LOGIN -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/auth/login"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"email\":\"" + emails.get(slot) + "\",\"password\":\"" + PASSWORD + "\"}"))
+                    .build();
+            case ME -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/me"))
+                    .header("Authorization", "Bearer " + tokens.get(slot))
+                    .GET()
+                    .build();
+            // 共有のトークンを失効させると並行する /me が 401 になるため、ログアウト用に新しく発行する
+            case LOGOUT -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/auth/logout"))
+                    .header("Authorization", "Bearer " + jwtService.generateToken(userIds.get(slot), emails.get(slot)))
+                    .GET()
+                    .build();
+        };
+    }
+
+    // Java 21 以降は仮想スレッドでクライアントを動かす（それより前の JDK ではプラットフォームスレッドで代用する）
+    private static ExecutorService clientExecutor() {
+        if (Runtime.version().feature() >= 21) {
+            VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("load-client-");
+            return Executors.newCachedThreadPool(executor.getVirtualThreadFactory());
+        }
+        return Executors.newCachedThreadPool();
+    }
+
+    // 結果を JSON 用のマップにまとめる
+    private static Map<String, Object> toJson(Map<String, Map<Operation, Stats>> runs) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("timestamp", Instant.now().toString());
+        result.put("config", Map.of(
+                "users", USERS,
+                "rate", RATE,
+                "durationSeconds", DURATION.toSeconds(),
+                "warmUpSeconds", WARM_UP.toSeconds(),
+                "bcryptStrength", BCRYPT_STRENGTH,
+                "mix", Map.of("login", LOGIN_WEIGHT, "me", ME_WEIGHT, "logout", LOGOUT_WEIGHT),
+                "caches", CACHES,
+                "javaVersion", Runtime.version().toString()));
+
+        // スレッドモードごとの結果
+        Map<String, Object> modes = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<Operation, Stats>> run : runs.entrySet()) {
+            Map<String, Object> operations = new LinkedHashMap<>();
+            for (Map.Entry<Operation, Stats> entry : run.getValue().entrySet()) {
+                operations.put(entry.getKey().name().toLowerCase(), entry.getValue().toJson());
+            }
+            modes.put(run.getKey(), Map.of("operations", operations));
+        }
+        result.put("runs", modes);
+        return result;
+    }
+
+    // p99（補正後）がベースラインの同じスレッドモードよりしきい値を超えて悪化していないことを確認する
+    private static void assertNoRegression(JsonNode baseline, Map<String, Map<Operation, Stats>> runs) {
+        for (Map.Entry<String, Map<Operation, Stats>> run : runs.entrySet()) {
+            JsonNode operations = baseline.path("runs").path(run.getKey()).path("operations");
+            for (Operation operation : Operation.values()) {
+                JsonNode previous = operations.path(operation.name().toLowerCase()).path("corrected").path("p99Millis");
+                if (previous.isMissingNode() || previous.asDouble() <= 0) {
+                    continue;
+                }
+                double current = run.getValue().get(operation).corrected.getValueAtPercentile(99) / 1_000_000.0;
+                double limit = previous.asDouble() * (1 + MAX_REGRESSION);
+                assertThat(current)
+                        .as("%s/%s の p99 (%.2fms) がベースライン (%.2fms) の許容範囲を超えました",
+                                run.getKey(), operation, current, previous.asDouble())
+                        .isLessThanOrEqualTo(limit);
+            }
+        }
+    }
+
+    // 結果の概要をスレッドモードごとに並べてログに出力する（詳細は JSON を参照）
+    private static void logSummary(Map<String, Map<Operation, Stats>> runs) {
+        for (Map.Entry<String, Map<Operation, Stats>> run : runs.entrySet()) {
+            for (Map.Entry<Operation, Stats> entry : run.getValue().entrySet()) {
+                Histogram h = entry.getValue().corrected;
+                logger.info(String.format("%-8s %-8s count=%d req/s=%.1f p50=%.2fms p99=%.2fms p999=%.2fms errors=%d",
+                        run.getKey(), entry.getKey(), h.getTotalCount(), h.getTotalCount() / (double) DURATION.toSeconds(),
+                        h.getValueAtPercentile(50) / 1_000_000.0,
+                        h.getValueAtPercentile(99) / 1_000_000.0,
+                        h.getValueAtPercentile(99.9) / 1_000_000.0,
+                        entry.getValue().errors.get()));
+            }
+        }
+    }
+
+    /**
+     * 操作ごとの計測結果
+     */
+    private static final class Stats {
+
+        // 本来の送信時刻からの遅延（coordinated omission を補正した値）
+        private final Recorder correctedRecorder = new Recorder(MAX_LATENCY_NANOS, 3);
+
+        // 実際に送信してからの遅延（サービス時間）
+        private final Recorder serviceRecorder = new Recorder(MAX_LATENCY_NANOS, 3);
+
+        // 2xx 以外の応答、または送信エラーの件数
+        private final AtomicLong errors = new AtomicLong();
+
+        // ステータスコードごとの件数
+        private final Map<Integer, AtomicLong> statuses = new java.util.concurrent.ConcurrentHashMap<>();
+
+        private Histogram corrected;
+
+        private Histogram service;
+
+        void record(long correctedNanos, long serviceNanos, int status) {
+            correctedRecorder.recordValue(Math.min(correctedNanos, MAX_LATENCY_NANOS));
+            serviceRecorder.recordValue(Math.min(serviceNanos, MAX_LATENCY_NANOS));
+            statuses.computeIfAbsent(status, s -> new AtomicLong()).incrementAndGet();
+            if (status < 200 || status >= 300) {
+                errors.incrementAndGet();
+            }
+        }
+
+        Map<String, Object> toJson() {
+            corrected = correctedRecorder.getIntervalHistogram();
+            service = serviceRecorder.getIntervalHistogram();
+
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("count", corrected.getTotalCount());
+            json.put("throughput", corrected.getTotalCount() / (double) DURATION.toSeconds());
+            json.put("errors", errors.get());
+            json.put("statuses", statuses);
+            json.put("corrected", percentiles(corrected));
+            json.put("service", percentiles(service));
+            return json;
+        }
+
+        private static Map<String, Object> percentiles(Histogram histogram) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("p50Millis", histogram.getValueAtPercentile(50) / 1_000_000.0);
+            json.put("p99Millis", histogram.getValueAtPercentile(99) / 1_000_000.0);
+            json.put("p999Millis", histogram.getValueAtPercentile(99.9) / 1_000_000.0);
+            json.put("maxMillis", histogram.getMaxValue() / 1_000_000.0);
+
+            // HdrHistogram の圧縮形式（HistogramLogProcessor などでそのまま読み込める）
+            ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+            int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+            json.put("histogram", Base64.getEncoder().encodeToString(
+                    java.util.Arrays.copyOf(buffer.array(), length)));
+            return json;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package dvn.local.dvnjs.helpers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * ブルームフィルターに追加したダイジェストが必ず「含まれている可能性あり」と判定され（偽陰性なし）、
+ * 偽陽性率がおおむね設定値に収まることを確認する。
+ */
+class BloomFilterTests {
+
+    @Test
+    void noFalseNegativesAndBoundedFalsePositives() {
+        int n = 20_000;
+        BloomFilter filter = new BloomFilter(n, 0.001);
+
+        for (int i = 0; i < n; i++) {
+            filter.put(TokenDigest.of("revoked-" + i));
+        }
+        for (int i = 0; i < n; i++) {
+            assertThat(filter.mightContain(TokenDigest.of("revoked-" + i))).isTrue();
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < n; i++) {
+            if (filter.mightContain(TokenDigest.of("active-" + i))) {
+                falsePositives++;
+            }
+        }
+        // 設定値 0.1% に対して余裕を持たせた上限（20,000件中 100件 = 0.5%）
+        assertThat(falsePositives).isLessThan(100);
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(1_000, 0.001);
+        assertThat(filter.mightContain(TokenDigest.of("anything"))).isFalse();
+    }
+}
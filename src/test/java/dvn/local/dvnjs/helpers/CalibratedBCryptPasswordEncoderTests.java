@@ -0,0 +1,29 @@
+package dvn.local.dvnjs.helpers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * コストの計測と、コストが異なるハッシュの再ハッシュ判定を確認する。
+ */
+class CalibratedBCryptPasswordEncoderTests {
+
+    @Test
+    void upgradeEncodingWhenStoredCostDiffers() {
+        CalibratedBCryptPasswordEncoder encoder = new CalibratedBCryptPasswordEncoder(5);
+
+        assertThat(encoder.upgradeEncoding(encoder.encode("password"))).isFalse();
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password"))).isTrue();
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("password"))).isTrue();
+    }
+
+    @Test
+    void calibrateStaysWithinBounds() {
+        assertThat(CalibratedBCryptPasswordEncoder.calibrate(Duration.ZERO, 4, 6)).isEqualTo(4);
+        assertThat(CalibratedBCryptPasswordEncoder.calibrate(Duration.ofSeconds(10), 4, 6)).isEqualTo(6);
+    }
+}
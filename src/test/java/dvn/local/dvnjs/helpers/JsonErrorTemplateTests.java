@@ -0,0 +1,64 @@
+package dvn.local.dvnjs.helpers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 雛形から書き込んだエラーレスポンスが、ObjectMapper で変換した場合と同じ内容の JSON になることを確認する。
+ * サーブレット版（レスポンスへの書き込み）と WebFlux 版（DataBuffer）の両方を確認する。
+ */
+class JsonErrorTemplateTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void writesStatusMessageTimestampAndEscapedPath() throws Exception {
+        JsonErrorTemplate template = new JsonErrorTemplate(401, "認証できませんでした。", "トークンの\"署名\"が不正です。");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/me\"x");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        long before = System.currentTimeMillis();
+        template.write(request, response);
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(response.getContentType()).isEqualTo("application/json;charset=UTF-8");
+        assertThat(response.getContentLength()).isEqualTo(response.getContentAsByteArray().length);
+
+        Map<String, Object> body = objectMapper.readValue(response.getContentAsByteArray(), new TypeReference<>() {});
+        assertThat(body)
+                .containsEntry("status", 401)
+                .containsEntry("error", "認証できませんでした。")
+                .containsEntry("message", "トークンの\"署名\"が不正です。")
+                .containsEntry("path", "/api/v1/me\"x");
+        assertThat(((Number) body.get("timestamp")).longValue()).isGreaterThanOrEqualTo(before);
+    }
+
+    @Test
+    void writesTheSameBodyIntoADataBuffer() throws Exception {
+        JsonErrorTemplate template = new JsonErrorTemplate(401, "認証できませんでした。", "トークンはブロックされました。");
+
+        long before = System.currentTimeMillis();
+        DataBuffer buffer = template.toDataBuffer(DefaultDataBufferFactory.sharedInstance, "/api/v1/me\\x");
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+
+        assertThat(template.getStatus()).isEqualTo(401);
+        Map<String, Object> body = objectMapper.readValue(bytes, new TypeReference<>() {});
+        assertThat(body)
+                .containsEntry("status", 401)
+                .containsEntry("error", "認証できませんでした。")
+                .containsEntry("message", "トークンはブロックされました。")
+                .containsEntry("path", "/api/v1/me\\x");
+        assertThat(((Number) body.get("timestamp")).longValue()).isGreaterThanOrEqualTo(before);
+    }
+}
@@ -0,0 +1,115 @@
+package dvn.local.dvnjs.helpers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import dvn.local.dvnjs.DvnjsApplication;
+import dvn.local.dvnjs.modules.users.entities.User;
+import dvn.local.dvnjs.modules.users.repositories.UserRepository;
+import dvn.local.dvnjs.services.JwtService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * ステートレスモード（jwt.stateless=true）で、プリンシパルと権限がトークンのクレームだけから作成され
+ * ユーザーを読み込まないことと、クレームを持たないトークンはユーザーの読み込みに戻ることを確認する。
+ * ユーザーの読み込み回数は auth.filter.stage（stage=user_load）の件数で確認する。
+ */
+class StatelessAuthenticationTests {
+
+    // 運用者（OPS 権限）とするカタログID
+    private static final long OPS_CATALOGUE_ID = 77L;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient client;
+
+    private String baseUrl;
+
+    @BeforeEach
+    void start() {
+        context = new SpringApplicationBuilder(DvnjsApplication.class)
+                .properties(
+                        "server.port=0",
+                        "jwt.stateless=true",
+                        "security.ops.user-catalogue-ids=" + OPS_CATALOGUE_ID)
+                .run();
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void stop() {
+        context.close();
+    }
+
+    @Test
+    void principalAndAuthoritiesComeFromClaims() throws Exception {
+        UserRepository users = context.getBean(UserRepository.class);
+        User user = users.save(user("Stateless", OPS_CATALOGUE_ID));
+        String token = context.getBean(JwtService.class).generateToken(user);
+
+        // 発行後に DB の名前を変えても、クレームの名前が返る（DB を参照していない）
+        user.setName("Renamed");
+        users.save(user);
+
+        HttpResponse<String> me = send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/me")), token);
+        assertThat(me.statusCode()).isEqualTo(200);
+        assertThat(me.body()).contains("\"name\":\"Stateless\"").contains(user.getEmail());
+
+        // 権限もクレームから設定される（OPS 権限が必要な API を実行できる）
+        HttpResponse<String> bulk = send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/auth/blacklisted_tokens/bulk"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString("not json\n")), token);
+        assertThat(bulk.statusCode()).isEqualTo(200);
+
+        assertThat(userLoads()).isZero();
+    }
+
+    @Test
+    void tokensWithoutUserClaimsFallBackToLoadingTheUser() throws Exception {
+        User user = context.getBean(UserRepository.class).save(user("Legacy", 1L));
+        // クレームを埋め込まずに発行したトークン（ステートレスモードへ切り替える前に発行されたもの）
+        String token = context.getBean(JwtService.class).generateToken(user.getId(), user.getEmail());
+
+        HttpResponse<String> me = send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/me")), token);
+        assertThat(me.statusCode()).isEqualTo(200);
+        assertThat(me.body()).contains("\"name\":\"Legacy\"");
+
+        assertThat(userLoads()).isEqualTo(1);
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request, String token) throws Exception {
+        return client.send(request.header("Authorization", "Bearer " + token).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    // JwtAuthFilter がユーザーを読み込んだ回数
+    private long userLoads() {
+        return context.getBean(MeterRegistry.class)
+                .get("auth.filter.stage").tag("stage", "user_load").timer().count();
+    }
+
+    // 他のテストのトークンに影響しないよう、専用のユーザーを作成する
+    private static User user(String name, Long userCatalogueId) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(name.toLowerCase() + "-" + UUID.randomUUID() + "@example.com");
+        user.setPassword("-");
+        user.setPhone("0900000000");
+        user.setUserCatalogueId(userCatalogueId);
+        return user;
+    }
+}
@@ -0,0 +1,87 @@
+package dvn.local.dvnjs.modules.users.services.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import dvn.local.dvnjs.helpers.TokenDigest;
+import dvn.local.dvnjs.modules.users.repositories.BlacklistedTokenRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 期限切れトークンの削除が、期限切れの行だけを複数のバッチに分けて削除することと、
+ * 最大実行時間で打ち切られた場合に削除の遅れ（lag）として残りが計測されることを確認する。
+ */
+@SpringBootTest
+class BlacklistPurgeServiceTests {
+
+    @Autowired
+    private BlacklistedTokenRepository blacklistedTokenRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // ゲージは対象を弱参照で保持するため、計測値を確認するまでサービスを保持しておく
+    private BlacklistPurgeService purgeService;
+
+    @Test
+    void removesOnlyExpiredRowsAcrossBatches() {
+        List<TokenDigest> expired = seed("expired", 10, LocalDateTime.now().minusDays(1));
+        List<TokenDigest> active = seed("active", 5, LocalDateTime.now().plusHours(1));
+
+        // 1バッチ3件のため、期限切れの10件は4回に分けて削除される
+        purgeService(3, Duration.ofMinutes(1)).purgeExpired();
+
+        assertThat(expired).noneMatch(this::exists);
+        assertThat(active).allMatch(this::exists);
+        assertThat(meterRegistry.get("blacklist.purge.rows").counter().count()).isGreaterThanOrEqualTo(10);
+        assertThat(meterRegistry.get("blacklist.purge.lag").gauge().value()).isZero();
+    }
+
+    @Test
+    void stopsAtTheMaxRunTimeAndReportsTheLag() {
+        // 他のテストで登録された行より古い期限にし、古い順に削除されることを確認する
+        LocalDateTime oldest = LocalDateTime.of(2000, 1, 1, 0, 0);
+        List<TokenDigest> expired = seed("overdue", 5, oldest);
+
+        // 最大実行時間を 0 にすると、最初のバッチだけで打ち切られる
+        purgeService(2, Duration.ZERO).purgeExpired();
+
+        assertThat(expired.stream().filter(this::exists).count()).isEqualTo(3);
+        assertThat(meterRegistry.get("blacklist.purge.rows").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("blacklist.purge.lag").gauge().value())
+                .isGreaterThanOrEqualTo(Duration.between(oldest, LocalDateTime.now()).getSeconds() - 60);
+
+        // 次の実行で残りも削除される
+        purgeService(2, Duration.ofMinutes(1)).purgeExpired();
+        assertThat(expired).noneMatch(this::exists);
+    }
+
+    private BlacklistPurgeService purgeService(int batchSize, Duration maxRunTime) {
+        meterRegistry.clear();
+        purgeService = new BlacklistPurgeService(blacklistedTokenRepository, meterRegistry, batchSize, Duration.ZERO, maxRunTime);
+        return purgeService;
+    }
+
+    // 有効期限が expiryDate の行を count 件登録する（同じ期限の行は登録順に古いものとする）
+    private List<TokenDigest> seed(String prefix, int count, LocalDateTime expiryDate) {
+        List<TokenDigest> digests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            TokenDigest digest = TokenDigest.of(prefix + "-" + System.nanoTime() + "-" + i);
+            blacklistedTokenRepository.insertIfAbsent(digest.bytes(), 1L, expiryDate.plusSeconds(i));
+            digests.add(digest);
+        }
+        return digests;
+    }
+
+    private boolean exists(TokenDigest digest) {
+        return blacklistedTokenRepository.existsByTokenHash(digest.bytes());
+    }
+}
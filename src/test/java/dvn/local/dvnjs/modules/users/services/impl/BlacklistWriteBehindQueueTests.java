@@ -0,0 +1,143 @@
+package dvn.local.dvnjs.modules.users.services.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import dvn.local.dvnjs.helpers.TokenDigest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * write-behind の停止処理で、受け付けた失効が失われないことを確認する。
+ *  - 停止時に DB へ書き込めない場合はスプールファイルへ退避し、次回の起動時に書き込む
+ *  - 停止処理と同時に受け付けた失効も、すべて書き込まれる（停止後は受け付けない）
+ */
+class BlacklistWriteBehindQueueTests {
+
+    @TempDir
+    Path dir;
+
+    private final RevocationEventService revocationEventService = mock(RevocationEventService.class);
+
+    private final RevokedTokenFilter revokedTokenFilter = mock(RevokedTokenFilter.class);
+
+    @Test
+    void unwrittenRevocationsAreSpooledOnStopAndReplayedOnStart() throws Exception {
+        Path spool = dir.resolve("write-behind.spool");
+
+        // DB に書き込めない状態で停止する
+        JdbcTemplate failing = mock(JdbcTemplate.class);
+        when(failing.update(anyString(), any(Object[].class))).thenThrow(new DataAccessResourceFailureException("db down"));
+        BlacklistWriteBehindQueue queue = queue(failing, true, spool);
+        queue.start();
+
+        List<BlacklistWriteBehindQueue.PendingRevocation> revocations = List.of(revocation(), revocation(), revocation());
+        for (BlacklistWriteBehindQueue.PendingRevocation revocation : revocations) {
+            assertThat(queue.submit(revocation)).isTrue();
+        }
+        queue.stop();
+
+        assertThat(queue.submit(revocation())).isFalse();
+        assertThat(Files.readAllLines(spool)).hasSize(3);
+
+        // 次回の起動時は write-behind が無効でも退避分を書き込み、書き込むまでは失効済みとして扱う
+        CountDownLatch release = new CountDownLatch(1);
+        JdbcTemplate working = mock(JdbcTemplate.class);
+        when(working.update(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return 3;
+        });
+        BlacklistWriteBehindQueue restarted = queue(working, false, spool);
+        restarted.start();
+
+        for (BlacklistWriteBehindQueue.PendingRevocation revocation : revocations) {
+            assertThat(restarted.isPending(revocation.digest())).isTrue();
+        }
+        release.countDown();
+
+        // 退避ファイルはコミット（書き込み待ちからの削除）の後に削除されるため、両方を待つ
+        Path replayFile = Path.of(spool + ".replay");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((revocations.stream().anyMatch(revocation -> restarted.isPending(revocation.digest()))
+                || Files.exists(replayFile))
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        for (BlacklistWriteBehindQueue.PendingRevocation revocation : revocations) {
+            assertThat(restarted.isPending(revocation.digest())).isFalse();
+            verify(revokedTokenFilter).add(revocation.digest());
+        }
+        assertThat(spool).doesNotExist();
+        assertThat(replayFile).doesNotExist();
+        restarted.stop();
+    }
+
+    @Test
+    void everyAcceptedRevocationIsWrittenWhenStoppingUnderLoad() throws Exception {
+        AtomicInteger written = new AtomicInteger();
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+            // 可変長引数は展開されて渡される（SQL を除いた3列ずつが1行）
+            int rows = (invocation.getArguments().length - 1) / 3;
+            written.addAndGet(rows);
+            return rows;
+        });
+        BlacklistWriteBehindQueue queue = queue(jdbcTemplate, true, dir.resolve("write-behind.spool"));
+        queue.start();
+
+        // 停止処理と並行して受け付けを続ける
+        AtomicInteger accepted = new AtomicInteger();
+        List<Thread> submitters = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread submitter = new Thread(() -> {
+                while (queue.submit(revocation())) {
+                    accepted.incrementAndGet();
+                }
+            });
+            submitter.start();
+            submitters.add(submitter);
+        }
+        Thread.sleep(50);
+        queue.stop();
+        for (Thread submitter : submitters) {
+            submitter.join(TimeUnit.SECONDS.toMillis(5));
+        }
+
+        assertThat(accepted.get()).isPositive();
+        assertThat(written.get()).isEqualTo(accepted.get());
+        assertThat(dir.resolve("write-behind.spool")).doesNotExist();
+    }
+
+    private BlacklistWriteBehindQueue queue(JdbcTemplate jdbcTemplate, boolean enabled, Path spool) {
+        return new BlacklistWriteBehindQueue(
+                jdbcTemplate, mock(PlatformTransactionManager.class), revocationEventService, revokedTokenFilter,
+                new SimpleMeterRegistry(), enabled, 100_000, 100, Duration.ofMillis(5),
+                Duration.ofMillis(300), spool.toString(), false);
+    }
+
+    private static BlacklistWriteBehindQueue.PendingRevocation revocation() {
+        return new BlacklistWriteBehindQueue.PendingRevocation(
+                TokenDigest.of(UUID.randomUUID().toString()), 1L, LocalDateTime.now().plusHours(1));
+    }
+}
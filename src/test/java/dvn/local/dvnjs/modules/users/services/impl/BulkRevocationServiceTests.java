@@ -0,0 +1,194 @@
+package dvn.local.dvnjs.modules.users.services.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import dvn.local.dvnjs.DvnjsApplication;
+
+import dvn.local.dvnjs.modules.users.entities.User;
+import dvn.local.dvnjs.modules.users.repositories.UserRepository;
+import dvn.local.dvnjs.modules.users.resources.BulkRevocationResource;
+import dvn.local.dvnjs.services.JwtService;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+
+/**
+ * NDJSON の一括失効で、複数バッチに分けて登録され、期限切れ・不正な行・重複が集計されることと、
+ * 失効したトークンのログイン（セッション）のリフレッシュトークンも無効になること、
+ * API は運用者（OPS 権限）のみ実行できることを確認する。
+ */
+@SpringBootTest(properties = "blacklist.bulk.batch-size=3")
+class BulkRevocationServiceTests {
+
+    @Autowired
+    private BulkRevocationService bulkRevocationService;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Test
+    void revokesTokensInBatchesAndReportsSummary() throws IOException {
+        User user = userRepository.save(user("batch", 1L));
+
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tokens.add(jwtService.generateToken(user.getId(), user.getEmail() + "#bulk" + i));
+        }
+        String expired = Jwts.builder()
+                .setSubject(String.valueOf(user.getId()))
+                .setIssuer("dvnjs-test")
+                .setIssuedAt(new Date(System.currentTimeMillis() - 120_000))
+                .setExpiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(jwtService.getSigningKey(), SignatureAlgorithm.HS512)
+                .compact();
+
+        StringBuilder body = new StringBuilder();
+        for (String token : tokens) {
+            body.append("{\"token\":\"").append(token).append("\"}\n");
+        }
+        body.append("{\"token\":\"").append(tokens.get(0)).append("\"}\n"); // 重複
+        body.append("\n");                                                    // 空行は数えない
+        body.append("{\"token\":\"").append(expired).append("\"}\n");
+        body.append("{\"token\":\"not-a-jwt\"}\n");
+        body.append("not json\n");
+        body.append("{\"userId\":").append(user.getId()).append("}\n");
+
+        BulkRevocationResource summary = bulkRevocationService.revoke(
+                new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(summary.getLines()).isEqualTo(10);
+        assertThat(summary.getRevoked()).isEqualTo(5);
+        assertThat(summary.getAlreadyRevoked()).isEqualTo(1);
+        assertThat(summary.getExpired()).isEqualTo(1);
+        assertThat(summary.getInvalid()).isEqualTo(2);
+        assertThat(summary.getUsers()).isEqualTo(1);
+        for (String token : tokens) {
+            assertThat(jwtService.isBlackListedToken(token)).isTrue();
+        }
+        assertThat(jwtService.isBlackListedToken(expired)).isFalse();
+    }
+
+    @Test
+    void revokedSessionsCannotBeRefreshed() throws IOException {
+        User user = userRepository.save(user("session", 1L));
+        String device = refreshTokenService.newFamilyId();
+        String otherDevice = refreshTokenService.newFamilyId();
+        String refreshToken = refreshTokenService.issue(user.getId(), device);
+        String otherRefreshToken = refreshTokenService.issue(user.getId(), otherDevice);
+        String body = "{\"token\":\"" + jwtService.generateToken(user, device) + "\"}\n";
+
+        BulkRevocationResource summary = bulkRevocationService.revoke(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        // 失効したトークンと同じログインのリフレッシュトークンでは、新しいアクセストークンを発行できない
+        assertThat(summary.getRevoked()).isEqualTo(1);
+        assertThatThrownBy(() -> refreshTokenService.rotate(refreshToken)).isInstanceOf(BadCredentialsException.class);
+
+        // 別の端末（ログイン）には影響しない
+        assertThat(refreshTokenService.rotate(otherRefreshToken).userId()).isEqualTo(user.getId());
+    }
+
+    @Test
+    void oversizeLinesAreSkippedAsInvalid() throws IOException {
+        // 上限（16K 文字）を超える行は読み飛ばし、次の行から読み続ける（改行のない最終行も同様）
+        String oversize = "{\"token\":\"" + "a".repeat(100_000) + "\"}";
+        String body = oversize + "\r\n" + "not json\r\n" + oversize;
+
+        BulkRevocationResource summary = bulkRevocationService.revoke(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(summary.getLines()).isEqualTo(3);
+        assertThat(summary.getInvalid()).isEqualTo(3);
+        assertThat(summary.getRevoked()).isZero();
+    }
+
+    @Test
+    void unknownUsersAreCountedAsInvalid() throws IOException {
+        User user = userRepository.save(user("bulk", 1L));
+        String body = "{\"userId\":" + user.getId() + "}\n" + "{\"userId\":" + Long.MAX_VALUE + "}\n";
+
+        BulkRevocationResource summary = bulkRevocationService.revoke(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        // 無効化できなかったユーザーはユーザー数に含めない
+        assertThat(summary.getUsers()).isEqualTo(1);
+        assertThat(summary.getInvalid()).isEqualTo(1);
+        assertThat(userRepository.findById(user.getId()).orElseThrow().getTokensRevokedAt()).isNotNull();
+    }
+
+    @Test
+    void bulkEndpointRequiresOpsAuthority() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DvnjsApplication.class)
+                .properties("server.port=0", "security.ops.user-catalogue-ids=99")
+                .run()) {
+            String url = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort()
+                    + "/api/v1/auth/blacklisted_tokens/bulk";
+            HttpClient client = HttpClient.newHttpClient();
+            UserRepository users = context.getBean(UserRepository.class);
+            JwtService tokens = context.getBean(JwtService.class);
+
+            User regular = users.save(user("regular", 1L));
+            User ops = users.save(user("ops", 99L));
+
+            // 一般のユーザーは他のユーザーを強制ログアウトできない
+            String victim = "{\"userId\":" + ops.getId() + "}\n";
+            HttpResponse<String> denied = client.send(
+                    bulkRequest(url, tokens.generateToken(regular.getId(), regular.getEmail()), victim),
+                    HttpResponse.BodyHandlers.ofString());
+            assertThat(denied.statusCode()).isEqualTo(403);
+            assertThat(users.findById(ops.getId()).orElseThrow().getTokensRevokedAt()).isNull();
+
+            // 運用者のカタログのユーザーは実行できる
+            HttpResponse<String> allowed = client.send(
+                    bulkRequest(url, tokens.generateToken(ops.getId(), ops.getEmail()), "not json\n"),
+                    HttpResponse.BodyHandlers.ofString());
+            assertThat(allowed.statusCode()).isEqualTo(200);
+            assertThat(allowed.body()).contains("\"invalid\":1");
+        }
+    }
+
+    // 他のテストのトークンに影響しないよう、専用のユーザーを作成する
+    private static User user(String name, Long userCatalogueId) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(name + "-" + UUID.randomUUID() + "@example.com");
+        user.setPassword("-");
+        user.setUserCatalogueId(userCatalogueId);
+        return user;
+    }
+
+    private static HttpRequest bulkRequest(String url, String token, String body) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
@@ -0,0 +1,115 @@
+package dvn.local.dvnjs.modules.users.services.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import dvn.local.dvnjs.DvnjsApplication;
+import dvn.local.dvnjs.modules.users.entities.User;
+import dvn.local.dvnjs.modules.users.repositories.UserRepository;
+import dvn.local.dvnjs.modules.users.security.AuthUser;
+import dvn.local.dvnjs.modules.users.security.UserAuthorities;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * ユーザー情報キャッシュの読み込みの集約と、変更時の無効化のタイミングを確認する。
+ */
+class CustomUserDetailsServiceTests {
+
+    @Test
+    void concurrentLoadsOfTheSameUserQueryTheDatabaseOnce() throws Exception {
+        UserRepository repository = mock(UserRepository.class);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        User user = new User();
+        user.setId(42L);
+        user.setEmail("coalesce@example.com");
+        when(repository.findById(anyLong())).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(user);
+        });
+        CustomUserDetailsService service = new CustomUserDetailsService(
+                repository, new UserAuthorities(Set.of()), new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<AuthUser>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> service.loadUserByUsername("42")));
+            }
+            // 最初の読み込みが DB 参照中の間に、残りのスレッドも同じユーザーを要求している
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<AuthUser> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS).getEmail()).isEqualTo("coalesce@example.com");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(repository, times(1)).findById(42L);
+    }
+
+    @Test
+    void entityUpdatesEvictAfterCommitAndBulkUpdatesDoNotChangeCachedFields() {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DvnjsApplication.class)
+                .properties("server.port=0")
+                .run()) {
+            UserRepository repository = context.getBean(UserRepository.class);
+            CustomUserDetailsService service = context.getBean(CustomUserDetailsService.class);
+            TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+            User created = new User();
+            created.setName("Before");
+            created.setEmail("cache-" + UUID.randomUUID() + "@example.com");
+            created.setPassword("hash-1");
+            created.setUserCatalogueId(1L);
+            final Long userId = repository.save(created).getId();
+            assertThat(service.loadUserByUsername(String.valueOf(userId)).getName()).isEqualTo("Before");
+
+            // エンティティの更新はコミット後に無効化される（コミット前はキャッシュのまま）
+            transaction.executeWithoutResult(status -> {
+                User user = repository.findById(userId).orElseThrow();
+                user.setName("After");
+                repository.saveAndFlush(user);
+                assertThat(service.loadUserByUsername(String.valueOf(userId)).getName()).isEqualTo("Before");
+            });
+            assertThat(service.loadUserByUsername(String.valueOf(userId)).getName()).isEqualTo("After");
+
+            // 一括更新（パスワードの再ハッシュ・一括失効日時）はリスナーを通らないが、
+            // キャッシュするプリンシパルはどちらの列も保持しないため、内容は DB と一致したままになる
+            AuthUser cached = service.loadUserByUsername(String.valueOf(userId));
+            repository.replacePassword(userId, "hash-1", "hash-2");
+            repository.updateTokensRevokedAt(userId, LocalDateTime.now());
+            AuthUser fresh = AuthUser.from(repository.findById(userId).orElseThrow());
+            AuthUser afterBulk = service.loadUserByUsername(String.valueOf(userId));
+            assertThat(afterBulk).isSameAs(cached);
+            assertThat(afterBulk).usingRecursiveComparison().isEqualTo(fresh);
+        }
+    }
+}
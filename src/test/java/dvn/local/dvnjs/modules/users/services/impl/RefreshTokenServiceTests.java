@@ -0,0 +1,100 @@
+package dvn.local.dvnjs.modules.users.services.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import dvn.local.dvnjs.modules.users.entities.User;
+import dvn.local.dvnjs.modules.users.repositories.UserRepository;
+import dvn.local.dvnjs.modules.users.requests.BlacklistTokenRequest;
+import dvn.local.dvnjs.modules.users.requests.LoginRequest;
+import dvn.local.dvnjs.modules.users.requests.RefreshTokenRequest;
+import dvn.local.dvnjs.modules.users.resources.LoginResource;
+
+/**
+ * リフレッシュトークンが1回だけ使用でき、再使用された場合に同じファミリーがすべて無効化されることと、
+ * 1端末からのログアウトでその端末のリフレッシュトークンも無効になることを確認する。
+ */
+@SpringBootTest
+class RefreshTokenServiceTests {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BlackListService blackListService;
+
+    @Test
+    void rotationIsOneTimeAndReuseRevokesTheFamily() {
+        Long userId = userRepository.findByEmail("admin@example.com").map(User::getId).orElseThrow();
+        String first = refreshTokenService.issue(userId);
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(first);
+        assertThat(rotation.userId()).isEqualTo(userId);
+        assertThat(rotation.refreshToken()).isNotEqualTo(first);
+
+        // 使用済みのトークンを再度使うと拒否され、ローテーション後のトークンも無効になる
+        assertThatThrownBy(() -> refreshTokenService.rotate(first)).isInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> refreshTokenService.rotate(rotation.refreshToken()))
+                .isInstanceOf(BadCredentialsException.class);
+
+        // 別のログイン（ファミリー）には影響しない
+        String other = refreshTokenService.issue(userId);
+        assertThat(refreshTokenService.rotate(other).userId()).isEqualTo(userId);
+    }
+
+    @Test
+    void revokeAllInvalidatesEveryFamilyOfTheUser() {
+        Long userId = userRepository.findByEmail("admin@example.com").map(User::getId).orElseThrow();
+        String a = refreshTokenService.issue(userId);
+        String b = refreshTokenService.issue(userId);
+
+        refreshTokenService.revokeAll(userId);
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(a)).isInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> refreshTokenService.rotate(b)).isInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> refreshTokenService.rotate("unknown-token")).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void logoutRevokesTheRefreshTokensOfTheSession() {
+        LoginResource device = login();
+        LoginResource otherDevice = login();
+
+        // ローテーション後のアクセストークンでログアウトしても、同じログインのリフレッシュトークンが無効になる
+        LoginResource refreshed = (LoginResource) userService.refresh(refreshRequest(device.getRefreshToken()));
+        BlacklistTokenRequest logout = new BlacklistTokenRequest();
+        logout.setToken(refreshed.getToken());
+        blackListService.create(logout);
+
+        assertThat(userService.refresh(refreshRequest(refreshed.getRefreshToken()))).isNotInstanceOf(LoginResource.class);
+        assertThatThrownBy(() -> refreshTokenService.rotate(refreshed.getRefreshToken()))
+                .isInstanceOf(BadCredentialsException.class);
+
+        // 別の端末（ログイン）のリフレッシュトークンには影響しない
+        assertThat(userService.refresh(refreshRequest(otherDevice.getRefreshToken()))).isInstanceOf(LoginResource.class);
+    }
+
+    private LoginResource login() {
+        LoginRequest request = new LoginRequest();
+        request.setEmail("admin@example.com");
+        request.setPassword("password");
+        return (LoginResource) userService.authenticate(request);
+    }
+
+    private static RefreshTokenRequest refreshRequest(String refreshToken) {
+        RefreshTokenRequest request = new RefreshTokenRequest();
+        request.setRefreshToken(refreshToken);
+        return request;
+    }
+}
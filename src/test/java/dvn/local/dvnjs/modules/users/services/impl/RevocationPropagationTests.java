@@ -0,0 +1,175 @@
+package dvn.local.dvnjs.modules.users.services.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.TaskScheduler;
+
+import dvn.local.dvnjs.DvnjsApplication;
+import dvn.local.dvnjs.helpers.TokenDigest;
+import dvn.local.dvnjs.modules.users.entities.User;
+import dvn.local.dvnjs.modules.users.repositories.BlacklistedTokenRepository;
+import dvn.local.dvnjs.modules.users.repositories.UserRepository;
+import dvn.local.dvnjs.modules.users.requests.BlacklistTokenRequest;
+import dvn.local.dvnjs.services.JwtService;
+import dvn.local.dvnjs.services.VerifiedToken;
+import dvn.local.dvnjs.services.VerifiedTokenCache;
+
+/**
+ * 同じ組み込みデータベースを共有する2つのアプリケーションコンテキストを起動し、
+ * 一方で失効させたトークンが他方のローカルキャッシュからも取り除かれることを確認する。
+ */
+class RevocationPropagationTests {
+
+    private ConfigurableApplicationContext nodeA;
+
+    private ConfigurableApplicationContext nodeB;
+
+    @BeforeEach
+    void startNodes() {
+        nodeA = startNode();
+        nodeB = startNode();
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @Test
+    void revocationOnOneNodeInvalidatesCachesOnTheOther() throws InterruptedException {
+        User user = nodeA.getBean(UserRepository.class).findByEmail("admin@example.com").orElseThrow();
+        String token = nodeA.getBean(JwtService.class).generateToken(user.getId(), user.getEmail());
+        TokenDigest digest = TokenDigest.of(token);
+
+        // ノードBでトークンを検証済みとしてキャッシュしておく
+        VerifiedTokenCache cacheB = nodeB.getBean(VerifiedTokenCache.class);
+        VerifiedToken verified = nodeB.getBean(JwtService.class).verify(token);
+        cacheB.put(digest, verified, cacheB.stamp());
+        assertThat(cacheB.get(digest)).isNotNull();
+
+        // ノードAでログアウト（ブラックリスト登録）
+        BlacklistTokenRequest request = new BlacklistTokenRequest();
+        request.setToken(token);
+        nodeA.getBean(BlackListService.class).create(request);
+
+        // ノードBのキャッシュから一定時間内に取り除かれる
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (cacheB.get(digest) != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(cacheB.get(digest)).isNull();
+        assertThat(nodeB.getBean(RevokedTokenFilter.class).mightBeRevoked(digest)).isTrue();
+        assertThat(nodeB.getBean(JwtService.class).isBlackListedToken(digest)).isTrue();
+    }
+
+    @Test
+    void userTokensRevokedOnOneNodeAreRejectedOnTheOther() throws InterruptedException {
+        // 他のテストのトークンに影響しないよう、専用のユーザーを作成する
+        User user = new User();
+        user.setName("Epoch");
+        user.setEmail("epoch-" + UUID.randomUUID() + "@example.com");
+        user.setPassword("-");
+        user.setUserCatalogueId(1L);
+        user = nodeA.getBean(UserRepository.class).save(user);
+        String token = nodeA.getBean(JwtService.class).generateToken(user.getId(), user.getEmail());
+        VerifiedToken verified = nodeB.getBean(JwtService.class).verify(token);
+        TokenEpochService epochB = nodeB.getBean(TokenEpochService.class);
+        assertThat(epochB.isRevoked(verified)).isFalse();
+
+        // ノードAで全端末からのログアウト（USER_TOKENS_REVOKED イベントが追記される）
+        nodeA.getBean(BlackListService.class).revokeAll(user.getId());
+
+        // ノードBでも一定時間内に失効日時が反映される
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!epochB.isRevoked(verified) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(epochB.isRevoked(verified)).isTrue();
+    }
+
+    @Test
+    void writeBehindRevocationIsVisibleAtOnceAndFlushedOnShutdown() {
+        // フラッシュ間隔を長くし、停止時の書き込みだけで反映されることを確認する
+        ConfigurableApplicationContext nodeC = startNode(
+                "blacklist.write-behind.enabled=true",
+                "blacklist.write-behind.max-delay=30s");
+
+        User user = nodeA.getBean(UserRepository.class).findByEmail("admin@example.com").orElseThrow();
+        String token = nodeA.getBean(JwtService.class).generateToken(user.getId(), user.getEmail());
+        TokenDigest digest = TokenDigest.of(token);
+
+        BlacklistTokenRequest request = new BlacklistTokenRequest();
+        request.setToken(token);
+        try {
+            nodeC.getBean(BlackListService.class).create(request);
+
+            // ノードC内では DB 反映前でも失効済みとして扱われる
+            assertThat(nodeC.getBean(JwtService.class).isBlackListedToken(digest)).isTrue();
+            assertThat(nodeA.getBean(BlacklistedTokenRepository.class).existsByTokenHash(digest.bytes())).isFalse();
+        } finally {
+            nodeC.close();
+        }
+
+        // 停止時に書き込まれている
+        assertThat(nodeA.getBean(BlacklistedTokenRepository.class).existsByTokenHash(digest.bytes())).isTrue();
+    }
+
+    @Test
+    void revocationPropagatesWhileSharedSchedulerIsBusy() throws InterruptedException {
+        // 期限切れトークンの削除（最大 blacklist.purge.max-run-time）やフィルターの再構築と同じく、
+        // @Scheduled の共有スケジューラーのスレッドを長時間ふさぐ処理を実行しておく
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        nodeB.getBean(TaskScheduler.class).schedule(() -> {
+            running.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, Instant.now());
+
+        try {
+            assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+            User user = nodeA.getBean(UserRepository.class).findByEmail("admin@example.com").orElseThrow();
+            String token = nodeA.getBean(JwtService.class).generateToken(user.getId(), user.getEmail());
+            TokenDigest digest = TokenDigest.of(token);
+
+            VerifiedTokenCache cacheB = nodeB.getBean(VerifiedTokenCache.class);
+            cacheB.put(digest, nodeB.getBean(JwtService.class).verify(token), cacheB.stamp());
+
+            BlacklistTokenRequest request = new BlacklistTokenRequest();
+            request.setToken(token);
+            nodeA.getBean(BlackListService.class).create(request);
+
+            // 共有スケジューラーがふさがったままでも反映される
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (cacheB.get(digest) != null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertThat(cacheB.get(digest)).isNull();
+        } finally {
+            release.countDown();
+        }
+    }
+
+    // 1インスタンス分のコンテキストを起動する（ポートが重ならないよう組み込みサーバーは空きポートで起動する）
+    private static ConfigurableApplicationContext startNode(String... properties) {
+        return new SpringApplicationBuilder(DvnjsApplication.class)
+                .properties("server.port=0")
+                .properties(properties)
+                .run();
+    }
+}
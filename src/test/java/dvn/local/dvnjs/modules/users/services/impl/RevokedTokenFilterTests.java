@@ -0,0 +1,83 @@
+package dvn.local.dvnjs.modules.users.services.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import dvn.local.dvnjs.helpers.TokenDigest;
+import dvn.local.dvnjs.modules.users.repositories.BlacklistedTokenRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 失効トークンのフィルターが、既存の行からの構築・失効時の追加・再構築中の追加のいずれでも
+ * 失効済みのトークンを「確実に失効していない」と判定しない（偽陰性がない）ことを確認する。
+ */
+class RevokedTokenFilterTests {
+
+    private final BlacklistedTokenRepository repository = mock(BlacklistedTokenRepository.class);
+
+    private final RevokedTokenFilter filter = new RevokedTokenFilter(
+            repository, mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 10_000, 0.001);
+
+    @Test
+    void beforeWarmUpEverythingMightBeRevoked() {
+        assertThat(filter.mightBeRevoked(TokenDigest.of("any"))).isTrue();
+    }
+
+    @Test
+    void warmUpLoadsExistingRows() {
+        when(repository.streamActiveTokenHashes(any())).thenReturn(Stream.of(
+                TokenDigest.sha256("existing-1"),
+                TokenDigest.sha256("existing-2")));
+
+        filter.warmUp();
+
+        assertThat(filter.mightBeRevoked(TokenDigest.of("existing-1"))).isTrue();
+        assertThat(filter.mightBeRevoked(TokenDigest.of("existing-2"))).isTrue();
+        assertThat(filter.mightBeRevoked(TokenDigest.of("never-revoked"))).isFalse();
+    }
+
+    @Test
+    void addedTokenIsVisibleAtOnce() {
+        when(repository.streamActiveTokenHashes(any())).thenReturn(Stream.empty());
+        filter.warmUp();
+
+        filter.add(TokenDigest.of("logged-out"));
+
+        assertThat(filter.mightBeRevoked(TokenDigest.of("logged-out"))).isTrue();
+    }
+
+    @Test
+    void tokenAddedDuringRebuildSurvivesTheSwap() {
+        when(repository.streamActiveTokenHashes(any())).thenReturn(Stream.empty());
+        filter.warmUp();
+
+        // 再構築の読み込み中（まだ DB の行に含まれていない）に失効したトークン
+        TokenDigest revokedDuringRebuild = TokenDigest.of("revoked-during-rebuild");
+        when(repository.streamActiveTokenHashes(any())).thenAnswer(invocation ->
+                Stream.of(TokenDigest.sha256("existing")).peek(hash -> filter.add(revokedDuringRebuild)));
+
+        filter.rebuild();
+
+        assertThat(filter.mightBeRevoked(revokedDuringRebuild)).isTrue();
+        assertThat(filter.mightBeRevoked(TokenDigest.of("existing"))).isTrue();
+    }
+
+    @Test
+    void failedRebuildKeepsThePreviousFilter() {
+        when(repository.streamActiveTokenHashes(any())).thenReturn(Stream.of(TokenDigest.sha256("existing")));
+        filter.warmUp();
+
+        when(repository.streamActiveTokenHashes(any())).thenThrow(new IllegalStateException("db down"));
+        filter.rebuild();
+
+        assertThat(filter.mightBeRevoked(TokenDigest.of("existing"))).isTrue();
+    }
+}
@@ -0,0 +1,92 @@
+package dvn.local.dvnjs.modules.users.services.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import dvn.local.dvnjs.modules.users.entities.User;
+import dvn.local.dvnjs.modules.users.repositories.UserRepository;
+import dvn.local.dvnjs.services.JwtService;
+import dvn.local.dvnjs.services.VerifiedToken;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+
+/**
+ * 全端末からのログアウト（ユーザー単位の失効日時）で、それ以前に発行されたトークンだけが無効になることを確認する。
+ */
+@SpringBootTest
+class TokenEpochServiceTests {
+
+    @Autowired
+    private TokenEpochService tokenEpochService;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void tokensIssuedBeforeTheEpochAreRevokedAndLaterOnesAreNot() {
+        User user = newUser();
+        VerifiedToken before = verify(user, System.currentTimeMillis() - 60_000);
+
+        // 失効日時の設定前はどちらも有効
+        assertThat(tokenEpochService.isRevoked(before)).isFalse();
+
+        tokenEpochService.revokeAll(user.getId());
+
+        // iat は秒単位のため、失効日時と同じ秒に発行されたものも無効になる（次の秒以降は有効）
+        VerifiedToken after = verify(user, System.currentTimeMillis() + 2_000);
+        assertThat(tokenEpochService.isRevoked(before)).isTrue();
+        assertThat(tokenEpochService.isRevoked(after)).isFalse();
+
+        // DB にも保存され、読み直しても同じ判定になる
+        assertThat(userRepository.findTokensRevokedAtById(user.getId())).isPresent();
+        tokenEpochService.refresh(user.getId());
+        assertThat(tokenEpochService.isRevoked(before)).isTrue();
+        assertThat(tokenEpochService.isRevoked(after)).isFalse();
+    }
+
+    @Test
+    void otherUsersAreNotAffected() {
+        User revoked = newUser();
+        User other = newUser();
+        VerifiedToken otherToken = verify(other, System.currentTimeMillis() - 60_000);
+
+        tokenEpochService.revokeAll(revoked.getId());
+
+        assertThat(tokenEpochService.isRevoked(otherToken)).isFalse();
+    }
+
+    // 他のテストと失効日時が干渉しないよう、テストごとにユーザーを作成する
+    private User newUser() {
+        User user = new User();
+        user.setName("Epoch");
+        user.setEmail("epoch-" + UUID.randomUUID() + "@example.com");
+        user.setPassword("-");
+        user.setUserCatalogueId(1L);
+        return userRepository.save(user);
+    }
+
+    // 指定した発行時刻のトークンを作成して検証する
+    private VerifiedToken verify(User user, long issuedAtMillis) {
+        String token = Jwts.builder()
+                .setSubject(String.valueOf(user.getId()))
+                .claim("email", user.getEmail())
+                .setIssuer("dvnjs-test")
+                .setIssuedAt(new Date(issuedAtMillis))
+                .setExpiration(new Date(System.currentTimeMillis() + 600_000))
+                .signWith(jwtService.getSigningKey(), SignatureAlgorithm.HS512)
+                .compact();
+        VerifiedToken verified = jwtService.verify(token);
+        assertThat(verified.isValid()).isTrue();
+        return verified;
+    }
+}
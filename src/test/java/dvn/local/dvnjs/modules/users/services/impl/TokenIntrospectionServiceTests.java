@@ -0,0 +1,69 @@
+package dvn.local.dvnjs.modules.users.services.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import dvn.local.dvnjs.modules.users.entities.User;
+import dvn.local.dvnjs.modules.users.repositories.UserRepository;
+import dvn.local.dvnjs.modules.users.requests.BlacklistTokenRequest;
+import dvn.local.dvnjs.modules.users.resources.TokenIntrospectionResource;
+import dvn.local.dvnjs.services.JwtService;
+
+/**
+ * 一括検証の結果がリクエストと同じ順番で返り、ブラックリスト登録済み・形式不正のトークンが無効になることを確認する。
+ */
+@SpringBootTest(properties = "introspection.parallel-threshold=4")
+class TokenIntrospectionServiceTests {
+
+    @Autowired
+    private TokenIntrospectionService tokenIntrospectionService;
+
+    @Autowired
+    private BlackListService blackListService;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void resultsFollowRequestOrderAndExcludeRevokedTokens() {
+        User user = userRepository.findByEmail("admin@example.com").orElseThrow();
+
+        // 並列で検証されるよう閾値以上の件数を用意し、一部をブラックリストに登録する
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tokens.add(jwtService.generateToken(user.getId(), user.getEmail() + "#" + i));
+        }
+        for (int i : new int[] {1, 5}) {
+            BlacklistTokenRequest request = new BlacklistTokenRequest();
+            request.setToken(tokens.get(i));
+            blackListService.create(request);
+        }
+        tokens.add("not-a-jwt");
+
+        List<TokenIntrospectionResource> results = tokenIntrospectionService.introspect(tokens);
+
+        assertThat(results).hasSize(tokens.size());
+        for (int i = 0; i < 8; i++) {
+            TokenIntrospectionResource result = results.get(i);
+            if (i == 1 || i == 5) {
+                assertThat(result.isActive()).isFalse();
+                assertThat(result.getSub()).isNull();
+            } else {
+                assertThat(result.isActive()).isTrue();
+                assertThat(result.getSub()).isEqualTo(String.valueOf(user.getId()));
+                assertThat(result.getEmail()).isEqualTo(user.getEmail() + "#" + i);
+                assertThat(result.getExp()).isGreaterThan(System.currentTimeMillis() / 1000);
+            }
+        }
+        assertThat(results.get(8).isActive()).isFalse();
+    }
+}
@@ -0,0 +1,85 @@
+package dvn.local.dvnjs.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import dvn.local.dvnjs.services.ConcurrencyLimiter.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 優先度ごとの処理枠と、応答時間に応じた上限の調整を確認する。
+ */
+class ConcurrencyLimiterTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void loginCannotTakeTheWholeLimit() {
+        ConcurrencyLimiter limiter = limiter(10);
+
+        // ログインは上限10の3割（3件）まで
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire(Priority.LOGIN)).isTrue();
+        }
+        assertThat(limiter.tryAcquire(Priority.LOGIN)).isFalse();
+
+        // 参照系は残りの枠をすべて使える
+        for (int i = 0; i < 7; i++) {
+            assertThat(limiter.tryAcquire(Priority.DEFAULT)).isTrue();
+        }
+        assertThat(limiter.tryAcquire(Priority.DEFAULT)).isFalse();
+
+        assertThat(meterRegistry.get("concurrency.shed").tag("priority", "login").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("concurrency.shed").tag("priority", "default").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("concurrency.in_flight").tag("priority", "default").gauge().value()).isEqualTo(7.0);
+    }
+
+    @Test
+    void limitShrinksWhenLatencyRisesAndGrowsWhenItRecovers() {
+        ConcurrencyLimiter limiter = limiter(100);
+
+        // 平常時：1ms で上限いっぱいまで使われる
+        runWindows(limiter, 100, 1_000_000L, 20);
+        int steady = limiter.getLimit();
+        assertThat(steady).isGreaterThanOrEqualTo(100);
+
+        // DB が遅くなり応答時間が 10 倍になると上限が下がる
+        runWindows(limiter, steady, 10_000_000L, 20);
+        int congested = limiter.getLimit();
+        assertThat(congested).isLessThan(steady * 3 / 4);
+
+        // 応答時間が戻ると上限も戻り始める
+        runWindows(limiter, congested, 1_000_000L, 20);
+        assertThat(limiter.getLimit()).isGreaterThan(congested);
+    }
+
+    // 指定した同時実行数と応答時間のリクエストで window を回す
+    private static void runWindows(ConcurrencyLimiter limiter, int concurrency, long rttNanos, int windows) {
+        for (int w = 0; w < windows; w++) {
+            int acquired = 0;
+            for (int i = 0; i < concurrency; i++) {
+                if (limiter.tryAcquire(Priority.DEFAULT)) {
+                    acquired++;
+                }
+            }
+            long start = System.nanoTime() - rttNanos;
+            for (int i = 0; i < acquired; i++) {
+                limiter.release(Priority.DEFAULT, start);
+            }
+            // window（1ms）を確実に経過させる
+            long until = System.nanoTime() + 1_500_000L;
+            while (System.nanoTime() < until) {
+                Thread.onSpinWait();
+            }
+            limiter.tryAcquire(Priority.DEFAULT);
+            limiter.release(Priority.DEFAULT, System.nanoTime() - rttNanos);
+        }
+    }
+
+    private ConcurrencyLimiter limiter(int initialLimit) {
+        return new ConcurrencyLimiter(meterRegistry, true, initialLimit, 2, 1000, 0.3, 1.5, 0.2, Duration.ofMillis(1));
+    }
+}
@@ -0,0 +1,112 @@
+package dvn.local.dvnjs.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import dvn.local.dvnjs.config.JwtConfig;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * 鍵ファイルを差し替えても、古い鍵で署名したトークンが期限まで検証できることと、
+ * jwt.legacy.enabled=false で jwt.secret の鍵を廃止できることを確認する。
+ */
+class JwtKeyRingTests {
+
+    private static final String SECRET = "test-secret-key-for-dvnjs-application-tests-0123456789";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rotatesWithoutInvalidatingLiveTokens() throws Exception {
+        Path keysFile = dir.resolve("jwt-keys.properties");
+        Files.writeString(keysFile, "active=k1\nk1=first-secret-key-for-rotation-tests-0123456789\n");
+
+        JwtConfig jwtConfig = JwtVerifierTests.jwtConfig();
+        JwtKeyRing keyRing = new JwtKeyRing(jwtConfig, "default", keysFile.toString(), true);
+        JwtService jwtService = new JwtService(jwtConfig, new JwtVerifier(jwtConfig, keyRing));
+        ReflectionTestUtils.setField(jwtService, "authMetrics", new AuthMetrics(null, false));
+
+        String legacy = legacyToken();
+        String first = jwtService.generateToken(1L, "admin@example.com");
+        assertThat(keyRing.active().kid()).isEqualTo("k1");
+
+        // k2 を追加して有効な鍵を切り替える（k1 は検証用に残す）
+        Files.writeString(keysFile, "active=k2\nk1=first-secret-key-for-rotation-tests-0123456789\n"
+                + "k2=second-secret-key-for-rotation-tests-012345678\n");
+        keyRing.reload();
+        String second = jwtService.generateToken(1L, "admin@example.com");
+
+        assertThat(keyRing.active().kid()).isEqualTo("k2");
+        assertThat(jwtService.verify(legacy).isValid()).isTrue();   // kid なし → jwt.secret
+        assertThat(jwtService.verify(first).isValid()).isTrue();    // 古い鍵
+        assertThat(jwtService.verify(second).isValid()).isTrue();   // 新しい鍵
+
+        // k1 を削除すると、k1 で署名したトークンは署名不正になる
+        Files.writeString(keysFile, "active=k2\nk2=second-secret-key-for-rotation-tests-012345678\n");
+        keyRing.reload();
+        assertThat(jwtService.verify(first).getFailure()).isEqualTo(VerifiedToken.Failure.BAD_SIGNATURE);
+        assertThat(jwtService.verify(second).isValid()).isTrue();
+
+        // active の鍵がないファイルは読み込まない
+        Files.writeString(keysFile, "active=k3\n");
+        keyRing.reload();
+        assertThat(keyRing.active().kid()).isEqualTo("k2");
+    }
+
+    @Test
+    void legacySecretCanBeRetired() throws Exception {
+        Path keysFile = dir.resolve("jwt-keys.properties");
+        Files.writeString(keysFile, "active=k1\nk1=first-secret-key-for-rotation-tests-0123456789\n");
+        JwtConfig jwtConfig = JwtVerifierTests.jwtConfig();
+
+        // 移行中：jwt.secret で署名したトークン（kid なし・kid=default）も検証できる
+        JwtKeyRing migrating = new JwtKeyRing(jwtConfig, "default", "", true);
+        String withDefaultKid = jwtService(jwtConfig, migrating).generateToken(1L, "admin@example.com");
+        JwtKeyRing rotated = new JwtKeyRing(jwtConfig, "default", keysFile.toString(), true);
+        JwtService rotatedService = jwtService(jwtConfig, rotated);
+        assertThat(rotatedService.verify(legacyToken()).isValid()).isTrue();
+        assertThat(rotatedService.verify(withDefaultKid).isValid()).isTrue();
+
+        // 廃止後：jwt.secret の鍵では検証できず、鍵ファイルの鍵だけが使われる
+        JwtKeyRing retired = new JwtKeyRing(jwtConfig, "default", keysFile.toString(), false);
+        JwtService retiredService = jwtService(jwtConfig, retired);
+        String current = retiredService.generateToken(1L, "admin@example.com");
+        assertThat(retiredService.verify(legacyToken()).getFailure()).isEqualTo(VerifiedToken.Failure.BAD_SIGNATURE);
+        assertThat(retiredService.verify(withDefaultKid).getFailure()).isEqualTo(VerifiedToken.Failure.BAD_SIGNATURE);
+        assertThat(retiredService.verify(current).isValid()).isTrue();
+
+        // 再読み込みしても jwt.secret の鍵は戻らない
+        retired.reload();
+        assertThat(retired.find("default")).isNull();
+        assertThat(retiredService.verify(withDefaultKid).getFailure()).isEqualTo(VerifiedToken.Failure.BAD_SIGNATURE);
+    }
+
+    private static JwtService jwtService(JwtConfig jwtConfig, JwtKeyRing keyRing) {
+        JwtService jwtService = new JwtService(jwtConfig, new JwtVerifier(jwtConfig, keyRing));
+        ReflectionTestUtils.setField(jwtService, "authMetrics", new AuthMetrics(null, false));
+        return jwtService;
+    }
+
+    private static String legacyToken() {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setSubject("1")
+                .claim("email", "admin@example.com")
+                .setIssuer("dvnjs-test")
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + 60_000))
+                .signWith(Keys.hmacShaKeyFor(Base64.getEncoder().encode(SECRET.getBytes())), SignatureAlgorithm.HS512)
+                .compact();
+    }
+}
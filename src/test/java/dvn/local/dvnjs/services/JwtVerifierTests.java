@@ -0,0 +1,106 @@
+package dvn.local.dvnjs.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Base64;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import dvn.local.dvnjs.config.JwtConfig;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * 形式の事前確認と、例外を使わない有効期限・有効期間の開始（nbf）の判定を確認する。
+ */
+class JwtVerifierTests {
+
+    private static final String SECRET = "test-secret-key-for-dvnjs-application-tests-0123456789";
+
+    private final JwtVerifier jwtVerifier = new JwtVerifier(jwtConfig(), new JwtKeyRing(jwtConfig(), "default", "", true));
+
+    @Test
+    void rejectsMalformedTokensBeforeDecoding() {
+        String valid = token("dvnjs-test", 60_000);
+        assertThat(jwtVerifier.isTokenFormatValid(valid)).isTrue();
+
+        assertThat(jwtVerifier.isTokenFormatValid(null)).isFalse();
+        assertThat(jwtVerifier.isTokenFormatValid("")).isFalse();
+        assertThat(jwtVerifier.isTokenFormatValid("abc")).isFalse();
+        assertThat(jwtVerifier.isTokenFormatValid("eyJa.eyJb")).isFalse();          // 2分割
+        assertThat(jwtVerifier.isTokenFormatValid("eyJa.eyJb.")).isFalse();         // 署名が空
+        assertThat(jwtVerifier.isTokenFormatValid("eyJa..sig")).isFalse();          // ペイロードが空
+        assertThat(jwtVerifier.isTokenFormatValid("eyJa.eyJb.c.d")).isFalse();      // 4分割
+        assertThat(jwtVerifier.isTokenFormatValid("eyJa.eyJb.c+d")).isFalse();      // Base64URL 以外の文字
+        assertThat(jwtVerifier.isTokenFormatValid("abcd.eyJb.sig")).isFalse();      // ヘッダが JSON でない
+        assertThat(jwtVerifier.isTokenFormatValid("eyJa.abcd.sig")).isFalse();      // ペイロードが JSON でない
+        assertThat(jwtVerifier.isTokenFormatValid("eyJa.eyJb.c".repeat(1000))).isFalse();
+    }
+
+    @Test
+    void reportsExpiryAndIssuerWithoutThrowing() {
+        assertThat(jwtVerifier.verify(token("dvnjs-test", 60_000)).isValid()).isTrue();
+        assertThat(jwtVerifier.verify(token("dvnjs-test", -60_000)).getFailure()).isEqualTo(VerifiedToken.Failure.EXPIRED);
+        // 期限切れでも発行者不一致を優先して返す
+        assertThat(jwtVerifier.verify(token("other", -60_000)).getFailure()).isEqualTo(VerifiedToken.Failure.WRONG_ISSUER);
+    }
+
+    @Test
+    void rejectsTokensBeforeNotBefore() {
+        long now = System.currentTimeMillis();
+        String future = Jwts.builder()
+                .setSubject("1")
+                .setIssuer("dvnjs-test")
+                .setIssuedAt(new Date(now))
+                .setNotBefore(new Date(now + 60_000))
+                .setExpiration(new Date(now + 120_000))
+                .signWith(Keys.hmacShaKeyFor(Base64.getEncoder().encode(SECRET.getBytes())), SignatureAlgorithm.HS512)
+                .compact();
+        String started = Jwts.builder()
+                .setSubject("1")
+                .setIssuer("dvnjs-test")
+                .setIssuedAt(new Date(now))
+                .setNotBefore(new Date(now - 60_000))
+                .setExpiration(new Date(now + 120_000))
+                .signWith(Keys.hmacShaKeyFor(Base64.getEncoder().encode(SECRET.getBytes())), SignatureAlgorithm.HS512)
+                .compact();
+
+        assertThat(jwtVerifier.verify(future).getFailure()).isEqualTo(VerifiedToken.Failure.NOT_YET_VALID);
+        assertThat(jwtVerifier.verify(started).isValid()).isTrue();
+    }
+
+    @Test
+    void rejectsTokensWithoutExpiry() {
+        String noExpiry = Jwts.builder()
+                .setSubject("1")
+                .setIssuer("dvnjs-test")
+                .setIssuedAt(new Date())
+                .signWith(Keys.hmacShaKeyFor(Base64.getEncoder().encode(SECRET.getBytes())), SignatureAlgorithm.HS512)
+                .compact();
+
+        assertThat(jwtVerifier.verify(noExpiry).getFailure()).isEqualTo(VerifiedToken.Failure.MALFORMED);
+    }
+
+    private static String token(String issuer, long expiresInMillis) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setSubject("1")
+                .claim("email", "admin@example.com")
+                .setIssuer(issuer)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expiresInMillis))
+                .signWith(Keys.hmacShaKeyFor(Base64.getEncoder().encode(SECRET.getBytes())), SignatureAlgorithm.HS512)
+                .compact();
+    }
+
+    static JwtConfig jwtConfig() {
+        JwtConfig jwtConfig = new JwtConfig();
+        ReflectionTestUtils.setField(jwtConfig, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtConfig, "expirationTime", 3_600_000L);
+        ReflectionTestUtils.setField(jwtConfig, "issuer", "dvnjs-test");
+        return jwtConfig;
+    }
+}
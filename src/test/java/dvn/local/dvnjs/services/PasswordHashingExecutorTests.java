@@ -0,0 +1,110 @@
+package dvn.local.dvnjs.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import dvn.local.dvnjs.helpers.GlobalExceptionHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * パスワード照合の待ち行列があふれた場合に、待たせずに拒否し、
+ * GlobalExceptionHandler で 503 と Retry-After に変換されることを確認する。
+ */
+class PasswordHashingExecutorTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // ハッシュ計算を止めておき、ワーカーと待ち行列を埋める
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final List<Thread> callers = new ArrayList<>();
+
+    private PasswordHashingExecutor executor;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        for (Thread caller : callers) {
+            caller.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    void saturatedQueueIsRejectedWith503AndRetryAfter() throws Exception {
+        PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+        CountDownLatch started = new CountDownLatch(1);
+        when(passwordEncoder.matches(any(), anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+        // ワーカー1、待ち行列1
+        executor = new PasswordHashingExecutor(passwordEncoder, meterRegistry, 1, 1, Duration.ofSeconds(5));
+
+        // 1件目が実行中、2件目が待ち行列に入った状態にする
+        startCaller();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        startCaller();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("password.hashing.queue_depth").gauge().value() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        // 3件目は待たずに 503 と Retry-After になる
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new LoginController(executor))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+        long start = System.nanoTime();
+        mockMvc.perform(post("/login"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.errors.message").exists());
+
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1));
+        assertThat(meterRegistry.get("password.hashing.rejections").counter().count()).isEqualTo(1.0);
+    }
+
+    private void startCaller() {
+        Thread caller = new Thread(() -> executor.matches("password", "encoded"));
+        caller.start();
+        callers.add(caller);
+    }
+
+    // 照合だけを行うログイン処理
+    @RestController
+    static class LoginController {
+
+        private final PasswordHashingExecutor executor;
+
+        LoginController(PasswordHashingExecutor executor) {
+            this.executor = executor;
+        }
+
+        @PostMapping("/login")
+        boolean login() {
+            return executor.matches("password", "encoded");
+        }
+    }
+}
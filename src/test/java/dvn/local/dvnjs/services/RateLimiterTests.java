@@ -0,0 +1,98 @@
+package dvn.local.dvnjs.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import dvn.local.dvnjs.helpers.RateLimitFilter;
+import dvn.local.dvnjs.services.RateLimiter.Rule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 送信元ごとのトークンバケットが capacity 回まで受け付け、超えた分を拒否することを確認する。
+ */
+class RateLimiterTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RateLimiter rateLimiter = new RateLimiter(meterRegistry, true, 1000,
+            3, Duration.ofMinutes(1),
+            2, Duration.ofMinutes(1),
+            5, Duration.ofMinutes(1),
+            10, Duration.ofMinutes(1));
+
+    @Test
+    void allowsBurstUpToCapacityPerClient() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(rateLimiter.tryAcquire(Rule.LOGIN_IP, "10.0.0.1")).isZero();
+        }
+        long waitNanos = rateLimiter.tryAcquire(Rule.LOGIN_IP, "10.0.0.1");
+        assertThat(waitNanos).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(20).toNanos());
+
+        // 別の送信元・別のルールには影響しない
+        assertThat(rateLimiter.tryAcquire(Rule.LOGIN_IP, "10.0.0.2")).isZero();
+        assertThat(rateLimiter.tryAcquire(Rule.AUTH_IP, "10.0.0.1")).isZero();
+
+        assertThat(meterRegistry.get("rate_limit.rejections").tag("rule", "login_ip").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void acquireThrowsWithRetryAfter() {
+        rateLimiter.acquire(Rule.LOGIN_EMAIL, "admin@example.com");
+        rateLimiter.acquire(Rule.LOGIN_EMAIL, "admin@example.com");
+        assertThatThrownBy(() -> rateLimiter.acquire(Rule.LOGIN_EMAIL, "admin@example.com"))
+                .isInstanceOfSatisfying(RateLimitExceededException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isBetween(1L, 30L));
+    }
+
+    @Test
+    void filterRejectsWith429BeforeTheChain() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(rateLimiter);
+        int passed = 0;
+        MockHttpServletResponse last = null;
+        for (int i = 0; i < 4; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/auth/login");
+            request.setRemoteAddr("10.0.0.3");
+            MockFilterChain chain = new MockFilterChain();
+            last = new MockHttpServletResponse();
+            filter.doFilter(request, last, chain);
+            if (chain.getRequest() != null) {
+                passed++;
+            }
+        }
+        assertThat(passed).isEqualTo(3);
+        assertThat(last.getStatus()).isEqualTo(429);
+        assertThat(last.getHeader("Retry-After")).isNotNull();
+    }
+
+    @Test
+    void introspectionHasItsOwnRule() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(rateLimiter);
+
+        // 一括検証は auth.ip（5回）を使い切らず、introspect.ip（10回）まで受け付ける
+        assertThat(passed(filter, "/api/v1/auth/introspect", "10.0.0.4", 11)).isEqualTo(10);
+        assertThat(passed(filter, "/api/v1/auth/refresh", "10.0.0.4", 6)).isEqualTo(5);
+        assertThat(meterRegistry.get("rate_limit.rejections").tag("rule", "introspect_ip").counter().count()).isEqualTo(1.0);
+    }
+
+    // 同じ送信元から count 回リクエストし、フィルターを通過した回数を返す
+    private static int passed(RateLimitFilter filter, String uri, String remoteAddr, int count) throws Exception {
+        int passed = 0;
+        for (int i = 0; i < count; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+            request.setRemoteAddr(remoteAddr);
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+            if (chain.getRequest() != null) {
+                passed++;
+            }
+        }
+        return passed;
+    }
+}
@@ -0,0 +1,98 @@
+package dvn.local.dvnjs.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import dvn.local.dvnjs.helpers.TokenDigest;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 検証済みトークンのキャッシュが、TTL とトークンの残り有効期間の短い方で失効することと、
+ * 失効（invalidate）と競合した登録や失効済みのトークンを返さないことを確認する。
+ */
+class VerifiedTokenCacheTests {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    // エントリの経過時間を進めるための時刻（ナノ秒）
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(
+            true, 100, TTL, new SimpleMeterRegistry(), nanos::get, Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void entriesExpireAtTheTtl() {
+        TokenDigest digest = TokenDigest.of("long-lived");
+        cache.put(digest, verified(Duration.ofHours(1)), cache.stamp());
+
+        advance(TTL.minusSeconds(1));
+        assertThat(cache.get(digest)).isNotNull();
+
+        advance(Duration.ofSeconds(1));
+        assertThat(cache.get(digest)).isNull();
+    }
+
+    @Test
+    void entriesDoNotOutliveTheTokenExpiry() {
+        // 残り有効期間（1分）が TTL より短い場合は、exp の時点で失効する
+        TokenDigest digest = TokenDigest.of("short-lived");
+        cache.put(digest, verified(Duration.ofMinutes(1)), cache.stamp());
+
+        advance(Duration.ofSeconds(59));
+        assertThat(cache.get(digest)).isNotNull();
+
+        advance(Duration.ofSeconds(1));
+        assertThat(cache.get(digest)).isNull();
+    }
+
+    @Test
+    void putRacingAnInvalidateIsDiscarded() {
+        TokenDigest digest = TokenDigest.of("revoked-while-verifying");
+
+        // 検証中（stamp 取得後、put 前）に失効した結果はキャッシュしない
+        long stamp = cache.stamp();
+        cache.invalidate(digest);
+        cache.put(digest, verified(Duration.ofHours(1)), stamp);
+        assertThat(cache.get(digest)).isNull();
+
+        // 失効後に検証し直した結果は登録できる
+        cache.put(digest, verified(Duration.ofHours(1)), cache.stamp());
+        assertThat(cache.get(digest)).isNotNull();
+    }
+
+    @Test
+    void invalidateRemovesTheEntry() {
+        TokenDigest digest = TokenDigest.of("logged-out");
+        TokenDigest other = TokenDigest.of("still-valid");
+        cache.put(digest, verified(Duration.ofHours(1)), cache.stamp());
+        cache.put(other, verified(Duration.ofHours(1)), cache.stamp());
+
+        cache.invalidate(digest);
+
+        assertThat(cache.get(digest)).isNull();
+        assertThat(cache.get(other)).isNotNull();
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    // NOW から expiresIn 後に期限切れになる検証済みトークン
+    private static VerifiedToken verified(Duration expiresIn) {
+        return VerifiedToken.success(Jwts.claims()
+                .setSubject("1")
+                .setIssuedAt(Date.from(NOW))
+                .setExpiration(Date.from(NOW.plus(expiresIn))));
+    }
+}